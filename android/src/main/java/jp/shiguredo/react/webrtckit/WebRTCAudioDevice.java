@@ -0,0 +1,194 @@
+package jp.shiguredo.react.webrtckit;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioRecord;
+import android.media.AudioTrack;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import android.util.Log;
+
+import org.webrtc.audio.JavaAudioDeviceModule;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 設定に従って JavaAudioDeviceModule を生成し、推定の遅延を記録します。
+ * <p>
+ * 推定の遅延は AudioRecord / AudioTrack のバッファの長さから計算した、端末内の入力と出力の遅延です。
+ * 口から耳までの遅延は、これにネットワークの遅延と受信側のジッタバッファの遅延 (getStats() の jitterBufferDelay) を加えたものになります。
+ * 入力と出力が開始されるたびに WebRTCKit.Audio.EstimatedInputLatencyMs と
+ * WebRTCKit.Audio.EstimatedOutputLatencyMs としてメトリクスに記録します。
+ * <p>
+ * マイクのサンプルは登録されたコールバックに録音のスレッドから順に渡します。
+ */
+final class WebRTCAudioDevice {
+
+    private static final String TAG = "WebRTCAudioDevice";
+
+    /**
+     * ネイティブのサンプリングレートが取得できない場合に JavaAudioDeviceModule が使うサンプリングレートです。
+     */
+    private static final int FALLBACK_SAMPLE_RATE = 16000;
+
+    /**
+     * WebRtcAudioRecord は 10ms ごとに録音したサンプルを取り出します。
+     */
+    private static final int RECORD_CALLBACK_MS = 10;
+
+    @NonNull
+    final JavaAudioDeviceModule audioDeviceModule;
+    @NonNull
+    final WebRTCAudioDeviceModuleOptions options;
+    final int inputSampleRate;
+    final int outputSampleRate;
+    final int nativeOutputSampleRate;
+    final int nativeFramesPerBuffer;
+    final boolean isLowLatencySupported;
+    final double estimatedInputLatencyMs;
+    final double estimatedOutputLatencyMs;
+    @NonNull
+    private final List<JavaAudioDeviceModule.SamplesReadyCallback> samplesReadyCallbacks = new CopyOnWriteArrayList<>();
+
+    WebRTCAudioDevice(@NonNull final Context context, @NonNull final WebRTCAudioDeviceModuleOptions options) {
+        this.options = options;
+
+        int nativeSampleRate = 0;
+        int framesPerBuffer = 0;
+        final AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        if (audioManager != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            nativeSampleRate = parseInt(audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE));
+            framesPerBuffer = parseInt(audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER));
+        }
+        nativeOutputSampleRate = nativeSampleRate;
+        nativeFramesPerBuffer = framesPerBuffer;
+        isLowLatencySupported = context.getPackageManager().hasSystemFeature(PackageManager.FEATURE_AUDIO_LOW_LATENCY);
+
+        // JavaAudioDeviceModule のデフォルトはネイティブのサンプリングレート。
+        // 低遅延を優先する場合は、指定されたサンプリングレートよりもネイティブのサンプリングレートを優先してリサンプリングを避ける
+        final int defaultSampleRate = nativeSampleRate > 0 ? nativeSampleRate : FALLBACK_SAMPLE_RATE;
+        final boolean isNativeRateRequired = options.useLowLatency && nativeSampleRate > 0;
+        if (isNativeRateRequired && (options.inputSampleRate > 0 || options.outputSampleRate > 0)) {
+            Log.d(TAG, "low latency mode uses the native sample rate " + nativeSampleRate + "Hz");
+        }
+        inputSampleRate = options.inputSampleRate > 0 && !isNativeRateRequired ? options.inputSampleRate : defaultSampleRate;
+        outputSampleRate = options.outputSampleRate > 0 && !isNativeRateRequired ? options.outputSampleRate : defaultSampleRate;
+        estimatedInputLatencyMs = estimateInputLatencyMs(inputSampleRate, options.useStereoInput);
+        estimatedOutputLatencyMs = estimateOutputLatencyMs(outputSampleRate, options.useStereoOutput);
+        Log.d(TAG, "input=" + inputSampleRate + "Hz (" + estimatedInputLatencyMs + "ms)"
+                + ", output=" + outputSampleRate + "Hz (" + estimatedOutputLatencyMs + "ms)"
+                + ", native=" + nativeSampleRate + "Hz/" + framesPerBuffer + "frames"
+                + ", lowLatencySupported=" + isLowLatencySupported);
+
+        audioDeviceModule = JavaAudioDeviceModule.builder(context)
+                .setInputSampleRate(inputSampleRate)
+                .setOutputSampleRate(outputSampleRate)
+                .setUseStereoInput(options.useStereoInput)
+                .setUseStereoOutput(options.useStereoOutput)
+                .setUseHardwareAcousticEchoCanceler(options.useHardwareAcousticEchoCanceler)
+                .setUseHardwareNoiseSuppressor(options.useHardwareNoiseSuppressor)
+                .setAudioRecordStateCallback(new JavaAudioDeviceModule.AudioRecordStateCallback() {
+                    @Override
+                    public void onWebRtcAudioRecordStart() {
+                        WebRTCModuleMetrics.addSample("WebRTCKit.Audio.EstimatedInputLatencyMs",
+                                1, 1000, 50, (int) Math.round(estimatedInputLatencyMs));
+                    }
+
+                    @Override
+                    public void onWebRtcAudioRecordStop() {
+                        // Do nothing
+                    }
+                })
+                .setAudioTrackStateCallback(new JavaAudioDeviceModule.AudioTrackStateCallback() {
+                    @Override
+                    public void onWebRtcAudioTrackStart() {
+                        WebRTCModuleMetrics.addSample("WebRTCKit.Audio.EstimatedOutputLatencyMs",
+                                1, 1000, 50, (int) Math.round(estimatedOutputLatencyMs));
+                    }
+
+                    @Override
+                    public void onWebRtcAudioTrackStop() {
+                        // Do nothing
+                    }
+                })
+                // JavaAudioDeviceModule は生成後にコールバックを設定できないため、タップが登録されていなくても常に設定する。
+                // 設定すると WebRtcAudioRecord は 10ms ごとに録音したサンプルを新しい byte[] にコピーして渡す (M88) ため、
+                // タップがない間もその割り当てと GC の負荷がかかる。こちらの処理はタップがなければすぐに返して最小限にする
+                .setSamplesReadyCallback(samples -> {
+                    if (samplesReadyCallbacks.isEmpty()) {
+                        return;
+                    }
+                    for (final JavaAudioDeviceModule.SamplesReadyCallback callback : samplesReadyCallbacks) {
+                        callback.onWebRtcAudioRecordSamplesReady(samples);
+                    }
+                })
+                .createAudioDeviceModule();
+    }
+
+    boolean isHardwareAcousticEchoCancelerEnabled() {
+        return options.useHardwareAcousticEchoCanceler && JavaAudioDeviceModule.isBuiltInAcousticEchoCancelerSupported();
+    }
+
+    boolean isHardwareNoiseSuppressorEnabled() {
+        return options.useHardwareNoiseSuppressor && JavaAudioDeviceModule.isBuiltInNoiseSuppressorSupported();
+    }
+
+    /**
+     * マイクのサンプルを受け取るコールバックを登録します。コールバックは録音のスレッドで呼ばれるため、すぐに返してください。
+     */
+    void addSamplesReadyCallback(@NonNull final JavaAudioDeviceModule.SamplesReadyCallback callback) {
+        samplesReadyCallbacks.add(callback);
+    }
+
+    void removeSamplesReadyCallback(@NonNull final JavaAudioDeviceModule.SamplesReadyCallback callback) {
+        samplesReadyCallbacks.remove(callback);
+    }
+
+    void release() {
+        audioDeviceModule.release();
+    }
+
+    /**
+     * 最小のバッファの長さと、 WebRtcAudioRecord がサンプルを取り出す間隔 (10ms) から推定します。
+     */
+    private static double estimateInputLatencyMs(final int sampleRate, final boolean isStereo) {
+        final int channelConfig = isStereo ? AudioFormat.CHANNEL_IN_STEREO : AudioFormat.CHANNEL_IN_MONO;
+        final int minBufferSize = AudioRecord.getMinBufferSize(sampleRate, channelConfig, AudioFormat.ENCODING_PCM_16BIT);
+        if (minBufferSize <= 0) {
+            return RECORD_CALLBACK_MS;
+        }
+        return bufferDurationMs(minBufferSize, sampleRate, isStereo) + RECORD_CALLBACK_MS;
+    }
+
+    /**
+     * WebRtcAudioTrack が確保する最小のバッファの長さから推定します。
+     */
+    private static double estimateOutputLatencyMs(final int sampleRate, final boolean isStereo) {
+        final int channelConfig = isStereo ? AudioFormat.CHANNEL_OUT_STEREO : AudioFormat.CHANNEL_OUT_MONO;
+        final int minBufferSize = AudioTrack.getMinBufferSize(sampleRate, channelConfig, AudioFormat.ENCODING_PCM_16BIT);
+        if (minBufferSize <= 0) {
+            return 0;
+        }
+        return bufferDurationMs(minBufferSize, sampleRate, isStereo);
+    }
+
+    private static double bufferDurationMs(final int bytes, final int sampleRate, final boolean isStereo) {
+        final int bytesPerFrame = (isStereo ? 2 : 1) * 2;
+        return bytes / (double) bytesPerFrame / sampleRate * 1000;
+    }
+
+    private static int parseInt(final String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package jp.shiguredo.react.webrtckit;
+
+/**
+ * 音声デバイス (JavaAudioDeviceModule) の設定です。
+ * <p>
+ * 音声デバイスは PeerConnectionFactory の生成時に 1 度だけ初期化されるため、
+ * ホストアプリケーションは {@link WebRTCModulePackage#WebRTCModulePackage(WebRTCAudioDeviceModuleOptions)} で設定を渡してください。
+ * <pre>
+ * new WebRTCModulePackage(new WebRTCAudioDeviceModuleOptions()
+ *         .setUseLowLatency(true)
+ *         .setUseHardwareNoiseSuppressor(false));
+ * </pre>
+ */
+public final class WebRTCAudioDeviceModuleOptions {
+
+    int inputSampleRate = 0;
+    int outputSampleRate = 0;
+    boolean useStereoInput = false;
+    boolean useStereoOutput = false;
+    boolean useHardwareAcousticEchoCanceler = true;
+    boolean useHardwareNoiseSuppressor = true;
+    boolean useLowLatency = false;
+
+    /**
+     * 入力のサンプリングレート (Hz) を設定します。 0 の場合は端末のネイティブのサンプリングレートを使います。
+     */
+    public WebRTCAudioDeviceModuleOptions setInputSampleRate(final int inputSampleRate) {
+        this.inputSampleRate = Math.max(0, inputSampleRate);
+        return this;
+    }
+
+    /**
+     * 出力のサンプリングレート (Hz) を設定します。 0 の場合は端末のネイティブのサンプリングレートを使います。
+     */
+    public WebRTCAudioDeviceModuleOptions setOutputSampleRate(final int outputSampleRate) {
+        this.outputSampleRate = Math.max(0, outputSampleRate);
+        return this;
+    }
+
+    public WebRTCAudioDeviceModuleOptions setUseStereoInput(final boolean useStereoInput) {
+        this.useStereoInput = useStereoInput;
+        return this;
+    }
+
+    public WebRTCAudioDeviceModuleOptions setUseStereoOutput(final boolean useStereoOutput) {
+        this.useStereoOutput = useStereoOutput;
+        return this;
+    }
+
+    /**
+     * 端末のハードウェアのエコーキャンセラーを使うかどうかを設定します。
+     * 使わない場合、またはサポートされていない場合は WebRTC のソフトウェアの処理を使います。
+     */
+    public WebRTCAudioDeviceModuleOptions setUseHardwareAcousticEchoCanceler(final boolean useHardwareAcousticEchoCanceler) {
+        this.useHardwareAcousticEchoCanceler = useHardwareAcousticEchoCanceler;
+        return this;
+    }
+
+    /**
+     * 端末のハードウェアのノイズ抑制を使うかどうかを設定します。
+     * 使わない場合、またはサポートされていない場合は WebRTC のソフトウェアの処理を使います。
+     */
+    public WebRTCAudioDeviceModuleOptions setUseHardwareNoiseSuppressor(final boolean useHardwareNoiseSuppressor) {
+        this.useHardwareNoiseSuppressor = useHardwareNoiseSuppressor;
+        return this;
+    }
+
+    /**
+     * 低遅延の経路を優先するかどうかを設定します。
+     * 有効にすると、指定されたサンプリングレートに関わらず端末のネイティブのサンプリングレートを使い、
+     * リサンプリングを避けて低遅延のミキサーの経路を使えるようにします。
+     * なお現在の libwebrtc (M88) の JavaAudioDeviceModule は AudioRecord / AudioTrack のみを使い、 AAudio は使えません。
+     */
+    public WebRTCAudioDeviceModuleOptions setUseLowLatency(final boolean useLowLatency) {
+        this.useLowLatency = useLowLatency;
+        return this;
+    }
+
+}
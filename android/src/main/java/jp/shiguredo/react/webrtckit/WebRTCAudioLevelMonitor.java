@@ -0,0 +1,280 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import org.webrtc.MediaStreamTrack;
+import org.webrtc.PeerConnection;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+import org.webrtc.audio.JavaAudioDeviceModule;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 音声トラックの音量を一定の間隔で計測し、すべてのトラックの音量を 1 つの audioLevels イベントで通知します。
+ * <p>
+ * ローカルのトラックの音量はマイクのサンプル (SamplesReadyCallback) から RMS とピークを計算します。
+ * マイクは 1 つなので、有効なローカルの音声トラックはすべて同じ音量になります。
+ * リモートのトラックの音量は PeerConnection の統計情報の audioLevel を使います。統計情報からはピークが得られないため、
+ * リモートのトラックの peak は level と同じ値になります。
+ * <p>
+ * 音量は 0 から 1 の値で、上がるときはすぐに追従し、下がるときは smoothing に従ってゆっくり下がります。
+ * 平滑化した音量はネイティブモジュールのスレッドでのみ扱い、トラックの列挙と通知もそのスレッドで行います。
+ * 統計情報の取得は、 PeerConnection の他の処理と順序を保ち、閉じられた PeerConnection を使わないよう、
+ * PeerConnection ごとの実行キュー ({@link WebRTCScheduler#findExecutor}) で行います。
+ */
+final class WebRTCAudioLevelMonitor implements JavaAudioDeviceModule.SamplesReadyCallback {
+
+    private static final String TAG = "WebRTCModule";
+
+    /**
+     * 平滑化した音量とピークです。
+     */
+    private static final class Level {
+        double level = 0;
+        double peak = 0;
+
+        void update(final double level, final double peak, final double smoothing) {
+            this.level = level >= this.level ? level : this.level * smoothing + level * (1 - smoothing);
+            this.peak = peak >= this.peak ? peak : this.peak * smoothing + peak * (1 - smoothing);
+        }
+    }
+
+    @NonNull
+    private final ReactApplicationContext reactContext;
+    @NonNull
+    private final WebRTCRepository repository;
+    @NonNull
+    private final WebRTCScheduler scheduler;
+    @NonNull
+    private final WebRTCAudioDevice audioDevice;
+    @NonNull
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private volatile long intervalMs = 0;
+    private volatile double smoothing = 0.5;
+
+    // マイクのサンプルの集計。録音のスレッドとネイティブモジュールのスレッドから使用する
+    private final Object samplesLock = new Object();
+    private double sumOfSquares = 0;
+    private long sampleCount = 0;
+    private double samplesPeak = 0;
+
+    // 以下はネイティブモジュールのスレッドでのみ使用する
+    @NonNull
+    private final Level localLevel = new Level();
+    /**
+     * Key is track id.
+     */
+    @NonNull
+    private final Map<String, Level> remoteLevels = new HashMap<>();
+
+    WebRTCAudioLevelMonitor(@NonNull final ReactApplicationContext reactContext,
+                            @NonNull final WebRTCRepository repository,
+                            @NonNull final WebRTCScheduler scheduler,
+                            @NonNull final WebRTCAudioDevice audioDevice) {
+        this.reactContext = reactContext;
+        this.repository = repository;
+        this.scheduler = scheduler;
+        this.audioDevice = audioDevice;
+    }
+
+    /**
+     * 通知の間隔と平滑化の係数 (0 以上 1 未満、大きいほどゆっくり下がる) を設定します。 intervalMs が 0 の場合は計測を止めます。
+     * ネイティブモジュールのスレッドから呼び出してください。
+     */
+    void configure(final long intervalMs, final double smoothing) {
+        Log.d(TAG, "WebRTCAudioLevelMonitor.configure() - intervalMs=" + intervalMs + ", smoothing=" + smoothing);
+        final boolean wasRunning = this.intervalMs > 0;
+        this.intervalMs = Math.max(0, intervalMs);
+        this.smoothing = Math.max(0, Math.min(0.99, smoothing));
+        handler.removeCallbacksAndMessages(null);
+        if (this.intervalMs > 0) {
+            if (!wasRunning) {
+                audioDevice.addSamplesReadyCallback(this);
+            }
+            scheduleNext();
+        } else {
+            audioDevice.removeSamplesReadyCallback(this);
+            localLevel.update(0, 0, 0);
+            remoteLevels.clear();
+        }
+    }
+
+    void dispose() {
+        intervalMs = 0;
+        handler.removeCallbacksAndMessages(null);
+        audioDevice.removeSamplesReadyCallback(this);
+    }
+
+    private void scheduleNext() {
+        handler.postDelayed(() -> reactContext.runOnNativeModulesQueueThread(this::tick), intervalMs);
+    }
+
+    //region JavaAudioDeviceModule.SamplesReadyCallback
+
+    @Override
+    public void onWebRtcAudioRecordSamplesReady(@NonNull final JavaAudioDeviceModule.AudioSamples samples) {
+        // 16bit リトルエンディアンの PCM
+        final byte[] data = samples.getData();
+        double sum = 0;
+        int peak = 0;
+        for (int i = 0; i + 1 < data.length; i += 2) {
+            final int sample = (short) ((data[i] & 0xff) | (data[i + 1] << 8));
+            sum += (double) sample * sample;
+            peak = Math.max(peak, Math.abs(sample));
+        }
+        synchronized (samplesLock) {
+            sumOfSquares += sum;
+            sampleCount += data.length / 2;
+            samplesPeak = Math.max(samplesPeak, peak / 32768.0);
+        }
+    }
+
+    //endregion
+
+    private void tick() {
+        if (intervalMs == 0) {
+            return;
+        }
+        // 統計情報の取得が返らない場合にも止まらないよう、先に次の計測を予約する
+        scheduleNext();
+        final double rms;
+        final double peak;
+        synchronized (samplesLock) {
+            rms = sampleCount > 0 ? Math.sqrt(sumOfSquares / sampleCount) / 32768.0 : 0;
+            peak = samplesPeak;
+            sumOfSquares = 0;
+            sampleCount = 0;
+            samplesPeak = 0;
+        }
+        localLevel.update(rms, peak, smoothing);
+
+        final Map<String, PeerConnection> peerConnections = repository.allPeerConnectionsByValueTag();
+        if (peerConnections.isEmpty()) {
+            emit(new HashMap<>());
+            return;
+        }
+        // すべての PeerConnection の統計情報がそろってから 1 回だけ通知する
+        final Map<String, Double> audioLevels = new HashMap<>();
+        final AtomicInteger pendingCount = new AtomicInteger(peerConnections.size());
+        final Runnable onStatsCollected = () -> {
+            if (pendingCount.decrementAndGet() == 0) {
+                reactContext.runOnNativeModulesQueueThread(() -> emit(audioLevels));
+            }
+        };
+        for (final Map.Entry<String, PeerConnection> entry : peerConnections.entrySet()) {
+            final String valueTag = entry.getKey();
+            final PeerConnection peerConnection = entry.getValue();
+            final Executor executor = scheduler.findExecutor(valueTag);
+            if (executor == null) {
+                // 閉じられた PeerConnection
+                onStatsCollected.run();
+                continue;
+            }
+            executor.execute(() -> {
+                if (repository.getPeerConnectionByValueTag(valueTag) != peerConnection) {
+                    onStatsCollected.run();
+                    return;
+                }
+                peerConnection.getStats(report -> {
+                    synchronized (audioLevels) {
+                        collectAudioLevels(report, audioLevels);
+                    }
+                    onStatsCollected.run();
+                });
+            });
+        }
+    }
+
+    /**
+     * 統計情報からリモートの音声トラックの audioLevel を取り出します。
+     * M88 ではトラックの統計 (track) に、それ以降では受信ストリームの統計 (inbound-rtp) に含まれます。
+     */
+    private static void collectAudioLevels(@NonNull final RTCStatsReport report, @NonNull final Map<String, Double> audioLevels) {
+        for (final RTCStats stats : report.getStatsMap().values()) {
+            final Map<String, Object> members = stats.getMembers();
+            if (!"audio".equals(members.get("kind"))) {
+                continue;
+            }
+            if ("track".equals(stats.getType()) && !Boolean.TRUE.equals(members.get("remoteSource"))) {
+                continue;
+            }
+            if (!"track".equals(stats.getType()) && !"inbound-rtp".equals(stats.getType())) {
+                continue;
+            }
+            final Object trackId = members.get("trackIdentifier");
+            final Object audioLevel = members.get("audioLevel");
+            if (trackId instanceof String && audioLevel instanceof Number) {
+                audioLevels.put((String) trackId, ((Number) audioLevel).doubleValue());
+            }
+        }
+    }
+
+    private void emit(@NonNull final Map<String, Double> audioLevels) {
+        if (intervalMs == 0) {
+            return;
+        }
+        final WritableArray levelsJson = Arguments.createArray();
+        final Map<String, Level> updatedRemoteLevels = new HashMap<>();
+        for (final MediaStreamTrack track : repository.tracks.all()) {
+            final String trackId;
+            final boolean isEnabled;
+            try {
+                if (!MediaStreamTrack.AUDIO_TRACK_KIND.equals(track.kind())) {
+                    continue;
+                }
+                trackId = track.id();
+                isEnabled = track.enabled();
+            } catch (IllegalStateException e) {
+                // すでに破棄されたトラック
+                continue;
+            }
+            final boolean isRemote = repository.getTransceiverByReceiverTrackId(trackId) != null;
+            final Level level;
+            if (isRemote) {
+                final Level previous = remoteLevels.get(trackId);
+                level = previous != null ? previous : new Level();
+                final Double audioLevel = audioLevels.get(trackId);
+                final double value = audioLevel != null && isEnabled ? audioLevel : 0;
+                level.update(value, value, smoothing);
+                updatedRemoteLevels.put(trackId, level);
+            } else {
+                level = isEnabled ? localLevel : null;
+            }
+            levelsJson.pushMap(audioLevelJsonValue(trackId, isRemote, level));
+        }
+        remoteLevels.clear();
+        remoteLevels.putAll(updatedRemoteLevels);
+
+        final WritableMap params = Arguments.createMap();
+        params.putArray("levels", levelsJson);
+        reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit("audioLevels", params);
+    }
+
+    @NonNull
+    private WritableMap audioLevelJsonValue(@NonNull final String trackId,
+                                            final boolean isRemote,
+                                            @Nullable final Level level) {
+        final WritableMap json = Arguments.createMap();
+        json.putString("valueTag", repository.tracks.getValueTag(trackId));
+        json.putString("trackId", trackId);
+        json.putBoolean("remote", isRemote);
+        json.putDouble("level", level != null ? level.level : 0);
+        json.putDouble("peak", level != null ? level.peak : 0);
+        return json;
+    }
+
+}
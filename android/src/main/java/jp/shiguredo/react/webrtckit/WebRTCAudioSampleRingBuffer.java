@@ -0,0 +1,150 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 16bit PCM のサンプルを受け渡す、書き込み 1 スレッド・読み出し 1 スレッド用のロックフリーのリングバッファです。
+ * <p>
+ * 書き込み側 (録音のスレッド) はロックの取得もメモリの確保もしません。
+ * 空きが足りない場合は書き込めない分のサンプルを捨て、オーバーランとして数えます。
+ * 複数チャンネルのサンプルは、左右のチャンネルが入れ替わらないよう、すべてのチャンネルがそろったフレーム単位で書き込みます。
+ * 書き込みと読み出しはそれぞれ 1 つのスレッドからのみ行ってください。
+ */
+public final class WebRTCAudioSampleRingBuffer {
+
+    /**
+     * 保持できるサンプル数の上限です。
+     */
+    public static final int MAX_CAPACITY = 1 << 30;
+
+    @NonNull
+    private final short[] samples;
+    private final int mask;
+    /**
+     * これまでに書き込んだサンプル数です。書き込み側のみが更新します。
+     */
+    private final AtomicLong writePosition = new AtomicLong(0);
+    /**
+     * これまでに読み出したサンプル数です。読み出し側のみが更新します。
+     */
+    private final AtomicLong readPosition = new AtomicLong(0);
+    private final AtomicLong overrunCount = new AtomicLong(0);
+    private final AtomicLong droppedSampleCount = new AtomicLong(0);
+
+    /**
+     * @param capacity 保持できるサンプル数。 2 のべき乗に切り上げます。
+     * @throws IllegalArgumentException capacity が {@link #MAX_CAPACITY} を超える場合
+     */
+    public WebRTCAudioSampleRingBuffer(final int capacity) {
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be less than or equal to " + MAX_CAPACITY + ": " + capacity);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        samples = new short[size];
+        mask = size - 1;
+    }
+
+    public int getCapacity() {
+        return samples.length;
+    }
+
+    /**
+     * 読み出せるサンプル数を返します。
+     */
+    public int available() {
+        return (int) (writePosition.get() - readPosition.get());
+    }
+
+    /**
+     * 空きが足りずに書き込めなかった回数を返します。
+     */
+    public long getOverrunCount() {
+        return overrunCount.get();
+    }
+
+    /**
+     * 空きが足りずに捨てたサンプル数を返します。
+     */
+    public long getDroppedSampleCount() {
+        return droppedSampleCount.get();
+    }
+
+    /**
+     * サンプルを書き込み、書き込んだサンプル数を返します。書き込み側のスレッドから呼び出してください。
+     */
+    public int write(@NonNull final short[] src, final int offset, final int length) {
+        return write(src, offset, length, 1);
+    }
+
+    /**
+     * channelCount チャンネルのサンプルを書き込み、書き込んだサンプル数を返します。書き込み側のスレッドから呼び出してください。
+     * 空きが足りない場合は、フレーム (全チャンネル分のサンプル) の途中で切らずに書き込めるフレームまで書き込みます。
+     */
+    public int write(@NonNull final short[] src, final int offset, final int length, final int channelCount) {
+        final long write = writePosition.get();
+        final int count = reserve(write, length, channelCount);
+        for (int i = 0; i < count; i++) {
+            samples[(int) ((write + i) & mask)] = src[offset + i];
+        }
+        writePosition.lazySet(write + count);
+        return count;
+    }
+
+    /**
+     * 16bit リトルエンディアンの PCM のバイト列をサンプルとして書き込み、書き込んだサンプル数を返します。
+     * 書き込み側のスレッドから呼び出してください。
+     */
+    public int writePcm16(@NonNull final byte[] src, final int offset, final int length) {
+        return writePcm16(src, offset, length, 1);
+    }
+
+    /**
+     * channelCount チャンネルの 16bit リトルエンディアンの PCM のバイト列をサンプルとして書き込み、書き込んだサンプル数を返します。
+     * 空きが足りない場合は、フレーム (全チャンネル分のサンプル) の途中で切らずに書き込めるフレームまで書き込みます。
+     * 書き込み側のスレッドから呼び出してください。
+     */
+    public int writePcm16(@NonNull final byte[] src, final int offset, final int length, final int channelCount) {
+        final long write = writePosition.get();
+        final int count = reserve(write, length / 2, channelCount);
+        for (int i = 0; i < count; i++) {
+            final int index = offset + i * 2;
+            samples[(int) ((write + i) & mask)] = (short) ((src[index] & 0xff) | (src[index + 1] << 8));
+        }
+        writePosition.lazySet(write + count);
+        return count;
+    }
+
+    /**
+     * 最大 length 個のサンプルを読み出し、読み出したサンプル数を返します。読み出し側のスレッドから呼び出してください。
+     */
+    public int read(@NonNull final short[] dst, final int offset, final int length) {
+        final long read = readPosition.get();
+        final int count = (int) Math.min(length, writePosition.get() - read);
+        for (int i = 0; i < count; i++) {
+            dst[offset + i] = samples[(int) ((read + i) & mask)];
+        }
+        readPosition.lazySet(read + count);
+        return count;
+    }
+
+    /**
+     * 書き込めるサンプル数を返します。足りない場合はオーバーランとして数え、フレームの数にそろえて返します。
+     */
+    private int reserve(final long write, final int length, final int channelCount) {
+        final int free = samples.length - (int) (write - readPosition.get());
+        if (length <= free) {
+            return length;
+        }
+        final int frameSize = Math.max(1, channelCount);
+        final int count = free - free % frameSize;
+        overrunCount.incrementAndGet();
+        droppedSampleCount.addAndGet(length - count);
+        return count;
+    }
+
+}
@@ -0,0 +1,54 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.NonNull;
+
+import org.webrtc.audio.JavaAudioDeviceModule;
+
+/**
+ * マイクの PCM サンプルをリングバッファに書き込むタップです。
+ * <p>
+ * ホストアプリケーションの Java から {@link WebRTCModule#addMicrophoneSampleTap(int)} で登録し、
+ * 文字起こしや音声解析のスレッドで {@link #buffer} から読み出してください。
+ * 録音のスレッドはリングバッファに書き込むだけで、ブロックもメモリの確保もしません。
+ * 読み出しが追いつかない場合は新しいサンプルを捨て、 {@link WebRTCAudioSampleRingBuffer#getOverrunCount()} で数えます。
+ * <p>
+ * サンプルは 16bit で、ステレオの場合は左右のチャンネルが交互に並びます。
+ * オーバーランしてもフレームの途中で切らずに書き込むため、チャンネル数の倍数ずつ読み出せば左右が入れ替わることはありません。
+ */
+public final class WebRTCAudioSampleTap implements JavaAudioDeviceModule.SamplesReadyCallback {
+
+    @NonNull
+    public final WebRTCAudioSampleRingBuffer buffer;
+    private volatile int sampleRate = 0;
+    private volatile int channelCount = 0;
+
+    /**
+     * @throws IllegalArgumentException capacity が {@link WebRTCAudioSampleRingBuffer#MAX_CAPACITY} を超える場合
+     */
+    WebRTCAudioSampleTap(final int capacity) {
+        buffer = new WebRTCAudioSampleRingBuffer(capacity);
+    }
+
+    /**
+     * 最後に受け取ったサンプルのサンプリングレートを返します。まだ受け取っていない場合は 0 です。
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * 最後に受け取ったサンプルのチャンネル数を返します。まだ受け取っていない場合は 0 です。
+     */
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    @Override
+    public void onWebRtcAudioRecordSamplesReady(@NonNull final JavaAudioDeviceModule.AudioSamples samples) {
+        sampleRate = samples.getSampleRate();
+        channelCount = samples.getChannelCount();
+        final byte[] data = samples.getData();
+        buffer.writePcm16(data, 0, data.length, channelCount);
+    }
+
+}
@@ -2,86 +2,154 @@ package jp.shiguredo.react.webrtckit;
 
 import androidx.annotation.Nullable;
 import androidx.annotation.NonNull;
+import android.content.Context;
+import android.os.Build;
 import android.util.Log;
-import android.util.Pair;
 
 import org.webrtc.Camera1Enumerator;
 import org.webrtc.CameraEnumerationAndroid;
+import org.webrtc.CameraVideoCapturer;
+import org.webrtc.EglBase;
+import org.webrtc.FileVideoCapturer;
 import org.webrtc.VideoCapturer;
 import org.webrtc.VideoSource;
 
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 final class WebRTCCamera {
 
+    /**
+     * {@link #switchCamera} の結果を受け取るコールバックです。
+     * カメラのスレッドから呼び出されます。
+     */
+    interface SwitchCameraCallback {
+        void onSwitchCameraDone(@NonNull final WebRTCVideoTrackSettings settings);
+
+        void onSwitchCameraError(@NonNull final String code, @NonNull final String message);
+    }
+
+    @NonNull
+    private final Context context;
+    @NonNull
+    private final EglBase.Context eglContext;
     @NonNull
     private final Camera1Enumerator cameraEnumerator;
-    @Nullable
-    private Pair<VideoSource, VideoCapturer> runningCapturer = null;
+    @NonNull
+    private final WebRTCCameraDeviceCache deviceCache;
+    /**
+     * Key is track valueTag, Value is the capture session. 生成順を保持します。
+     * ネイティブモジュールのスレッドとカメラのスレッドから使用するため、 sessions 自身で同期します。
+     */
+    @NonNull
+    private final Map<String, WebRTCCameraCaptureSession> sessions = new LinkedHashMap<>();
+    /**
+     * 同時に実行できるキャプチャセッションの上限です。
+     */
+    private int maxRunningSessions;
 
-    WebRTCCamera() {
+    WebRTCCamera(@NonNull final Context context, @NonNull final EglBase.Context eglContext) {
+        this.context = context;
+        this.eglContext = eglContext;
         this.cameraEnumerator = new Camera1Enumerator(true);
+        this.deviceCache = new WebRTCCameraDeviceCache(cameraEnumerator);
+        this.maxRunningSessions = getDefaultMaxRunningSessions(context);
+        // 初回の getUserMedia を待たせないよう、起動時にバックグラウンドで列挙しておく
+        this.deviceCache.prefetch();
     }
 
     /**
-     * 指定された条件を満たす最適なカメラデバイスとキャプチャフォーマットをまとめて、候補として返します。
+     * 端末の能力から、同時に実行できるキャプチャセッション数の初期値を決めます。
+     * 複数のカメラの同時使用 (android.hardware.camera.concurrent) をサポートする端末のみ 2 、それ以外は 1 です。
      */
-    @Nullable
-    WebRTCCameraDeviceCandidate getSuitableDeviceCandidate(@NonNull final WebRTCMediaStreamConstraints.Video video) {
-        return getSuitableDeviceCandidate(video.facingMode, video.width, video.height, video.frameRate);
+    private static int getDefaultMaxRunningSessions(@NonNull final Context context) {
+        // XXX: PackageManager.FEATURE_CAMERA_CONCURRENT は API Level 30 以降にしか存在しないため文字列で指定する
+        if (Build.VERSION.SDK_INT >= 30 && context.getPackageManager().hasSystemFeature("android.hardware.camera.concurrent")) {
+            return 2;
+        }
+        return 1;
     }
 
+    int getMaxRunningSessions() {
+        return maxRunningSessions;
+    }
+
+    /**
+     * 同時に実行できるキャプチャセッションの上限を設定します。
+     * 上限に達している間は、新しいカメラのキャプチャを開始できません。
+     */
+    void setMaxRunningSessions(final int maxRunningSessions) {
+        this.maxRunningSessions = Math.max(1, maxRunningSessions);
+    }
+
+    /**
+     * キャッシュしているカメラデバイスの列挙結果を破棄し、再列挙を開始します。
+     */
+    void invalidateDeviceCache() {
+        deviceCache.invalidate();
+    }
+
+    /**
+     * 指定された条件を満たす最適なカメラデバイスとキャプチャフォーマットをまとめて、候補として返します。
+     * 条件を満たすデバイスが存在しない場合は null を返します。
+     */
     @Nullable
-    private WebRTCCameraDeviceCandidate getSuitableDeviceCandidate(@Nullable final String facingMode,
-                                                                   final int width,
-                                                                   final int height,
-                                                                   final int framerate) {
-        if (facingMode == null) {
-            return null;
-        }
-        final boolean isFrontFacing = facingMode.equals("user");
-        // 各要素のデバイス決定における重要度
-        // 1. facingMode - 必須。一致しない限りマッチさせない。
-        // 2. width*height - 最も近いものを選択。
-        // 3. framerate - 最終決定の際に考慮する。基本的には無視するが、万一2.までの条件を満たすデバイスが複数あった場合、framerateを満たすデバイスを優先する。
-        final List<WebRTCCameraDeviceCandidate> candidates = new ArrayList<>();
-        for (final String name : cameraEnumerator.getDeviceNames()) {
-            if (cameraEnumerator.isFrontFacing(name) != isFrontFacing) {
+    WebRTCCameraDeviceCandidate getSuitableDeviceCandidate(@NonNull final WebRTCMediaStreamConstraints.Video video) {
+        // 各要素のデバイス決定における扱い
+        // 1. facingMode - 指定された場合は必須。一致しない限りマッチさせない。
+        // 2. width, height, aspectRatio, frameRate - min/max/exactは必須、idealはフィットネス距離として評価する。
+        //    https://www.w3.org/TR/mediacapture-streams/#dfn-fitness-distance
+        // 3. フィットネス距離が同じ候補が複数ある場合は、キャプチャのコストが最も小さい (画素数、フレームレートが小さい) ものを選ぶ。
+        WebRTCCameraDeviceCandidate bestCandidate = null;
+        for (final WebRTCCameraDeviceCache.Device device : deviceCache.getDevices()) {
+            if (video.facingMode != null && device.isFrontFacing != video.facingMode.equals("user")) {
                 continue;
             }
-            WebRTCCameraDeviceCandidate currentCandidate = null;
-            for (final CameraEnumerationAndroid.CaptureFormat format : cameraEnumerator.getSupportedFormats(name)) {
-                if (currentCandidate == null) {
-                    currentCandidate = new WebRTCCameraDeviceCandidate(name, format, Integer.MAX_VALUE);
-                } else {
-                    int score = Math.abs(width - format.width) + Math.abs(height - format.height);
-                    if (score < currentCandidate.score) {
-                        currentCandidate = new WebRTCCameraDeviceCandidate(name, format, score);
-                    }
-                }
+            if (video.deviceName != null && !device.name.equals(video.deviceName)) {
+                continue;
             }
-            if (currentCandidate != null) {
-                candidates.add(currentCandidate);
+            for (final CameraEnumerationAndroid.CaptureFormat format : device.formats) {
+                final WebRTCCameraDeviceCandidate candidate = evaluate(device, format, video);
+                if (candidate == null) {
+                    continue;
+                }
+                if (bestCandidate == null || candidate.compareTo(bestCandidate) < 0) {
+                    bestCandidate = candidate;
+                }
             }
         }
-        if (candidates.isEmpty()) {
+        return bestCandidate;
+    }
+
+    /**
+     * 与えられたキャプチャフォーマットを制約に照らして評価し、候補を返します。
+     * 必須の制約を満たさない場合は null を返します。
+     */
+    @Nullable
+    private static WebRTCCameraDeviceCandidate evaluate(@NonNull final WebRTCCameraDeviceCache.Device device,
+                                                        @NonNull final CameraEnumerationAndroid.CaptureFormat format,
+                                                        @NonNull final WebRTCMediaStreamConstraints.Video video) {
+        // CaptureFormat.framerate は fps を 1000 倍した値で表現されている
+        final Double framerate = video.frameRate.bestValueInRange(
+                format.framerate.min / 1000.0, format.framerate.max / 1000.0);
+        if (framerate == null) {
             return null;
         }
-        // scoreでソートした先頭が最善候補。基本的にはこの最善候補を返すが、最善候補がframerate要件を満たせず、
-        // かつ最善候補と同スコアの別候補が存在してそちらがframerate要件を満たせる場合のみ、そちらの代替候補を利用する。
-        Collections.sort(candidates);
-        final WebRTCCameraDeviceCandidate bestCandidate = candidates.get(0);
-        for (final WebRTCCameraDeviceCandidate candidate : candidates) {
-            if (bestCandidate.score < candidate.score) {
-                break;
-            }
-            if (candidate.format.framerate.min <= framerate && framerate <= candidate.format.framerate.max) {
-                return candidate;
-            }
+        final double aspectRatio = (double) format.width / (double) format.height;
+        final double fitness = video.width.fitnessDistance(format.width)
+                + video.height.fitnessDistance(format.height)
+                + video.aspectRatio.fitnessDistance(aspectRatio)
+                + video.frameRate.fitnessDistance(framerate);
+        if (Double.isInfinite(fitness)) {
+            return null;
         }
-        return bestCandidate;
+        return new WebRTCCameraDeviceCandidate(device.name, device.isFrontFacing, format,
+                (int) Math.round(framerate), fitness);
     }
 
     /**
@@ -100,43 +168,328 @@ final class WebRTCCamera {
     @NonNull
     VideoCapturer createCapturerFromAllDevices() {
         // XXX: 万一カメラデバイスが一切ない状態だとIOOBで落ちますが、通常まずありえないと思うので良しとしてます
-        return cameraEnumerator.createCapturer(cameraEnumerator.getDeviceNames()[0], null);
+        return cameraEnumerator.createCapturer(deviceCache.getDevices().get(0).name, null);
+    }
+
+    /**
+     * カメラの代わりに使用する映像ソースの候補を返します。
+     * テストパターンの場合は制約の値 (指定がなければ 640x480@30) 、ファイルの場合は Y4M ヘッダーの値を使用します。
+     * ファイルを読めない場合は IOException を投げます。
+     */
+    @NonNull
+    static WebRTCCameraDeviceCandidate getSourceCandidate(@NonNull final WebRTCMediaStreamConstraints.Video video,
+                                                          @NonNull final WebRTCMediaStreamConstraints.Source source) throws IOException {
+        final int framerate = (int) Math.round(video.frameRate.preferredValue(30));
+        if (WebRTCMediaStreamConstraints.Source.KIND_FILE.equals(source.kind)) {
+            return readY4mCandidate(source.path, framerate);
+        }
+        final int width = (int) Math.round(video.width.preferredValue(640));
+        final int height = (int) Math.round(video.height.preferredValue(480));
+        return WebRTCCameraDeviceCandidate.forSource(WebRTCMediaStreamConstraints.Source.KIND_SYNTHETIC, width, height, framerate);
+    }
+
+    /**
+     * Y4M ファイルのヘッダー (例: "YUV4MPEG2 W640 H480 F30:1 Ip A0:0") から大きさとフレームレートを読み取ります。
+     * ヘッダーにフレームレートがない場合は与えられた値を使用します。
+     */
+    @NonNull
+    private static WebRTCCameraDeviceCandidate readY4mCandidate(@NonNull final String path, final int defaultFramerate) throws IOException {
+        final String header;
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            header = reader.readLine();
+        }
+        if (header == null || !header.startsWith("YUV4MPEG2")) {
+            throw new IOException("Not a Y4M file: " + path);
+        }
+        int width = 0;
+        int height = 0;
+        int framerate = defaultFramerate;
+        for (final String token : header.split(" ")) {
+            try {
+                if (token.startsWith("W")) {
+                    width = Integer.parseInt(token.substring(1));
+                } else if (token.startsWith("H")) {
+                    height = Integer.parseInt(token.substring(1));
+                } else if (token.startsWith("F")) {
+                    final String[] ratio = token.substring(1).split(":");
+                    if (ratio.length == 2 && Integer.parseInt(ratio[1]) > 0) {
+                        framerate = Math.max(1, Math.round((float) Integer.parseInt(ratio[0]) / Integer.parseInt(ratio[1])));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid Y4M header: " + header, e);
+            }
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IOException("Invalid Y4M header: " + header);
+        }
+        return WebRTCCameraDeviceCandidate.forSource(WebRTCMediaStreamConstraints.Source.KIND_FILE + ":" + path, width, height, framerate);
+    }
+
+    /**
+     * カメラの代わりに使用する映像ソースのVideoCapturerを新規に生成します。
+     * 生成されたVideoCapturerはこの段階では初期化されておらず、またキャプチャも開始していません。
+     */
+    @NonNull
+    static VideoCapturer createSourceCapturer(@NonNull final WebRTCMediaStreamConstraints.Source source) throws IOException {
+        if (WebRTCMediaStreamConstraints.Source.KIND_FILE.equals(source.kind)) {
+            return new FileVideoCapturer(source.path);
+        }
+        return new WebRTCSyntheticVideoCapturer(source.complexity);
+    }
+
+    /**
+     * 指定されたトラックのキャプチャセッションを生成します。
+     * セッションは専用のキャプチャスレッドを持ち、与えられたVideoCapturerはこの段階でVideoSourceと紐付けられます。
+     * キャプチャはまだ開始していません。
+     */
+    @NonNull
+    WebRTCCameraCaptureSession createSession(@NonNull final String trackValueTag,
+                                             @NonNull final VideoSource source,
+                                             @NonNull final VideoCapturer capturer) {
+        final WebRTCCameraCaptureSession session = new WebRTCCameraCaptureSession(trackValueTag, source, capturer, context, eglContext);
+        synchronized (sessions) {
+            sessions.put(trackValueTag, session);
+        }
+        return session;
+    }
+
+    @Nullable
+    WebRTCCameraCaptureSession getSession(@NonNull final String trackValueTag) {
+        synchronized (sessions) {
+            return sessions.get(trackValueTag);
+        }
+    }
+
+    /**
+     * 与えられた候補のキャプチャを、実行中のセッション数の上限を超えずに開始できる場合に true を返します。
+     * 上限はカメラのセッションにのみ適用され、テストパターンやファイルのセッションは数えません。
+     */
+    boolean canStartCapture(@NonNull final WebRTCCameraDeviceCandidate candidate) {
+        if (!candidate.isCamera) {
+            return true;
+        }
+        int runningCount = 0;
+        for (final WebRTCCameraCaptureSession other : copySessions()) {
+            final WebRTCCameraDeviceCandidate otherCandidate = other.candidate;
+            if (otherCandidate != null && otherCandidate.isCamera) runningCount++;
+        }
+        return runningCount < maxRunningSessions;
     }
 
     /**
-     * 指定された条件で与えられたVideoCapturerによるキャプチャを開始します。
+     * 指定された条件で、トラックのセッションのキャプチャを開始します。
      * すでにキャプチャが開始されている場合は何もしません。
-     * 引数のVideoCapturerはすでにVideoSourceと紐付けられた後でなければなりません。
+     * 実行中のセッション数が上限に達している場合は開始せずに false を返します。
+     * 実行中の他のトラックのキャプチャは止めません。
+     */
+    boolean startCapture(@NonNull final String trackValueTag,
+                         @NonNull final WebRTCCameraDeviceCandidate candidate) {
+        final WebRTCCameraCaptureSession session = getSession(trackValueTag);
+        if (session == null) {
+            return false;
+        }
+        if (session.isRunning()) {
+            return true;
+        }
+        if (!canStartCapture(candidate)) {
+            Log.d("WebRTCCamera", "startCapture() - the number of running sessions reached the limit " + maxRunningSessions);
+            return false;
+        }
+        session.start(candidate);
+        return true;
+    }
+
+    /**
+     * 指定されたトラックのキャプチャに使用しているカメラを、実行中のまま切り替えます。
+     * VideoSource と VideoTrack はそのまま使い続けるため、再ネゴシエーションは発生しません。
+     * 切り替え先は facingMode ("user" / "environment") またはデバイス名で指定します。
+     * 切り替え先では現在のキャプチャフォーマットに最も近いフォーマットが選ばれます。
+     */
+    void switchCamera(@NonNull final String trackValueTag,
+                      @NonNull final String facingModeOrDeviceName,
+                      @NonNull final SwitchCameraCallback callback) {
+        final WebRTCCameraCaptureSession session = getSession(trackValueTag);
+        final WebRTCCameraDeviceCandidate current = session != null ? session.candidate : null;
+        if (session == null || current == null) {
+            callback.onSwitchCameraError("NotFoundError", "No running capture is found for the track.");
+            return;
+        }
+        if (!(session.capturer instanceof CameraVideoCapturer)) {
+            callback.onSwitchCameraError("NotSupportedError", "The capturer of the track is not a camera.");
+            return;
+        }
+        final boolean isFacingMode = facingModeOrDeviceName.equals("user") || facingModeOrDeviceName.equals("environment");
+        final WebRTCMediaStreamConstraints.Video video = new WebRTCMediaStreamConstraints.Video(
+                isFacingMode ? facingModeOrDeviceName : null,
+                isFacingMode ? null : facingModeOrDeviceName,
+                new WebRTCMediaTrackConstraint(null, null, null, (double) current.format.width),
+                new WebRTCMediaTrackConstraint(null, null, null, (double) current.format.height),
+                new WebRTCMediaTrackConstraint(null, null, null, (double) current.framerate),
+                WebRTCMediaTrackConstraint.EMPTY);
+        final WebRTCCameraDeviceCandidate candidate = getSuitableDeviceCandidate(video);
+        if (candidate == null) {
+            callback.onSwitchCameraError("NotFoundError", "No suitable camera device is found for " + facingModeOrDeviceName + ".");
+            return;
+        }
+        if (candidate.deviceName.equals(current.deviceName)) {
+            callback.onSwitchCameraDone(session.getSettings());
+            return;
+        }
+        for (final WebRTCCameraCaptureSession other : copySessions()) {
+            final WebRTCCameraDeviceCandidate otherCandidate = other.candidate;
+            if (other != session && otherCandidate != null && otherCandidate.deviceName.equals(candidate.deviceName)) {
+                callback.onSwitchCameraError("NotReadableError", "The camera device is already used by another capture.");
+                return;
+            }
+        }
+        final CameraVideoCapturer capturer = (CameraVideoCapturer) session.capturer;
+        capturer.switchCamera(new CameraVideoCapturer.CameraSwitchHandler() {
+            @Override
+            public void onCameraSwitchDone(boolean isFrontCamera) {
+                session.onCameraSwitched(candidate);
+                final WebRTCVideoTrackSettings settings = session.getSettings();
+                callback.onSwitchCameraDone(settings != null ? settings : WebRTCVideoTrackSettings.fromCandidate(candidate));
+            }
+
+            @Override
+            public void onCameraSwitchError(String errorDescription) {
+                callback.onSwitchCameraError("SwitchCameraFailed", errorDescription);
+            }
+        }, candidate.deviceName);
+    }
+
+    /**
+     * 実行中のキャプチャに新しい制約を適用し、適用後の設定を返します。
+     * <p>
+     * 現在のキャプチャフォーマットの範囲内で満たせる場合は VideoSource.adaptOutputFormat() で出力のみを縮小・クロップし、
+     * キャプチャは止めません。より大きな解像度やフレームレートが必要な場合のみ、同じデバイスのキャプチャフォーマットを変更します。
+     * 幅と高さの一方のみが指定された場合、もう一方はアスペクト比から決めます。どちらも指定されない場合は現在の出力を維持します。
+     * aspectRatio が正の値であれば、出力はそのアスペクト比になるよう中央でクロップされます。
+     * <p>
+     * キャプチャが実行されていない場合や、制約を満たすフォーマットが存在しない場合は null を返します。
+     */
+    @Nullable
+    WebRTCVideoTrackSettings applyConstraints(@NonNull final String trackValueTag,
+                                              @NonNull final WebRTCMediaStreamConstraints.Video video,
+                                              final double aspectRatio) {
+        final WebRTCCameraCaptureSession session = getSession(trackValueTag);
+        if (session == null || session.candidate == null) {
+            return null;
+        }
+        final WebRTCVideoTrackSettings currentSettings = session.getSettings();
+        WebRTCCameraDeviceCandidate capture = session.candidate;
+        final double targetAspectRatio = video.aspectRatio.preferredValue(aspectRatio);
+        final double baseAspectRatio = targetAspectRatio > 0
+                ? targetAspectRatio
+                : (double) capture.format.width / (double) capture.format.height;
+
+        int targetWidth;
+        int targetHeight;
+        if (!video.width.isEmpty() && !video.height.isEmpty()) {
+            targetWidth = (int) Math.round(video.width.preferredValue(capture.format.width));
+            targetHeight = (int) Math.round(video.height.preferredValue(capture.format.height));
+        } else if (!video.width.isEmpty()) {
+            targetWidth = (int) Math.round(video.width.preferredValue(capture.format.width));
+            targetHeight = (int) Math.round(targetWidth / baseAspectRatio);
+        } else if (!video.height.isEmpty()) {
+            targetHeight = (int) Math.round(video.height.preferredValue(capture.format.height));
+            targetWidth = (int) Math.round(targetHeight * baseAspectRatio);
+        } else {
+            targetWidth = currentSettings.width;
+            targetHeight = currentSettings.height;
+        }
+        final int targetFramerate = (int) Math.round(video.frameRate.preferredValue(currentSettings.frameRate));
+
+        // 現在のキャプチャフォーマットでは足りない場合のみ、キャプチャフォーマットを変更する
+        if (targetWidth > capture.format.width || targetHeight > capture.format.height || targetFramerate > capture.framerate) {
+            final WebRTCMediaStreamConstraints.Video captureVideo = new WebRTCMediaStreamConstraints.Video(
+                    null,
+                    capture.deviceName,
+                    withIdeal(video.width, targetWidth),
+                    withIdeal(video.height, targetHeight),
+                    withIdeal(video.frameRate, targetFramerate),
+                    WebRTCMediaTrackConstraint.EMPTY);
+            // テストパターンは任意のフォーマットで生成できる。ファイルはフォーマットを変更できないので失敗する
+            final WebRTCCameraDeviceCandidate candidate = session.capturer instanceof WebRTCSyntheticVideoCapturer
+                    ? WebRTCCameraDeviceCandidate.forSource(capture.deviceName, targetWidth, targetHeight, targetFramerate)
+                    : getSuitableDeviceCandidate(captureVideo);
+            if (candidate == null) {
+                return null;
+            }
+            if (candidate.format.width != capture.format.width
+                    || candidate.format.height != capture.format.height
+                    || candidate.framerate != capture.framerate) {
+                Log.d("WebRTCCamera", "applyConstraints() - change capture format to "
+                        + candidate.format.width + "x" + candidate.format.height + "@" + candidate.framerate);
+                session.changeCaptureFormat(candidate);
+                capture = candidate;
+            }
+        }
+
+        int outputWidth = Math.min(targetWidth, capture.format.width);
+        int outputHeight = Math.min(targetHeight, capture.format.height);
+        final int outputFramerate = Math.min(targetFramerate, capture.framerate);
+        if (targetAspectRatio > 0) {
+            if ((double) outputWidth / (double) outputHeight > targetAspectRatio) {
+                outputWidth = (int) Math.round(outputHeight * targetAspectRatio);
+            } else {
+                outputHeight = (int) Math.round(outputWidth / targetAspectRatio);
+            }
+        }
+        if (!video.width.isSatisfiedBy(outputWidth)
+                || !video.height.isSatisfiedBy(outputHeight)
+                || !video.frameRate.isSatisfiedBy(outputFramerate)) {
+            return null;
+        }
+        Log.d("WebRTCCamera", "applyConstraints() - adapt output format to "
+                + outputWidth + "x" + outputHeight + "@" + outputFramerate);
+        session.adaptOutputFormat(outputWidth, outputHeight, outputFramerate);
+        return session.getSettings();
+    }
+
+    @NonNull
+    private static WebRTCMediaTrackConstraint withIdeal(@NonNull final WebRTCMediaTrackConstraint constraint, final double ideal) {
+        return new WebRTCMediaTrackConstraint(constraint.min, constraint.max, constraint.exact, ideal);
+    }
+
+    /**
+     * 指定されたトラックのキャプチャを停止し、セッションを破棄します。
+     * セッションが存在しない場合には何もしません。
      */
-    void startCapture(@NonNull final VideoSource source,
-                      @NonNull final VideoCapturer capturer,
-                      @NonNull final WebRTCCameraDeviceCandidate candidate,
-                      @NonNull final WebRTCMediaStreamConstraints.Video video) {
-        if (runningCapturer != null) {
+    void stopCapture(@NonNull final String trackValueTag) {
+        final WebRTCCameraCaptureSession session;
+        synchronized (sessions) {
+            session = sessions.remove(trackValueTag);
+        }
+        if (session == null) {
             return;
         }
-        final int framerate = Math.max(candidate.format.framerate.min, Math.min(video.frameRate, candidate.format.framerate.max));
-        capturer.startCapture(candidate.format.width, candidate.format.height, framerate);
-        runningCapturer = new Pair<>(source, capturer);
+        session.dispose();
     }
 
     /**
-     * 現在実行中のキャプチャを停止します。
+     * すべてのキャプチャを停止し、セッションを破棄します。
      * まだキャプチャが開始されていない場合には何もしません。
      */
     void stopCapture() {
-        if (runningCapturer == null) {
-            return;
+        for (final WebRTCCameraCaptureSession session : copySessions()) {
+            stopCapture(session.trackValueTag);
         }
-        try {
-            runningCapturer.second.stopCapture();
-            runningCapturer.first.dispose();
-            runningCapturer.second.dispose();
-        } catch (InterruptedException e) {
-            // Squash the exception here
-            Log.e("WebRTCCamera", "stopCapture()", e);
-        } finally {
-            runningCapturer = null;
+    }
+
+    @NonNull
+    private List<WebRTCCameraCaptureSession> copySessions() {
+        synchronized (sessions) {
+            return new ArrayList<>(sessions.values());
         }
     }
+
+    /**
+     * キャプチャとカメラデバイスの列挙に使用しているリソースを開放します。
+     */
+    void dispose() {
+        stopCapture();
+        deviceCache.dispose();
+    }
 }
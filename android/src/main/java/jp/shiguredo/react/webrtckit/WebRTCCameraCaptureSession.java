@@ -0,0 +1,191 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+import android.content.Context;
+import android.util.Log;
+
+import org.webrtc.EglBase;
+import org.webrtc.SurfaceTextureHelper;
+import org.webrtc.VideoCapturer;
+import org.webrtc.VideoSource;
+
+import java.util.List;
+
+/**
+ * 1つの映像トラックに対応するキャプチャを管理します。
+ * セッションごとに専用の SurfaceTextureHelper (キャプチャスレッド) を持ち、他のセッションとは独立して開始・停止できます。
+ */
+final class WebRTCCameraCaptureSession {
+
+    @NonNull
+    final String trackValueTag;
+    @NonNull
+    final VideoSource source;
+    @NonNull
+    final VideoCapturer capturer;
+    @NonNull
+    private final SurfaceTextureHelper surfaceTextureHelper;
+    /**
+     * 現在のキャプチャに使用しているデバイスとフォーマットです。キャプチャを開始していない場合は null です。
+     * カメラのスレッドからも更新されるため、変更は本クラスのメソッドからのみ行います。
+     */
+    @Nullable
+    volatile WebRTCCameraDeviceCandidate candidate = null;
+    /**
+     * VideoSource.adaptOutputFormat() で調整している出力フォーマットです。調整していない場合は 0 です。
+     */
+    private int outputWidth = 0;
+    private int outputHeight = 0;
+    private int outputFramerate = 0;
+    /**
+     * フレームの加工処理です。処理が設定されていない場合は null で、フレームは直接 VideoSource に渡されます。
+     */
+    @Nullable
+    private WebRTCVideoProcessorChain processorChain = null;
+    private volatile boolean isDisposed = false;
+
+    WebRTCCameraCaptureSession(@NonNull final String trackValueTag,
+                               @NonNull final VideoSource source,
+                               @NonNull final VideoCapturer capturer,
+                               @NonNull final Context context,
+                               @NonNull final EglBase.Context eglContext) {
+        this.trackValueTag = trackValueTag;
+        this.source = source;
+        this.capturer = capturer;
+        this.surfaceTextureHelper = SurfaceTextureHelper.create("WebRTCCameraCaptureThread-" + trackValueTag, eglContext);
+        capturer.initialize(surfaceTextureHelper, context, source.getCapturerObserver());
+    }
+
+    boolean isRunning() {
+        return candidate != null;
+    }
+
+    @NonNull
+    SurfaceTextureHelper getSurfaceTextureHelper() {
+        return surfaceTextureHelper;
+    }
+
+    /**
+     * 現在の設定を返します。出力フォーマットを調整している場合は、調整後の値を返します。
+     * キャプチャを開始していない場合は null を返します。
+     */
+    @Nullable
+    WebRTCVideoTrackSettings getSettings() {
+        final WebRTCCameraDeviceCandidate candidate = this.candidate;
+        if (candidate == null) {
+            return null;
+        }
+        if (outputWidth <= 0 || outputHeight <= 0) {
+            return WebRTCVideoTrackSettings.fromCandidate(candidate);
+        }
+        // 出力フォーマットはキャプチャフォーマットを超えない
+        final int width = Math.min(outputWidth, candidate.format.width);
+        final int height = Math.min(outputHeight, candidate.format.height);
+        final int framerate = Math.min(outputFramerate, candidate.framerate);
+        return new WebRTCVideoTrackSettings(candidate.deviceName, candidate.facingMode(), width, height, framerate);
+    }
+
+    /**
+     * キャプチャを止めずに、VideoSource からの出力フォーマットを調整します。
+     * 縦横比が異なる場合は中央でクロップされます。端末の向きによらず同じ大きさになるよう、縦横両方の向きを指定します。
+     */
+    void adaptOutputFormat(final int width, final int height, final int framerate) {
+        if (isDisposed) {
+            return;
+        }
+        final int longSide = Math.max(width, height);
+        final int shortSide = Math.min(width, height);
+        source.adaptOutputFormat(longSide, shortSide, shortSide, longSide, framerate);
+        outputWidth = width;
+        outputHeight = height;
+        outputFramerate = framerate;
+    }
+
+    /**
+     * キャプチャされたフレームを VideoSource に渡す前に適用する処理を設定します。
+     * 空のリストを与えると処理を解除し、フレームは直接 VideoSource に渡されるようになります。
+     */
+    void setProcessors(@NonNull final List<WebRTCVideoFrameProcessor> processors) {
+        if (isDisposed) {
+            return;
+        }
+        if (processors.isEmpty()) {
+            if (processorChain != null) {
+                source.setVideoProcessor(null);
+                processorChain = null;
+            }
+            return;
+        }
+        if (processorChain == null) {
+            processorChain = new WebRTCVideoProcessorChain();
+            processorChain.setProcessors(processors);
+            source.setVideoProcessor(processorChain);
+        } else {
+            processorChain.setProcessors(processors);
+        }
+    }
+
+    /**
+     * キャプチャを継続したまま、キャプチャフォーマットを変更します。
+     */
+    synchronized void changeCaptureFormat(@NonNull final WebRTCCameraDeviceCandidate candidate) {
+        if (isDisposed || this.candidate == null) {
+            return;
+        }
+        capturer.changeCaptureFormat(candidate.format.width, candidate.format.height, candidate.framerate);
+        this.candidate = candidate;
+    }
+
+    /**
+     * CameraVideoCapturer.switchCamera() が完了したら、カメラのスレッドから呼び出します。
+     * switchCamera() は切り替え前のキャプチャフォーマットを引き継ぐため、
+     * 切り替え先で選んだフォーマットと異なる場合はキャプチャフォーマットを変更します。
+     */
+    synchronized void onCameraSwitched(@NonNull final WebRTCCameraDeviceCandidate candidate) {
+        final WebRTCCameraDeviceCandidate current = this.candidate;
+        if (isDisposed || current == null) {
+            return;
+        }
+        if (candidate.format.width != current.format.width
+                || candidate.format.height != current.format.height
+                || candidate.framerate != current.framerate) {
+            capturer.changeCaptureFormat(candidate.format.width, candidate.format.height, candidate.framerate);
+        }
+        this.candidate = candidate;
+    }
+
+    synchronized void start(@NonNull final WebRTCCameraDeviceCandidate candidate) {
+        if (isDisposed || this.candidate != null) {
+            return;
+        }
+        capturer.startCapture(candidate.format.width, candidate.format.height, candidate.framerate);
+        this.candidate = candidate;
+    }
+
+    /**
+     * キャプチャを停止し、 VideoSource 、 VideoCapturer 、キャプチャスレッドを破棄します。
+     * 本メソッドを呼び出すと、それ以降本インスタンスは使用不可能になります。
+     */
+    void dispose() {
+        // キャプチャスレッドの終了を待つため、カメラのスレッドから呼ばれる onCameraSwitched() と同じロックは取らない
+        if (isDisposed) {
+            return;
+        }
+        isDisposed = true;
+        try {
+            if (candidate != null) {
+                capturer.stopCapture();
+            }
+        } catch (InterruptedException e) {
+            // Squash the exception here
+            Log.e("WebRTCCamera", "stopCapture()", e);
+        } finally {
+            candidate = null;
+            source.dispose();
+            capturer.dispose();
+            surfaceTextureHelper.dispose();
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+import android.util.Log;
+
+import org.webrtc.CameraEnumerationAndroid;
+import org.webrtc.CameraEnumerator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * カメラデバイスとキャプチャフォーマットの列挙結果をキャッシュします。
+ * <p>
+ * Camera1 の列挙は各カメラを開いてパラメーターを問い合わせるため、1デバイスあたり数百ミリ秒かかることがあります。
+ * 列挙は専用スレッドで非同期に行い、結果は {@link #invalidate()} が呼び出されるまで使い回します。
+ * 本クラスのメソッドは任意のスレッドから呼び出すことができます。
+ */
+final class WebRTCCameraDeviceCache {
+
+    static final class Device {
+        @NonNull
+        final String name;
+        final boolean isFrontFacing;
+        final boolean isBackFacing;
+        @NonNull
+        final List<CameraEnumerationAndroid.CaptureFormat> formats;
+
+        Device(@NonNull final String name,
+               final boolean isFrontFacing,
+               final boolean isBackFacing,
+               @NonNull final List<CameraEnumerationAndroid.CaptureFormat> formats) {
+            this.name = name;
+            this.isFrontFacing = isFrontFacing;
+            this.isBackFacing = isBackFacing;
+            this.formats = formats;
+        }
+    }
+
+    @NonNull
+    private final CameraEnumerator cameraEnumerator;
+    @NonNull
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    @Nullable
+    private List<Device> devices = null;
+    @Nullable
+    private Future<List<Device>> pendingEnumeration = null;
+
+    WebRTCCameraDeviceCache(@NonNull final CameraEnumerator cameraEnumerator) {
+        this.cameraEnumerator = cameraEnumerator;
+    }
+
+    /**
+     * キャッシュが空であれば、バックグラウンドでの列挙を開始します。
+     * すでにキャッシュ済み、または列挙中の場合は何もしません。
+     */
+    synchronized void prefetch() {
+        if (devices != null || pendingEnumeration != null || executor.isShutdown()) {
+            return;
+        }
+        pendingEnumeration = executor.submit(this::enumerate);
+    }
+
+    /**
+     * キャッシュ済みのデバイス一覧を返します。
+     * 列挙が完了していない場合は、その完了を待ってから返します。
+     * {@link #dispose()} の後は、呼び出したスレッドで列挙します。
+     */
+    @NonNull
+    List<Device> getDevices() {
+        final Future<List<Device>> future;
+        synchronized (this) {
+            if (devices != null) {
+                return devices;
+            }
+            if (pendingEnumeration == null && !executor.isShutdown()) {
+                pendingEnumeration = executor.submit(this::enumerate);
+            }
+            future = pendingEnumeration;
+        }
+        if (future == null) {
+            return enumerate();
+        }
+        List<Device> result;
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.e("WebRTCCamera", "getDevices()", e);
+            result = enumerate();
+        } catch (ExecutionException | CancellationException e) {
+            // dispose() で列挙が取り消された場合も含む
+            Log.e("WebRTCCamera", "getDevices()", e);
+            result = enumerate();
+        }
+        synchronized (this) {
+            // 待機中に invalidate() された場合は結果をキャッシュしません
+            if (pendingEnumeration == future) {
+                devices = result;
+                pendingEnumeration = null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 指定された名前のデバイスを返します。見つからない場合は null を返します。
+     */
+    @Nullable
+    Device getDevice(@NonNull final String name) {
+        for (final Device device : getDevices()) {
+            if (device.name.equals(name)) {
+                return device;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * キャッシュを破棄し、バックグラウンドで再列挙を開始します。
+     * USB カメラの抜き差しなど、デバイス構成が変化した場合に呼び出してください。
+     */
+    synchronized void invalidate() {
+        devices = null;
+        pendingEnumeration = null;
+        prefetch();
+    }
+
+    /**
+     * 列挙用のスレッドを停止します。以降はキャッシュの更新を行いません。
+     */
+    synchronized void dispose() {
+        // 実行されずに破棄される列挙を待っているスレッドを起こす
+        if (pendingEnumeration != null) {
+            pendingEnumeration.cancel(true);
+            pendingEnumeration = null;
+        }
+        executor.shutdownNow();
+    }
+
+    @NonNull
+    private List<Device> enumerate() {
+        final long startTime = System.nanoTime();
+        final List<Device> result = new ArrayList<>();
+        for (final String name : cameraEnumerator.getDeviceNames()) {
+            final List<CameraEnumerationAndroid.CaptureFormat> formats = cameraEnumerator.getSupportedFormats(name);
+            result.add(new Device(name,
+                    cameraEnumerator.isFrontFacing(name),
+                    cameraEnumerator.isBackFacing(name),
+                    formats == null ? Collections.<CameraEnumerationAndroid.CaptureFormat>emptyList() : Collections.unmodifiableList(formats)));
+        }
+        Log.d("WebRTCCamera", "enumerate() - " + result.size() + " devices in " + (System.nanoTime() - startTime) / 1000000 + "ms");
+        return Collections.unmodifiableList(result);
+    }
+
+}
@@ -1,5 +1,6 @@
 package jp.shiguredo.react.webrtckit;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.NonNull;
 
 import org.webrtc.CameraEnumerationAndroid;
@@ -7,20 +8,82 @@ import org.webrtc.CameraEnumerationAndroid;
 final class WebRTCCameraDeviceCandidate implements Comparable<WebRTCCameraDeviceCandidate> {
     @NonNull
     final String deviceName;
+    /**
+     * カメラデバイスであれば true 、テストパターンやファイルなどカメラ以外のソースであれば false です。
+     */
+    final boolean isCamera;
+    final boolean isFrontFacing;
     @NonNull
     final CameraEnumerationAndroid.CaptureFormat format;
-    final int score;
+    /**
+     * キャプチャに使用するフレームレート (fps) です。
+     * format.framerate は 1000 倍された値なので、その範囲内から制約に合わせて選んだ値を保持します。
+     */
+    final int framerate;
+    /**
+     * 制約に対するフィットネス距離の合計です。小さいほど制約に適合しています。
+     */
+    final double fitness;
 
     WebRTCCameraDeviceCandidate(@NonNull final String deviceName,
+                                final boolean isFrontFacing,
                                 @NonNull final CameraEnumerationAndroid.CaptureFormat format,
-                                final int score) {
+                                final int framerate,
+                                final double fitness) {
+        this(deviceName, true, isFrontFacing, format, framerate, fitness);
+    }
+
+    private WebRTCCameraDeviceCandidate(@NonNull final String deviceName,
+                                        final boolean isCamera,
+                                        final boolean isFrontFacing,
+                                        @NonNull final CameraEnumerationAndroid.CaptureFormat format,
+                                        final int framerate,
+                                        final double fitness) {
         this.deviceName = deviceName;
+        this.isCamera = isCamera;
+        this.isFrontFacing = isFrontFacing;
         this.format = format;
-        this.score = score;
+        this.framerate = framerate;
+        this.fitness = fitness;
+    }
+
+    /**
+     * カメラ以外のソースの候補を生成します。フォーマットは指定された大きさとフレームレートに固定されます。
+     */
+    @NonNull
+    static WebRTCCameraDeviceCandidate forSource(@NonNull final String deviceName,
+                                                 final int width,
+                                                 final int height,
+                                                 final int framerate) {
+        final CameraEnumerationAndroid.CaptureFormat format =
+                new CameraEnumerationAndroid.CaptureFormat(width, height, framerate * 1000, framerate * 1000);
+        return new WebRTCCameraDeviceCandidate(deviceName, false, false, format, framerate, 0.0);
+    }
+
+    /**
+     * カメラ以外のソースの場合は null を返します。
+     */
+    @Nullable
+    String facingMode() {
+        if (!isCamera) {
+            return null;
+        }
+        return isFrontFacing ? "user" : "environment";
     }
 
+    /**
+     * フィットネス距離が小さい順、同じであればキャプチャのコストが小さい (画素数、フレームレートが小さい) 順に並べます。
+     */
     @Override
     public int compareTo(@NonNull WebRTCCameraDeviceCandidate o) {
-        return score - ((WebRTCCameraDeviceCandidate) o).score;
+        final int fitnessOrder = Double.compare(fitness, o.fitness);
+        if (fitnessOrder != 0) {
+            return fitnessOrder;
+        }
+        final int pixelsOrder = Integer.compare(format.width * format.height, o.format.width * o.format.height);
+        if (pixelsOrder != 0) {
+            return pixelsOrder;
+        }
+        return Integer.compare(framerate, o.framerate);
     }
 }
@@ -0,0 +1,207 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.PromiseImpl;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * executeBatch() で渡された WebRTCModule の操作の列を、 1 つずつ順に実行します。
+ * <p>
+ * 各操作は {"method": 操作名, "args": 引数の配列} で表し、引数は Promise を除いた ReactMethod の引数と同じ順に並べます。
+ * 操作は前の操作の Promise が解決してから、 JS から個別に呼び出した場合と同じくネイティブモジュールのスレッドで実行します。
+ * 最初に失敗した操作で止まり、それまでの結果は破棄します。
+ * すべて成功した場合は、各操作の結果 (結果がない操作は null) を 1 つの配列で返します。
+ */
+final class WebRTCCommandBatch {
+
+    private static final String TAG = "WebRTCModule";
+
+    @NonNull
+    private final WebRTCModule module;
+    @NonNull
+    private final ReactApplicationContext reactContext;
+    @NonNull
+    private final ReadableArray commands;
+    @NonNull
+    private final Promise promise;
+    @NonNull
+    private final WritableArray results = Arguments.createArray();
+    private int index = 0;
+    @Nullable
+    private String currentMethod = null;
+
+    WebRTCCommandBatch(@NonNull final WebRTCModule module,
+                       @NonNull final ReadableArray commands,
+                       @NonNull final Promise promise) {
+        this.module = module;
+        this.reactContext = module.getReactContext();
+        this.commands = commands;
+        this.promise = promise;
+    }
+
+    /**
+     * 最初の操作を実行します。ネイティブモジュールのスレッドから呼び出してください。
+     */
+    void start() {
+        executeNext();
+    }
+
+    private void executeNext() {
+        if (index >= commands.size()) {
+            promise.resolve(results);
+            return;
+        }
+        currentMethod = null;
+        final String method;
+        final ReadableArray args;
+        try {
+            // 要素が Map でない、 method が文字列でないなど、形式が正しくない操作もここで失敗にする
+            final ReadableMap command = commands.getMap(index);
+            method = command != null && command.hasKey("method") ? command.getString("method") : null;
+            args = command != null && command.hasKey("args") ? command.getArray("args") : null;
+        } catch (RuntimeException e) {
+            fail("TypeError", "invalid command: " + e.getMessage());
+            return;
+        }
+        currentMethod = method;
+        if (method == null || args == null) {
+            fail("TypeError", "invalid command");
+            return;
+        }
+        Log.d(TAG, "executeBatch() - [" + index + "] " + method);
+        final Promise commandPromise = new PromiseImpl(
+                resolved -> reactContext.runOnNativeModulesQueueThread(() -> {
+                    pushResult(resolved.length > 0 ? resolved[0] : null);
+                    index++;
+                    executeNext();
+                }),
+                rejected -> {
+                    final ReadableMap errorInfo = rejected.length > 0 && rejected[0] instanceof ReadableMap
+                            ? (ReadableMap) rejected[0] : null;
+                    final String code = errorInfo != null && errorInfo.hasKey("code") ? errorInfo.getString("code") : null;
+                    final String message = errorInfo != null && errorInfo.hasKey("message") ? errorInfo.getString("message") : null;
+                    fail(code != null ? code : "FatalError", message);
+                });
+        try {
+            if (!dispatch(method, args, commandPromise)) {
+                fail("NotSupportedError", "unsupported method");
+            }
+        } catch (RuntimeException e) {
+            // 引数の型が合わない場合など
+            fail("TypeError", e.getMessage());
+        }
+    }
+
+    /**
+     * 操作を実行します。結果を返さない操作はここで null を結果として解決します。
+     * 対応していない操作の場合は false を返します。
+     */
+    private boolean dispatch(@NonNull final String method,
+                             @NonNull final ReadableArray args,
+                             @NonNull final Promise commandPromise) {
+        switch (method) {
+            case "trackSetEnabled":
+                module.trackSetEnabled(args.getBoolean(0), args.getString(1));
+                commandPromise.resolve(null);
+                return true;
+            case "trackSetAspectRatio":
+                module.trackSetAspectRatio(args.getDouble(0), args.getString(1));
+                commandPromise.resolve(null);
+                return true;
+            case "transceiverSetDirection":
+                module.transceiverSetDirection(args.getString(0), args.getString(1), commandPromise);
+                return true;
+            case "transceiverStop":
+                module.transceiverStop(args.getString(0), commandPromise);
+                return true;
+            case "rtpEncodingParametersSetActive":
+                module.rtpEncodingParametersSetActive(args.getBoolean(0), (long) args.getDouble(1), args.getString(2));
+                commandPromise.resolve(null);
+                return true;
+            case "rtpEncodingParametersSetMaxBitrate":
+                module.rtpEncodingParametersSetMaxBitrate(args.getInt(0), (long) args.getDouble(1), args.getString(2));
+                commandPromise.resolve(null);
+                return true;
+            case "rtpEncodingParametersSetMinBitrate":
+                module.rtpEncodingParametersSetMinBitrate(args.getInt(0), (long) args.getDouble(1), args.getString(2));
+                commandPromise.resolve(null);
+                return true;
+            case "peerConnectionSetConfiguration":
+                // PeerConnection の実行キューで実行されるため、後続の操作より先に完了する
+                module.peerConnectionSetConfiguration(args.getMap(0), args.getString(1));
+                commandPromise.resolve(null);
+                return true;
+            case "peerConnectionAddTrack":
+                module.peerConnectionAddTrack(args.getString(0), args.getArray(1), args.getString(2), commandPromise);
+                return true;
+            case "peerConnectionRemoveTrack":
+                module.peerConnectionRemoveTrack(args.getString(0), args.getString(1), commandPromise);
+                return true;
+            case "peerConnectionCreateOffer":
+                module.peerConnectionCreateOffer(args.getString(0), nullableMap(args, 1), commandPromise);
+                return true;
+            case "peerConnectionCreateAnswer":
+                module.peerConnectionCreateAnswer(args.getString(0), nullableMap(args, 1), commandPromise);
+                return true;
+            case "peerConnectionSetLocalDescription":
+                module.peerConnectionSetLocalDescription(args.getMap(0), args.getString(1), commandPromise);
+                return true;
+            case "peerConnectionSetRemoteDescription":
+                module.peerConnectionSetRemoteDescription(args.getMap(0), args.getString(1), commandPromise);
+                return true;
+            case "peerConnectionOfferAndSetLocal":
+                module.peerConnectionOfferAndSetLocal(args.getString(0), nullableMap(args, 1), commandPromise);
+                return true;
+            case "peerConnectionAnswerRemoteAndSetLocal":
+                module.peerConnectionAnswerRemoteAndSetLocal(args.getMap(0), nullableMap(args, 1), args.getString(2), commandPromise);
+                return true;
+            case "peerConnectionAddICECandidate":
+                module.peerConnectionAddICECandidate(args.getMap(0), args.getString(1), commandPromise);
+                return true;
+            case "peerConnectionAddICECandidates":
+                module.peerConnectionAddICECandidates(args.getArray(0), args.getString(1), commandPromise);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void pushResult(@Nullable final Object result) {
+        if (result instanceof WritableMap) {
+            results.pushMap((WritableMap) result);
+        } else if (result instanceof WritableArray) {
+            results.pushArray((WritableArray) result);
+        } else if (result instanceof String) {
+            results.pushString((String) result);
+        } else if (result instanceof Boolean) {
+            results.pushBoolean((Boolean) result);
+        } else if (result instanceof Number) {
+            results.pushDouble(((Number) result).doubleValue());
+        } else {
+            results.pushNull();
+        }
+    }
+
+    private void fail(@NonNull final String code, @Nullable final String message) {
+        Log.d(TAG, "executeBatch() - [" + index + "] " + currentMethod + " failed: " + code + " " + message);
+        promise.reject(code, "commands[" + index + "] (" + currentMethod + "): " + message);
+    }
+
+    @Nullable
+    private static ReadableMap nullableMap(@NonNull final ReadableArray args, final int index) {
+        if (args.size() <= index || args.isNull(index)) {
+            return null;
+        }
+        return args.getMap(index);
+    }
+
+}
@@ -491,6 +491,14 @@ final class WebRTCConverter {
         return new SessionDescription(type, sdp);
     }
 
+    @NonNull
+    static WritableMap sessionDescriptionJsonValue(@NonNull final SessionDescription sessionDescription) {
+        final WritableMap json = Arguments.createMap();
+        json.putString("sdp", sessionDescription.description);
+        json.putString("type", sessionDescription.type.canonicalForm());
+        return json;
+    }
+
     //endregion
 
 
@@ -510,6 +518,31 @@ final class WebRTCConverter {
         return new IceCandidate(sdpMid, sdpMLineIndex, sdp);
     }
 
+    @NonNull
+    static WritableMap iceCandidateJsonValue(@NonNull final IceCandidate iceCandidate) {
+        final WritableMap json = Arguments.createMap();
+        json.putString("candidate", iceCandidate.sdp);
+        json.putInt("sdpMLineIndex", iceCandidate.sdpMLineIndex);
+        json.putString("sdpMid", iceCandidate.sdpMid);
+        return json;
+    }
+
+    /**
+     * RTCIceCandidateFilterOptions を変換します。
+     */
+    @NonNull
+    static WebRTCIceCandidateFilter.Options iceCandidateFilterOptions(@NonNull final ReadableMap json) {
+        final WebRTCIceCandidateFilter.Options options = new WebRTCIceCandidateFilter.Options();
+        options.dropTcp = Boolean.TRUE.equals(booleans(json, "dropTcp"));
+        options.dropIpv6 = Boolean.TRUE.equals(booleans(json, "dropIpv6"));
+        options.dropLinkLocal = Boolean.TRUE.equals(booleans(json, "dropLinkLocal"));
+        options.dropHost = Boolean.TRUE.equals(booleans(json, "dropHost"));
+        options.relayOnly = Boolean.TRUE.equals(booleans(json, "relayOnly"));
+        options.deduplicate = Boolean.TRUE.equals(booleans(json, "deduplicate"));
+        options.batchIntervalMs = Math.max(0, (long) Readables.jdouble(json, "batchInterval", 0));
+        return options;
+    }
+
     //endregion
 
 
@@ -527,6 +560,127 @@ final class WebRTCConverter {
         if (valueTag != null) {
             json.putString("valueTag", valueTag);
         }
+        final WebRTCVideoTrackSettings settings = repository.getTrackSettings(track);
+        if (settings != null) {
+            json.putMap("settings", mediaTrackSettingsJsonValue(settings));
+        }
+        return json;
+    }
+
+    /**
+     * 映像トラックの現在の設定を MediaTrackSettings 相当の JSON にします。
+     */
+    @NonNull
+    static WritableMap mediaTrackSettingsJsonValue(@NonNull final WebRTCVideoTrackSettings settings) {
+        final WritableMap json = Arguments.createMap();
+        json.putString("deviceId", settings.deviceName);
+        json.putString("facingMode", settings.facingMode);
+        json.putInt("width", settings.width);
+        json.putInt("height", settings.height);
+        json.putInt("frameRate", settings.frameRate);
+        json.putDouble("aspectRatio", settings.aspectRatio());
+        return json;
+    }
+
+    /**
+     * 音声デバイスの設定と推定の遅延を RTCAudioDeviceInfo 相当の JSON にします。
+     */
+    @NonNull
+    static WritableMap audioDeviceInfoJsonValue(@NonNull final WebRTCAudioDevice audioDevice) {
+        final WritableMap json = Arguments.createMap();
+        json.putInt("inputSampleRate", audioDevice.inputSampleRate);
+        json.putInt("outputSampleRate", audioDevice.outputSampleRate);
+        json.putBoolean("stereoInput", audioDevice.options.useStereoInput);
+        json.putBoolean("stereoOutput", audioDevice.options.useStereoOutput);
+        json.putBoolean("hardwareEchoCancellation", audioDevice.isHardwareAcousticEchoCancelerEnabled());
+        json.putBoolean("hardwareNoiseSuppression", audioDevice.isHardwareNoiseSuppressorEnabled());
+        json.putBoolean("lowLatency", audioDevice.options.useLowLatency);
+        json.putBoolean("lowLatencySupported", audioDevice.isLowLatencySupported);
+        json.putInt("nativeOutputSampleRate", audioDevice.nativeOutputSampleRate);
+        json.putInt("nativeFramesPerBuffer", audioDevice.nativeFramesPerBuffer);
+        json.putDouble("estimatedInputLatency", audioDevice.estimatedInputLatencyMs);
+        json.putDouble("estimatedOutputLatency", audioDevice.estimatedOutputLatencyMs);
+        return json;
+    }
+
+    /**
+     * 映像トラックのスナップショットを RTCVideoSnapshot 相当の JSON にします。
+     */
+    @NonNull
+    static WritableMap videoSnapshotJsonValue(@NonNull final WebRTCVideoTrackSnapshot.Result result) {
+        final WritableMap json = Arguments.createMap();
+        json.putInt("width", result.width);
+        json.putInt("height", result.height);
+        json.putString("format", result.format == WebRTCVideoTrackSnapshot.Format.WEBP ? "webp" : "jpeg");
+        if (result.path != null) {
+            json.putString("path", result.path);
+        }
+        if (result.data != null) {
+            json.putString("data", result.data);
+        }
+        return json;
+    }
+
+    /**
+     * RTCVideoView の描画の統計を RTCVideoViewRenderStats 相当の JSON にします。
+     */
+    @NonNull
+    static WritableMap videoRenderStatsJsonValue(@NonNull final WebRTCVideoRenderStats.Snapshot stats) {
+        final WritableMap json = Arguments.createMap();
+        json.putDouble("framesReceived", stats.framesReceived);
+        json.putDouble("framesRendered", stats.framesRendered);
+        json.putDouble("framesDropped", stats.framesDropped);
+        json.putDouble("averageRenderTime", stats.averageRenderTimeMs);
+        json.putDouble("p95RenderTime", stats.p95RenderTimeMs);
+        if (stats.timeToFirstFrameMs >= 0) {
+            json.putDouble("timeToFirstFrame", stats.timeToFirstFrameMs);
+        } else {
+            json.putNull("timeToFirstFrame");
+        }
+        json.putInt("frameWidth", stats.frameWidth);
+        json.putInt("frameHeight", stats.frameHeight);
+        return json;
+    }
+
+    /**
+     * 映像トラックのスナップショットの設定を変換します。
+     */
+    @NonNull
+    static WebRTCVideoTrackSnapshot.Options videoSnapshotOptions(@Nullable final ReadableMap json) {
+        final WebRTCVideoTrackSnapshot.Options options = new WebRTCVideoTrackSnapshot.Options();
+        if (json == null) {
+            return options;
+        }
+        options.maxWidth = Math.max(0, Readables.jint(json, "maxWidth", 0));
+        options.format = "webp".equals(Readables.string(json, "format"))
+                ? WebRTCVideoTrackSnapshot.Format.WEBP
+                : WebRTCVideoTrackSnapshot.Format.JPEG;
+        options.quality = Math.max(0, Math.min(100, Readables.jint(json, "quality", options.quality)));
+        options.isBase64 = "base64".equals(Readables.string(json, "result"));
+        options.timeoutMs = Math.max(0, (long) Readables.jdouble(json, "timeout", options.timeoutMs));
+        return options;
+    }
+
+    /**
+     * メトリクスのヒストグラムを RTCMetricsSampleInfo 相当の JSON にします。
+     * samples のキーは JS のオブジェクトのキーとして文字列になります。
+     */
+    @NonNull
+    static WritableMap metricsSampleInfoJsonValue(@NonNull final String name,
+                                                  final int min,
+                                                  final int max,
+                                                  final int bucketCount,
+                                                  @NonNull final Map<Integer, Integer> samples) {
+        final WritableMap json = Arguments.createMap();
+        json.putString("name", name);
+        json.putInt("min", min);
+        json.putInt("max", max);
+        json.putInt("bucketCount", bucketCount);
+        final WritableMap samplesJson = Arguments.createMap();
+        for (final Map.Entry<Integer, Integer> sample : samples.entrySet()) {
+            samplesJson.putInt(String.valueOf(sample.getKey()), sample.getValue());
+        }
+        json.putMap("samples", samplesJson);
         return json;
     }
 
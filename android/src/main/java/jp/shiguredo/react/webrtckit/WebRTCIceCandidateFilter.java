@@ -0,0 +1,195 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.webrtc.IceCandidate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * PeerConnection が生成した ICE candidate を条件に従って間引き、一定の時間ごとにまとめて通知します。
+ * <p>
+ * GATHER_CONTINUALLY ではネットワークが変わるたびに candidate が生成されるため、
+ * 不要な candidate を JS に渡す前に捨て、ブリッジとシグナリングサーバーの負荷を減らします。
+ * candidate の種別やアドレスは candidate の SDP の属性
+ * (candidate:foundation component protocol priority address port typ type ...) から判定します。
+ * 判定できない形式の candidate は捨てません。
+ * <p>
+ * {@link #add} はシグナリングスレッドから、 {@link #flush} は任意のスレッドから呼ばれます。
+ * 通知はロックを保持したまま行うため、メインスレッドのタイマーによる通知の途中でシグナリングスレッドから flush() が呼ばれても、
+ * flush() は通知が終わるまで待ちます。これにより、収集の完了はまとめた candidate の通知より先に届きません。
+ */
+final class WebRTCIceCandidateFilter {
+
+    private static final String TAG = "WebRTCModule";
+
+    static final class Options {
+        boolean dropTcp = false;
+        boolean dropIpv6 = false;
+        /**
+         * 169.254.0.0/16 と fe80::/10 のアドレスの candidate を捨てます。
+         */
+        boolean dropLinkLocal = false;
+        boolean dropHost = false;
+        /**
+         * relay 以外の candidate を捨てます。
+         */
+        boolean relayOnly = false;
+        /**
+         * 同じアドレス・ポート・種別の candidate を 2 回目以降は捨てます。
+         */
+        boolean deduplicate = false;
+        /**
+         * candidate をまとめて通知する間隔です。 0 の場合は candidate ごとにすぐに通知します。
+         */
+        long batchIntervalMs = 0;
+    }
+
+    interface Listener {
+        /**
+         * 通知する candidate を渡します。 batchIntervalMs が 0 の場合は 1 つずつ渡します。
+         * フィルタのロックを保持したまま呼ばれるため、このメソッドからフィルタを呼び出さないでください。
+         */
+        void onCandidates(@NonNull List<IceCandidate> candidates);
+    }
+
+    @NonNull
+    private final Options options;
+    @NonNull
+    private final Listener listener;
+    @NonNull
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    @NonNull
+    private final Runnable flushRunnable = this::flush;
+
+    // 以下は this で同期する
+    @NonNull
+    private final Set<String> sentCandidateKeys = new HashSet<>();
+    @NonNull
+    private List<IceCandidate> pendingCandidates = new ArrayList<>();
+    private boolean isDisposed = false;
+
+    WebRTCIceCandidateFilter(@NonNull final Options options, @NonNull final Listener listener) {
+        this.options = options;
+        this.listener = listener;
+    }
+
+    /**
+     * candidate を条件に従って捨てるか、通知します。
+     */
+    void add(@NonNull final IceCandidate candidate) {
+        final String[] fields = parse(candidate.sdp);
+        if (fields != null && shouldDrop(fields)) {
+            Log.d(TAG, "WebRTCIceCandidateFilter - drop " + candidate.sdp);
+            return;
+        }
+        synchronized (this) {
+            if (isDisposed) {
+                return;
+            }
+            if (options.deduplicate && !sentCandidateKeys.add(key(candidate, fields))) {
+                return;
+            }
+            if (options.batchIntervalMs > 0) {
+                pendingCandidates.add(candidate);
+                if (pendingCandidates.size() == 1) {
+                    handler.postDelayed(flushRunnable, options.batchIntervalMs);
+                }
+                return;
+            }
+            listener.onCandidates(Collections.singletonList(candidate));
+        }
+    }
+
+    /**
+     * まとめている candidate をすぐに通知します。 ICE の収集が完了したときに、完了の通知より先に呼び出します。
+     * 他のスレッドで通知している途中であれば、その通知が終わってから戻ります。
+     */
+    void flush() {
+        synchronized (this) {
+            handler.removeCallbacks(flushRunnable);
+            if (isDisposed || pendingCandidates.isEmpty()) {
+                return;
+            }
+            final List<IceCandidate> candidates = pendingCandidates;
+            pendingCandidates = new ArrayList<>();
+            listener.onCandidates(candidates);
+        }
+    }
+
+    /**
+     * まとめている candidate を捨て、以降の candidate を通知しません。
+     */
+    void dispose() {
+        synchronized (this) {
+            isDisposed = true;
+            pendingCandidates.clear();
+            sentCandidateKeys.clear();
+        }
+        handler.removeCallbacks(flushRunnable);
+    }
+
+    private boolean shouldDrop(@NonNull final String[] fields) {
+        final String protocol = fields[2].toLowerCase(Locale.ROOT);
+        final String address = fields[4].toLowerCase(Locale.ROOT);
+        final String type = fields[7].toLowerCase(Locale.ROOT);
+        if (options.relayOnly && !type.equals("relay")) {
+            return true;
+        }
+        if (options.dropHost && type.equals("host")) {
+            return true;
+        }
+        if (options.dropTcp && protocol.equals("tcp")) {
+            return true;
+        }
+        if (options.dropIpv6 && address.contains(":")) {
+            return true;
+        }
+        return options.dropLinkLocal && (address.startsWith("169.254.") || address.startsWith("fe80:"));
+    }
+
+    /**
+     * 重複を判定するキーです。 ICE restart で ufrag が変わった candidate は別のものとして扱います。
+     */
+    @NonNull
+    private static String key(@NonNull final IceCandidate candidate, @Nullable final String[] fields) {
+        if (fields == null) {
+            return candidate.sdpMid + " " + candidate.sdpMLineIndex + " " + candidate.sdp;
+        }
+        String ufrag = "";
+        for (int i = 8; i + 1 < fields.length; i++) {
+            if (fields[i].equals("ufrag")) {
+                ufrag = fields[i + 1];
+                break;
+            }
+        }
+        return candidate.sdpMid + " " + candidate.sdpMLineIndex + " " + fields[1] + " " + fields[2] + " "
+                + fields[4] + " " + fields[5] + " " + fields[7] + " " + ufrag;
+    }
+
+    /**
+     * candidate の属性を空白で区切ります。判定に必要なフィールドがない場合は null を返します。
+     */
+    @Nullable
+    private static String[] parse(@Nullable final String sdp) {
+        if (sdp == null) {
+            return null;
+        }
+        final String attribute = sdp.startsWith("a=") ? sdp.substring(2) : sdp;
+        final String[] fields = attribute.trim().split("\\s+");
+        if (fields.length < 8 || !fields[0].startsWith("candidate:") || !fields[6].equals("typ")) {
+            return null;
+        }
+        return fields;
+    }
+
+}
@@ -0,0 +1,130 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.NonNull;
+import android.util.Log;
+
+import org.webrtc.IceCandidate;
+import org.webrtc.PeerConnection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * リモートの SDP が設定される前に届いた ICE candidate を保持し、設定が成功してからまとめて追加します。
+ * <p>
+ * リモートの SDP がない状態や、設定している途中で PeerConnection.addIceCandidate() を呼ぶと candidate は捨てられてしまいます。
+ * そのような candidate はキューに入れておき、 {@link #endRemoteDescription} で設定の完了が通知されたときに、
+ * リモートの SDP が設定されていれば追加します。
+ * 追加の結果はキューに入れた candidate ごとに、追加を試みたときに {@link Callback} で通知します。
+ * <p>
+ * PeerConnection の実行キュー ({@link WebRTCScheduler#executorFor}) からのみ使用してください。
+ * 追加はすべて 1 つの処理の中で行うため、途中で他の操作が割り込むことはありません。
+ */
+final class WebRTCIceCandidateQueue {
+
+    private static final String TAG = "WebRTCModule";
+
+    enum Result {
+        /** PeerConnection に追加した */
+        ADDED,
+        /** PeerConnection が candidate を受け付けなかった */
+        FAILED,
+        /** 追加する前に {@link #clear} で捨てた */
+        DISCARDED,
+    }
+
+    interface Callback {
+        void onResult(@NonNull Result result);
+    }
+
+    private static final class PendingCandidate {
+        @NonNull
+        final IceCandidate candidate;
+        @NonNull
+        final Callback callback;
+
+        PendingCandidate(@NonNull final IceCandidate candidate, @NonNull final Callback callback) {
+            this.candidate = candidate;
+            this.callback = callback;
+        }
+    }
+
+    @NonNull
+    private final PeerConnection peerConnection;
+    @NonNull
+    private final List<PendingCandidate> pendingCandidates = new ArrayList<>();
+    /**
+     * 実行中の setRemoteDescription() の数です。
+     */
+    private int remoteDescriptionOperationCount = 0;
+
+    WebRTCIceCandidateQueue(@NonNull final PeerConnection peerConnection) {
+        this.peerConnection = peerConnection;
+    }
+
+    /**
+     * リモートの SDP が設定されていれば candidate を追加し、そうでなければ保持します。
+     * 結果は、すぐに追加した場合は本メソッドの中で、保持した場合は追加を試みたとき、または捨てたときに callback で通知します。
+     */
+    void add(@NonNull final IceCandidate candidate, @NonNull final Callback callback) {
+        if (isRemoteDescriptionPending()) {
+            pendingCandidates.add(new PendingCandidate(candidate, callback));
+            return;
+        }
+        callback.onResult(peerConnection.addIceCandidate(candidate) ? Result.ADDED : Result.FAILED);
+    }
+
+    /**
+     * リモートの SDP を設定しているか、まだ設定していない場合に true を返します。
+     */
+    boolean isRemoteDescriptionPending() {
+        return remoteDescriptionOperationCount > 0 || peerConnection.getRemoteDescription() == null;
+    }
+
+    /**
+     * setRemoteDescription() を呼ぶ前に呼び出します。
+     */
+    void beginRemoteDescription() {
+        remoteDescriptionOperationCount++;
+    }
+
+    /**
+     * setRemoteDescription() が完了したら、成功したかどうかに関わらず呼び出します。
+     * リモートの SDP が設定されていれば、保持している candidate を追加します。
+     */
+    void endRemoteDescription() {
+        if (remoteDescriptionOperationCount > 0) {
+            remoteDescriptionOperationCount--;
+        }
+        flush();
+    }
+
+    /**
+     * 保持している candidate を捨て、それぞれ {@link Result#DISCARDED} を通知します。
+     */
+    void clear() {
+        final List<PendingCandidate> candidates = new ArrayList<>(pendingCandidates);
+        pendingCandidates.clear();
+        for (final PendingCandidate pending : candidates) {
+            pending.callback.onResult(Result.DISCARDED);
+        }
+    }
+
+    private void flush() {
+        if (pendingCandidates.isEmpty() || isRemoteDescriptionPending()) {
+            return;
+        }
+        Log.d(TAG, "WebRTCIceCandidateQueue - flush " + pendingCandidates.size() + " candidates");
+        // 通知の中で新しい candidate が追加されても影響しないよう、先にキューを空にする
+        final List<PendingCandidate> candidates = new ArrayList<>(pendingCandidates);
+        pendingCandidates.clear();
+        for (final PendingCandidate pending : candidates) {
+            final boolean isAdded = peerConnection.addIceCandidate(pending.candidate);
+            if (!isAdded) {
+                Log.d(TAG, "WebRTCIceCandidateQueue - cannot add the pending candidate: " + pending.candidate);
+            }
+            pending.callback.onResult(isAdded ? Result.ADDED : Result.FAILED);
+        }
+    }
+
+}
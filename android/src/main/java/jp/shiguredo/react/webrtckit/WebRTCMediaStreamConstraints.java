@@ -7,7 +7,6 @@ import com.facebook.react.bridge.ReadableMap;
 
 import static jp.shiguredo.react.webrtckit.Readables.isTruthy;
 import static jp.shiguredo.react.webrtckit.Readables.jdouble;
-import static jp.shiguredo.react.webrtckit.Readables.jint;
 import static jp.shiguredo.react.webrtckit.Readables.map;
 import static jp.shiguredo.react.webrtckit.Readables.string;
 
@@ -31,12 +30,35 @@ final class WebRTCMediaStreamConstraints {
 
     static class Video {
 
+        /**
+         * 何も指定されていない制約です。
+         */
+        static final Video EMPTY = new Video(null, null,
+                WebRTCMediaTrackConstraint.EMPTY,
+                WebRTCMediaTrackConstraint.EMPTY,
+                WebRTCMediaTrackConstraint.EMPTY,
+                WebRTCMediaTrackConstraint.EMPTY);
+
         @Nullable
         final String facingMode;
-        final int width;
-        final int height;
-        final int frameRate;
-        final double aspectRatio;
+        /**
+         * 使用するカメラのデバイス名です。JS からは指定できず、カメラの切り替えなど内部処理でのみ使用します。
+         */
+        @Nullable
+        final String deviceName;
+        @NonNull
+        final WebRTCMediaTrackConstraint width;
+        @NonNull
+        final WebRTCMediaTrackConstraint height;
+        @NonNull
+        final WebRTCMediaTrackConstraint frameRate;
+        @NonNull
+        final WebRTCMediaTrackConstraint aspectRatio;
+        /**
+         * カメラの代わりに使用する映像ソースです。 null の場合はカメラを使用します。
+         */
+        @Nullable
+        final Source source;
 
         // TODO: sourceId のサポートをどうするか考える。
         //       iOS側はAVCaptureDevice.uniqueID を sourceId として指定させているように見えるが、実装上で使っているようには見えない。
@@ -53,6 +75,29 @@ final class WebRTCMediaStreamConstraints {
             }
         }
 
+        /**
+         * applyConstraints() などで、 video キーの中身そのものが与えられた場合に使用します。
+         */
+        @NonNull
+        static Video fromVideoJson(@NonNull final ReadableMap videoJson) {
+            return new Video(videoJson);
+        }
+
+        Video(@Nullable final String facingMode,
+              @Nullable final String deviceName,
+              @NonNull final WebRTCMediaTrackConstraint width,
+              @NonNull final WebRTCMediaTrackConstraint height,
+              @NonNull final WebRTCMediaTrackConstraint frameRate,
+              @NonNull final WebRTCMediaTrackConstraint aspectRatio) {
+            this.facingMode = facingMode;
+            this.deviceName = deviceName;
+            this.width = width;
+            this.height = height;
+            this.frameRate = frameRate;
+            this.aspectRatio = aspectRatio;
+            this.source = null;
+        }
+
         private Video(@NonNull final ReadableMap videoJson) {
             final String facingModeValue = string(videoJson, "facingMode");
             if (facingModeValue != null) {
@@ -70,10 +115,67 @@ final class WebRTCMediaStreamConstraints {
             } else {
                 this.facingMode = null;
             }
-            width = jint(videoJson, "width", -1);
-            height = jint(videoJson, "width", -1);
-            frameRate = jint(videoJson, "frameRate", -1);
-            aspectRatio = jdouble(videoJson, "aspectRatio", -1);
+            deviceName = null;
+            width = WebRTCMediaTrackConstraint.fromJson(videoJson, "width");
+            height = WebRTCMediaTrackConstraint.fromJson(videoJson, "height");
+            frameRate = WebRTCMediaTrackConstraint.fromJson(videoJson, "frameRate");
+            aspectRatio = WebRTCMediaTrackConstraint.fromJson(videoJson, "aspectRatio");
+            source = Source.fromJson(videoJson);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format("Video{facingMode=%s, deviceName=%s, width=%s, height=%s, frameRate=%s, aspectRatio=%s, source=%s}",
+                    facingMode, deviceName, width, height, frameRate, aspectRatio, source);
+        }
+    }
+
+    /**
+     * 負荷試験や回帰テストのために、カメラの代わりに使用する映像ソースです。
+     * <ul>
+     * <li>synthetic - テストパターンを生成します。 complexity (0.0 - 1.0) で映像の複雑さを指定します。</li>
+     * <li>file - path で指定された Y4M ファイルを繰り返し再生します。</li>
+     * </ul>
+     */
+    static class Source {
+
+        static final String KIND_SYNTHETIC = "synthetic";
+        static final String KIND_FILE = "file";
+
+        @NonNull
+        final String kind;
+        @Nullable
+        final String path;
+        final double complexity;
+
+        @Nullable
+        static Source fromJson(@NonNull final ReadableMap videoJson) {
+            final ReadableMap sourceJson = map(videoJson, "source");
+            if (sourceJson == null) {
+                return null;
+            }
+            final String kind = string(sourceJson, "kind");
+            if (KIND_SYNTHETIC.equals(kind)) {
+                return new Source(kind, null, jdouble(sourceJson, "complexity", 0.5));
+            } else if (KIND_FILE.equals(kind)) {
+                final String path = string(sourceJson, "path");
+                return path != null ? new Source(kind, path, 0.0) : null;
+            } else {
+                return null;
+            }
+        }
+
+        private Source(@NonNull final String kind, @Nullable final String path, final double complexity) {
+            this.kind = kind;
+            this.path = path;
+            this.complexity = complexity;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format("Source{kind=%s, path=%s, complexity=%s}", kind, path, complexity);
         }
     }
 
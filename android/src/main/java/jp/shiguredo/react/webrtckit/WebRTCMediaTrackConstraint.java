@@ -0,0 +1,151 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
+
+import static jp.shiguredo.react.webrtckit.Readables.doubles;
+import static jp.shiguredo.react.webrtckit.Readables.map;
+import static jp.shiguredo.react.webrtckit.Readables.type;
+
+/**
+ * 数値型のトラック制約 (W3C Media Capture and Streams の ConstrainDouble / ConstrainULong) を表します。
+ * <p>
+ * JS からは数値 (ideal として扱う) か、 min / max / exact / ideal をキーに持つオブジェクトのいずれかで指定します。
+ * https://www.w3.org/TR/mediacapture-streams/#dfn-fitness-distance
+ */
+final class WebRTCMediaTrackConstraint {
+
+    /**
+     * 何も指定されていない制約です。どのような値でも満たされ、フィットネス距離は常に 0 です。
+     */
+    static final WebRTCMediaTrackConstraint EMPTY = new WebRTCMediaTrackConstraint(null, null, null, null);
+
+    @Nullable
+    final Double min;
+    @Nullable
+    final Double max;
+    @Nullable
+    final Double exact;
+    @Nullable
+    final Double ideal;
+
+    WebRTCMediaTrackConstraint(@Nullable final Double min,
+                               @Nullable final Double max,
+                               @Nullable final Double exact,
+                               @Nullable final Double ideal) {
+        this.min = min;
+        this.max = max;
+        this.exact = exact;
+        this.ideal = ideal;
+    }
+
+    /**
+     * 指定されたキーの値から制約を生成します。キーが存在しない、または負数の場合は {@link #EMPTY} を返します。
+     * 過去との互換性のため、数値の -1 は未指定として扱います。
+     */
+    @NonNull
+    static WebRTCMediaTrackConstraint fromJson(@NonNull final ReadableMap json, @NonNull final String key) {
+        final ReadableType valueType = type(json, key);
+        if (valueType == ReadableType.Number) {
+            final double value = json.getDouble(key);
+            if (value < 0) {
+                return EMPTY;
+            }
+            return new WebRTCMediaTrackConstraint(null, null, null, value);
+        } else if (valueType == ReadableType.Map) {
+            final ReadableMap constraintJson = map(json, key);
+            if (constraintJson == null) {
+                return EMPTY;
+            }
+            return new WebRTCMediaTrackConstraint(
+                    doubles(constraintJson, "min"),
+                    doubles(constraintJson, "max"),
+                    doubles(constraintJson, "exact"),
+                    doubles(constraintJson, "ideal"));
+        }
+        return EMPTY;
+    }
+
+    boolean isEmpty() {
+        return min == null && max == null && exact == null && ideal == null;
+    }
+
+    /**
+     * 与えられた値が必須の制約 (min / max / exact) を満たすかどうかを返します。
+     */
+    boolean isSatisfiedBy(final double value) {
+        if (exact != null && Math.abs(value - exact) > 1e-6 * Math.max(1.0, Math.abs(exact))) {
+            return false;
+        }
+        if (min != null && value < min) {
+            return false;
+        }
+        if (max != null && value > max) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 与えられた値に対するフィットネス距離を返します。
+     * 必須の制約を満たさない場合は {@link Double#POSITIVE_INFINITY} を返します。
+     */
+    double fitnessDistance(final double value) {
+        if (!isSatisfiedBy(value)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (ideal == null || value == ideal) {
+            return 0.0;
+        }
+        return Math.abs(value - ideal) / Math.max(Math.abs(value), Math.abs(ideal));
+    }
+
+    /**
+     * 与えられた範囲 [rangeMin, rangeMax] の中で、この制約に最も適合する値を返します。
+     * 範囲内に必須の制約を満たす値が存在しない場合は null を返します。
+     */
+    @Nullable
+    Double bestValueInRange(final double rangeMin, final double rangeMax) {
+        double lower = rangeMin;
+        double upper = rangeMax;
+        if (exact != null) {
+            lower = Math.max(lower, exact);
+            upper = Math.min(upper, exact);
+        }
+        if (min != null) {
+            lower = Math.max(lower, min);
+        }
+        if (max != null) {
+            upper = Math.min(upper, max);
+        }
+        if (lower > upper) {
+            return null;
+        }
+        if (ideal != null) {
+            return Math.max(lower, Math.min(ideal, upper));
+        }
+        return upper;
+    }
+
+    /**
+     * アプリケーションが望む値を返します。exact、ideal、max、min の順に優先します。
+     * いずれも指定されていない場合は fallback を返します。
+     */
+    double preferredValue(final double fallback) {
+        if (exact != null) return exact;
+        if (ideal != null) return ideal;
+        if (max != null) return max;
+        if (min != null) return min;
+        return fallback;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format("{min=%s, max=%s, exact=%s, ideal=%s}", min, max, exact, ideal);
+    }
+
+}
@@ -3,9 +3,12 @@ package jp.shiguredo.react.webrtckit;
 import androidx.annotation.Nullable;
 import androidx.annotation.NonNull;
 
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
 import android.util.Base64;
 import android.util.Log;
 import android.util.Pair;
+import android.view.View;
 
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Promise;
@@ -15,14 +18,18 @@ import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.UiThreadUtil;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.module.annotations.ReactModule;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.uimanager.UIManagerModule;
 
 import org.webrtc.AudioSource;
 import org.webrtc.AudioTrack;
 import org.webrtc.DefaultVideoDecoderFactory;
 import org.webrtc.DefaultVideoEncoderFactory;
 import org.webrtc.EglBase;
+import org.webrtc.IceCandidate;
 import org.webrtc.Logging;
 import org.webrtc.MediaConstraints;
 import org.webrtc.MediaStream;
@@ -35,32 +42,44 @@ import org.webrtc.RtpSender;
 import org.webrtc.RtpTransceiver;
 import org.webrtc.SdpObserver;
 import org.webrtc.SessionDescription;
-import org.webrtc.SurfaceTextureHelper;
 import org.webrtc.VideoCapturer;
 import org.webrtc.VideoSource;
 import org.webrtc.VideoTrack;
 import org.webrtc.DataChannel;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
+import static jp.shiguredo.react.webrtckit.WebRTCConverter.audioDeviceInfoJsonValue;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.dataChannelBuffer;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.dataChannelInit;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.dataChannelJsonValue;
+import static jp.shiguredo.react.webrtckit.WebRTCConverter.dataChannelStateStringValue;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.iceCandidate;
+import static jp.shiguredo.react.webrtckit.WebRTCConverter.iceCandidateFilterOptions;
+import static jp.shiguredo.react.webrtckit.WebRTCConverter.iceCandidateJsonValue;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.mediaConstraints;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.mediaStreamTrackJsonValue;
+import static jp.shiguredo.react.webrtckit.WebRTCConverter.mediaStreamTrackStateStringValue;
+import static jp.shiguredo.react.webrtckit.WebRTCConverter.mediaTrackSettingsJsonValue;
+import static jp.shiguredo.react.webrtckit.WebRTCConverter.metricsSampleInfoJsonValue;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.rtcConfiguration;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.rtpSenderJsonValue;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.rtpTransceiverDirection;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.rtpTransceiverDirectionStringValue;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.sessionDescription;
+import static jp.shiguredo.react.webrtckit.WebRTCConverter.sessionDescriptionJsonValue;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.toStringList;
+import static jp.shiguredo.react.webrtckit.WebRTCConverter.videoSnapshotJsonValue;
+import static jp.shiguredo.react.webrtckit.WebRTCConverter.videoSnapshotOptions;
 
 @ReactModule(name = "WebRTCModule")
 public class WebRTCModule extends ReactContextBaseJavaModule {
@@ -70,22 +89,76 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     @NonNull
     private final EglBase eglBase;
     @NonNull
+    private final WebRTCAudioDevice audioDevice;
+    @NonNull
     private final PeerConnectionFactory peerConnectionFactory;
     @NonNull
     private final WebRTCCamera cameraCapturer;
+    @NonNull
+    final WebRTCRepository repository = new WebRTCRepository();
+    @NonNull
+    private final WebRTCRemoteVideoAutoPause remoteVideoAutoPause;
+    @NonNull
+    private final WebRTCVideoRendererPool videoRendererPool;
+    @NonNull
+    private final WebRTCAudioLevelMonitor audioLevelMonitor;
+    @NonNull
+    private final WebRTCScheduler scheduler = new WebRTCScheduler();
     /**
-     * XXX: Maybe we should move the surfaceTextureHelper to the WebRTCCamera so that the camera module handles all capturing tasks instead of this module
+     * 破棄するときに、実行中の PeerConnection の処理の完了を待つ時間です。
+     */
+    private static final long SCHEDULER_DISPOSE_TIMEOUT_MS = 2000;
+    /**
+     * Perfect Negotiation を有効にした PeerConnection の valueTag とネゴシエーションの状態です。
      */
     @NonNull
-    private final SurfaceTextureHelper surfaceTextureHelper;
+    private final Map<String, WebRTCPerfectNegotiation> perfectNegotiations = new ConcurrentHashMap<>();
+    /**
+     * PeerConnection の valueTag と、リモートの SDP が設定されるまで ICE candidate を保持するキューです。
+     * キューは PeerConnection の実行キューでのみ使用します。
+     */
     @NonNull
-    final WebRTCRepository repository = new WebRTCRepository();
+    private final Map<String, WebRTCIceCandidateQueue> iceCandidateQueues = new ConcurrentHashMap<>();
+    /**
+     * PeerConnection の valueTag と、生成した ICE candidate を間引いてまとめるフィルタです。
+     * フィルタはシグナリングスレッドの PeerConnection.Observer から使用します。
+     */
+    @NonNull
+    private final Map<String, WebRTCIceCandidateFilter> iceCandidateFilters = new ConcurrentHashMap<>();
+
+    /**
+     * メモリが不足したときに、プールしているレンダラーとフレームバッファを解放します。
+     */
+    @NonNull
+    private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+                trimPools();
+            }
+        }
+
+        @Override
+        public void onLowMemory() {
+            trimPools();
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+            // Do nothing
+        }
+    };
 
     @NonNull public ReactApplicationContext getReactContext() {
         return reactContext;
     }
 
     public WebRTCModule(@NonNull final ReactApplicationContext reactContext) {
+        this(reactContext, new WebRTCAudioDeviceModuleOptions());
+    }
+
+    public WebRTCModule(@NonNull final ReactApplicationContext reactContext,
+                        @NonNull final WebRTCAudioDeviceModuleOptions audioDeviceModuleOptions) {
         super(reactContext);
 
         // PeerConnectionFactory自体を最初に初期化する必要がある
@@ -106,12 +179,17 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         //      RN経由でユーザーから調整可能にしてもよいが、可能であればここで利用可否を判断できるのが望ましい
         this.reactContext = reactContext;
         this.eglBase = EglBase.create();
+        this.audioDevice = new WebRTCAudioDevice(reactContext, audioDeviceModuleOptions);
         this.peerConnectionFactory = PeerConnectionFactory.builder()
+                .setAudioDeviceModule(audioDevice.audioDeviceModule)
                 .setVideoEncoderFactory(new DefaultVideoEncoderFactory(getEglContext(), true, true))
                 .setVideoDecoderFactory(new DefaultVideoDecoderFactory(getEglContext()))
                 .createPeerConnectionFactory();
-        this.cameraCapturer = new WebRTCCamera();
-        this.surfaceTextureHelper = SurfaceTextureHelper.create("WebRTCCameraCaptureThread", getEglContext());
+        this.cameraCapturer = new WebRTCCamera(reactContext, getEglContext());
+        this.remoteVideoAutoPause = new WebRTCRemoteVideoAutoPause(reactContext, repository, scheduler);
+        this.videoRendererPool = new WebRTCVideoRendererPool(getEglContext());
+        this.audioLevelMonitor = new WebRTCAudioLevelMonitor(reactContext, repository, scheduler, audioDevice);
+        reactContext.registerComponentCallbacks(memoryCallbacks);
     }
 
 
@@ -139,17 +217,31 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
          * finishLoading()は古いインスタンスではなく新しいインスタンスで呼び出されてしまい、うまくいかない。
          */
         Log.d(getName(), "onCatalystInstanceDestroy()");
-        cameraCapturer.stopCapture();
+        cameraCapturer.dispose();
+        // 実行中の処理が PeerConnection を使い終わってから破棄する
+        if (!scheduler.dispose(SCHEDULER_DISPOSE_TIMEOUT_MS)) {
+            Log.w(getName(), "onCatalystInstanceDestroy() - scheduler tasks are still running");
+        }
+        perfectNegotiations.clear();
+        iceCandidateQueues.clear();
+        for (final WebRTCIceCandidateFilter filter : iceCandidateFilters.values()) {
+            filter.dispose();
+        }
+        iceCandidateFilters.clear();
+        reactContext.unregisterComponentCallbacks(memoryCallbacks);
+        trimPools();
 
         // PeerConnection.dispose()を実施するとそのPeerConnectionが内部で持っているすべてのオブジェクトを破棄するので、
         // 同時にSender, Receiver, Streamなども適切に破棄される。
+        remoteVideoAutoPause.dispose();
+        audioLevelMonitor.dispose();
         for (final PeerConnection peerConnection : repository.allPeerConnections()) {
             peerConnection.dispose();
         }
         repository.clear();
 
         peerConnectionFactory.dispose();
-        surfaceTextureHelper.dispose();
+        audioDevice.release();
         eglBase.release();
     }
 
@@ -173,6 +265,7 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     public void enableMetrics() {
         Log.d(getName(), "enableMetrics()");
         Metrics.enable();
+        WebRTCModuleMetrics.enable();
     }
 
     /**
@@ -182,20 +275,77 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     public void getAndResetMetrics(@NonNull final Promise promise) {
         Log.d(getName(), "getAndResetMetrics()");
         final Metrics metrics = Metrics.getAndReset();
-        final List<Map<String, Object>> results = new ArrayList<>();
+        final WritableArray results = Arguments.createArray();
         for (final String infoName : metrics.map.keySet()) {
             final Metrics.HistogramInfo info = metrics.map.get(infoName);
-            final Map<String, Object> infoMap = new HashMap<>();
-            infoMap.put("name", infoName);
-            infoMap.put("min", info.min);
-            infoMap.put("max", info.max);
-            infoMap.put("bucketCount", info.bucketCount);
-            infoMap.put("samples", info.samples);
-            results.add(infoMap);
+            results.pushMap(metricsSampleInfoJsonValue(infoName, info.min, info.max, info.bucketCount, info.samples));
+        }
+        // 本モジュール独自のメトリクス
+        for (final WebRTCModuleMetrics.Histogram histogram : WebRTCModuleMetrics.getAndReset()) {
+            results.pushMap(metricsSampleInfoJsonValue(histogram.name, histogram.min, histogram.max,
+                    histogram.bucketCount, histogram.samples));
         }
         promise.resolve(results);
     }
 
+    /**
+     * videoViewGetRenderState(reactTag: number): Promise<Object>
+     * デバッグ用に、 RTCVideoView の描画に関する現在の状態を返します。
+     */
+    @ReactMethod
+    public void videoViewGetRenderState(final int reactTag, @NonNull final Promise promise) {
+        Log.d(getName(), "videoViewGetRenderState() - reactTag=" + reactTag);
+        final UIManagerModule uiManager = reactContext.getNativeModule(UIManagerModule.class);
+        uiManager.addUIBlock(nativeViewHierarchyManager -> {
+            final View view;
+            try {
+                view = nativeViewHierarchyManager.resolveView(reactTag);
+            } catch (RuntimeException e) {
+                promise.reject("NotFoundError", "view is not found", e);
+                return;
+            }
+            if (!(view instanceof WebRTCVideoView)) {
+                promise.reject("NotFoundError", "view is not a RTCVideoView");
+                return;
+            }
+            promise.resolve(((WebRTCVideoView) view).getRenderStateJsonValue());
+        });
+    }
+
+    /**
+     * videoViewGetRenderStats(reactTag: number): Promise<Object | null>
+     * RTCVideoView の描画の統計を返します。統計が有効でない場合は null を返します。
+     */
+    @ReactMethod
+    public void videoViewGetRenderStats(final int reactTag, @NonNull final Promise promise) {
+        Log.d(getName(), "videoViewGetRenderStats() - reactTag=" + reactTag);
+        final UIManagerModule uiManager = reactContext.getNativeModule(UIManagerModule.class);
+        uiManager.addUIBlock(nativeViewHierarchyManager -> {
+            final View view;
+            try {
+                view = nativeViewHierarchyManager.resolveView(reactTag);
+            } catch (RuntimeException e) {
+                promise.reject("NotFoundError", "view is not found", e);
+                return;
+            }
+            if (!(view instanceof WebRTCVideoView)) {
+                promise.reject("NotFoundError", "view is not a RTCVideoView");
+                return;
+            }
+            promise.resolve(((WebRTCVideoView) view).getRenderStatsJsonValue());
+        });
+    }
+
+    /**
+     * getAudioDeviceInfo(): Promise<RTCAudioDeviceInfo>
+     * 音声デバイスの設定と、端末内の推定の遅延を返します。
+     */
+    @ReactMethod
+    public void getAudioDeviceInfo(@NonNull final Promise promise) {
+        Log.d(getName(), "getAudioDeviceInfo()");
+        promise.resolve(audioDeviceInfoJsonValue(audioDevice));
+    }
+
     /**
      * This feature is not supported by the Android SDK.
      * getAudioPort(): Promise<RTCAudioPort>
@@ -223,18 +373,35 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     public void getUserMedia(@Nullable final ReadableMap constraintsJson, @NonNull final Promise promise) {
         Log.d(getName(), "getUserMedia() - constraints=" + constraintsJson);
         final WebRTCMediaStreamConstraints constraints = new WebRTCMediaStreamConstraints(constraintsJson);
+        Log.d(getName(), "getUserMedia() - video=" + constraints.video);
         final boolean isVideoEnabled = (constraints.video != null);
         final boolean isAudioEnabled = (constraints.audio != null);
 
         final WebRTCCameraDeviceCandidate deviceCandidate;
         final VideoCapturer videoCapturer;
-        if (isVideoEnabled) {
+        if (isVideoEnabled && constraints.video.source != null) {
+            // カメラの代わりにテストパターンまたはファイルを映像ソースとして使用する
+            // 以降はカメラと同じく VideoSource / VideoTrack を経由するため、エンコード以降の経路は変わらない
+            try {
+                deviceCandidate = WebRTCCamera.getSourceCandidate(constraints.video, constraints.video.source);
+                videoCapturer = WebRTCCamera.createSourceCapturer(constraints.video.source);
+            } catch (IOException e) {
+                Log.e(getName(), "getUserMedia() - failed to open the video source", e);
+                promise.reject("NotReadableError", e.getMessage());
+                return;
+            }
+        } else if (isVideoEnabled) {
             // カメラとマイクを起動する
             // libwebrtc でカメラを起動すると自動的にマイクも起動される
             // そのため、音声のみ必要な場合でもカメラを起動する必要がある
             deviceCandidate = cameraCapturer.getSuitableDeviceCandidate(constraints.video);
             if (deviceCandidate == null) {
-                promise.reject("NotFoundError", "No suitable camera device is found for the given facing mode.");
+                promise.reject("NotFoundError", "No suitable camera device is found for the given constraints.");
+                return;
+            }
+            // 実行中のキャプチャを止めると、そのトラックが JS に通知されずに止まってしまうため、新しいキャプチャを失敗させる
+            if (!cameraCapturer.canStartCapture(deviceCandidate)) {
+                promise.reject("NotReadableError", "The number of running camera captures reached the limit.");
                 return;
             }
             videoCapturer = cameraCapturer.createCapturer(deviceCandidate);
@@ -251,13 +418,15 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         final MediaStream mediaStream = peerConnectionFactory.createLocalMediaStream(createNewValueTag());
 
         // 映像と音声のトラックをストリームに追加する
+        // キャプチャはトラックごとのセッションで管理し、セッションごとに専用のキャプチャスレッドを持つ
         final VideoSource videoSource = peerConnectionFactory.createVideoSource(videoCapturer.isScreencast());
-        videoCapturer.initialize(surfaceTextureHelper, reactContext, videoSource.getCapturerObserver());
         final VideoTrack videoTrack = peerConnectionFactory.createVideoTrack(createNewValueTag(), videoSource);
+        final String videoTrackValueTag = createNewValueTag();
+        cameraCapturer.createSession(videoTrackValueTag, videoSource, videoCapturer);
         final AudioSource audioSource = peerConnectionFactory.createAudioSource(new MediaConstraints());
         final AudioTrack audioTrack = peerConnectionFactory.createAudioTrack(createNewValueTag(), audioSource);
 
-        repository.tracks.add(videoTrack.id(), createNewValueTag(), videoTrack);
+        repository.tracks.add(videoTrack.id(), videoTrackValueTag, videoTrack);
         repository.tracks.add(audioTrack.id(), createNewValueTag(), audioTrack);
         mediaStream.addTrack(videoTrack);
         mediaStream.addTrack(audioTrack);
@@ -268,10 +437,19 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
 
         // アスペクト比の設定と、カメラデバイスのキャプチャ開始
         // XXX: キャプチャ開始はlocal stream追加まで待ったほうがいいかもしれないけど、ここではiOS版に揃えて即開始します。ダメそうなら待つように実装を修正する。
+        // 同時に実行できるキャプチャ数の上限は、カメラを選んだ時点で確認済み
         if (isVideoEnabled) {
-            repository.setVideoTrackAspectRatio(videoTrack, constraints.video.aspectRatio);
-            cameraCapturer.stopCapture();
-            cameraCapturer.startCapture(videoSource, videoCapturer, deviceCandidate, constraints.video);
+            final double aspectRatio = constraints.video.aspectRatio.preferredValue(-1);
+            repository.setVideoTrackAspectRatio(videoTrack, aspectRatio);
+            repository.setVideoTrackSettings(videoTrack, WebRTCVideoTrackSettings.fromCandidate(deviceCandidate));
+            cameraCapturer.startCapture(videoTrackValueTag, deviceCandidate);
+            // アスペクト比が指定されている場合は、キャプチャフォーマットと異なっていれば出力をクロップする
+            if (aspectRatio > 0) {
+                final WebRTCVideoTrackSettings settings = cameraCapturer.applyConstraints(videoTrackValueTag, constraints.video, aspectRatio);
+                if (settings != null) {
+                    repository.setVideoTrackSettings(videoTrack, settings);
+                }
+            }
         }
 
         // JS に処理を戻す
@@ -290,6 +468,45 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         cameraCapturer.stopCapture();
     }
 
+    /**
+     * setMaxCaptureSessions(value: number)
+     * 同時に実行できるキャプチャの上限を設定します。
+     */
+    @ReactMethod
+    public void setMaxCaptureSessions(int value) {
+        Log.d(getName(), "setMaxCaptureSessions() - value=" + value);
+        cameraCapturer.setMaxRunningSessions(value);
+    }
+
+    /**
+     * getMaxCaptureSessions(): Promise<number>
+     */
+    @ReactMethod
+    public void getMaxCaptureSessions(@NonNull final Promise promise) {
+        Log.d(getName(), "getMaxCaptureSessions()");
+        promise.resolve(cameraCapturer.getMaxRunningSessions());
+    }
+
+    /**
+     * invalidateCameraDeviceCache()
+     * カメラデバイスの列挙結果のキャッシュを破棄し、バックグラウンドで再列挙します。
+     */
+    @ReactMethod
+    public void invalidateCameraDeviceCache() {
+        Log.d(getName(), "invalidateCameraDeviceCache()");
+        cameraCapturer.invalidateDeviceCache();
+    }
+
+    /**
+     * trackStop(valueTag: ValueTag)
+     * 指定されたトラックのキャプチャを停止します。他のトラックのキャプチャには影響しません。
+     */
+    @ReactMethod
+    public void trackStop(@NonNull String valueTag) {
+        Log.d(getName(), "trackStop() - valueTag=" + valueTag);
+        cameraCapturer.stopCapture(valueTag);
+    }
+
     /**
      * trackSetEnabled(valueTag: ValueTag, enabled: boolean)
      */
@@ -298,9 +515,94 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         Log.d(getName(), "trackSetEnabled()");
         final MediaStreamTrack track = repository.tracks.getByValueTag(valueTag);
         if (track == null) return;
+        // 自動で一時停止しているトラックは、一時停止の解除時に反映する
+        if (remoteVideoAutoPause.setEnabledWhilePaused(track.id(), isEnabled)) return;
         track.setEnabled(isEnabled);
     }
 
+    /**
+     * trackStateSync(valueTag: ValueTag): { enabled: boolean, readyState: RTCMediaStreamTrackState } | null
+     * JS のスレッドから同期的に呼び出されます。描画などのたびに呼び出されることを想定し、ログは出力しません。
+     * enabled は現在の出力の可否で、自動で一時停止しているトラックは false になります。
+     * トラックが見つからない、または破棄されている場合は null を返します。
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    @Nullable
+    public WritableMap trackStateSync(@NonNull String valueTag) {
+        final MediaStreamTrack track = repository.tracks.getByValueTag(valueTag);
+        if (track == null) return null;
+        try {
+            final WritableMap result = Arguments.createMap();
+            result.putBoolean("enabled", track.enabled());
+            result.putString("readyState", mediaStreamTrackStateStringValue(track.state()));
+            return result;
+        } catch (IllegalStateException e) {
+            // すでに破棄されたトラック
+            return null;
+        }
+    }
+
+    /**
+     * setRemoteVideoAutoPause(intervalMs: number, mode: string)
+     * どのビューにも描画されていないリモートの映像トラックを、 intervalMs の経過後に一時停止します。
+     * mode は "disable" (トラックを無効にする) または "direction" (トランシーバーの方向から受信を外す) です。
+     * intervalMs が 0 の場合は一時停止しません。
+     */
+    @ReactMethod
+    public void setRemoteVideoAutoPause(double intervalMs, @Nullable String mode) {
+        Log.d(getName(), "setRemoteVideoAutoPause() - intervalMs=" + intervalMs + ", mode=" + mode);
+        remoteVideoAutoPause.configure((long) intervalMs, "direction".equals(mode)
+                ? WebRTCRemoteVideoAutoPause.Mode.CHANGE_DIRECTION
+                : WebRTCRemoteVideoAutoPause.Mode.DISABLE_TRACK);
+    }
+
+    /**
+     * setAudioLevelMonitoring(intervalMs: number, smoothing: number): void
+     * すべての音声トラックの音量を intervalMs ごとに audioLevels イベントで通知します。 intervalMs が 0 の場合は通知を止めます。
+     */
+    @ReactMethod
+    public void setAudioLevelMonitoring(double intervalMs, double smoothing) {
+        Log.d(getName(), "setAudioLevelMonitoring() - intervalMs=" + intervalMs + ", smoothing=" + smoothing);
+        audioLevelMonitor.configure((long) intervalMs, smoothing);
+    }
+
+    /**
+     * setVideoRendererPoolSize(size: number): void
+     * RTCVideoView で再利用するために保持しておくレンダラーの上限を設定します。 0 の場合は再利用しません。
+     */
+    @ReactMethod
+    public void setVideoRendererPoolSize(int size) {
+        Log.d(getName(), "setVideoRendererPoolSize() - size=" + size);
+        UiThreadUtil.runOnUiThread(() -> videoRendererPool.setMaxSize(size));
+    }
+
+    /**
+     * trackSwitchCamera(valueTag: ValueTag, facingModeOrDeviceName: string): Promise<RTCMediaTrackSettings>
+     * VideoSource と VideoTrack を維持したままカメラを切り替えるため、再ネゴシエーションは不要です。
+     */
+    @ReactMethod
+    public void trackSwitchCamera(@NonNull String facingModeOrDeviceName, @NonNull String valueTag, @NonNull Promise promise) {
+        Log.d(getName(), "trackSwitchCamera() - facingModeOrDeviceName=" + facingModeOrDeviceName);
+        final MediaStreamTrack track = repository.tracks.getByValueTag(valueTag);
+        if (!(track instanceof VideoTrack)) {
+            promise.reject("NotFoundError", "video track is not found");
+            return;
+        }
+        final VideoTrack videoTrack = (VideoTrack) track;
+        cameraCapturer.switchCamera(valueTag, facingModeOrDeviceName, new WebRTCCamera.SwitchCameraCallback() {
+            @Override
+            public void onSwitchCameraDone(@NonNull WebRTCVideoTrackSettings settings) {
+                repository.setVideoTrackSettings(videoTrack, settings);
+                promise.resolve(mediaTrackSettingsJsonValue(settings));
+            }
+
+            @Override
+            public void onSwitchCameraError(@NonNull String code, @NonNull String message) {
+                promise.reject(code, message);
+            }
+        });
+    }
+
     /**
      * trackSetAspectRatio(valueTag: ValueTag, aspectRatio: number)
      */
@@ -311,6 +613,105 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         if (!(track instanceof VideoTrack)) return;
         final VideoTrack videoTrack = (VideoTrack) track;
         repository.setVideoTrackAspectRatio(videoTrack, aspectRatio);
+        // キャプチャ中であれば、出力をそのアスペクト比にクロップする
+        final WebRTCVideoTrackSettings settings = cameraCapturer.applyConstraints(valueTag,
+                WebRTCMediaStreamConstraints.Video.EMPTY, aspectRatio);
+        if (settings != null) {
+            repository.setVideoTrackSettings(videoTrack, settings);
+        }
+    }
+
+    /**
+     * trackApplyConstraints(valueTag: ValueTag, constraints: RTCMediaStreamVideoConstraints): Promise<RTCMediaTrackSettings>
+     * キャプチャを止めずに、映像の出力フォーマットを変更します。
+     */
+    @ReactMethod
+    public void trackApplyConstraints(@NonNull ReadableMap constraintsJson, @NonNull String valueTag, @NonNull Promise promise) {
+        Log.d(getName(), "trackApplyConstraints() - constraints=" + constraintsJson);
+        final MediaStreamTrack track = repository.tracks.getByValueTag(valueTag);
+        if (!(track instanceof VideoTrack)) {
+            promise.reject("NotFoundError", "video track is not found");
+            return;
+        }
+        final VideoTrack videoTrack = (VideoTrack) track;
+        if (cameraCapturer.getSession(valueTag) == null) {
+            promise.reject("NotFoundError", "no running capture is found for the track");
+            return;
+        }
+        final WebRTCMediaStreamConstraints.Video video = WebRTCMediaStreamConstraints.Video.fromVideoJson(constraintsJson);
+        double aspectRatio = video.aspectRatio.preferredValue(-1);
+        if (aspectRatio > 0) {
+            repository.setVideoTrackAspectRatio(videoTrack, aspectRatio);
+        } else {
+            aspectRatio = repository.getVideoTrackAspectRatio(videoTrack);
+        }
+        final WebRTCVideoTrackSettings settings = cameraCapturer.applyConstraints(valueTag, video, aspectRatio);
+        if (settings == null) {
+            promise.reject("OverconstrainedError", "the constraints cannot be satisfied");
+            return;
+        }
+        repository.setVideoTrackSettings(videoTrack, settings);
+        promise.resolve(mediaTrackSettingsJsonValue(settings));
+    }
+
+    /**
+     * trackSetVideoProcessors(valueTag: ValueTag, stages: Array<Object>): Promise<void>
+     * キャプチャされたフレームを送信前に加工する処理を設定します。空の配列を与えると処理を解除します。
+     * 各ステージは name で処理を指定し、その他のキーは処理の設定として渡されます。
+     */
+    @ReactMethod
+    public void trackSetVideoProcessors(@NonNull ReadableArray stagesJson, @NonNull String valueTag, @NonNull Promise promise) {
+        Log.d(getName(), "trackSetVideoProcessors() - stages=" + stagesJson);
+        final WebRTCCameraCaptureSession session = cameraCapturer.getSession(valueTag);
+        if (session == null) {
+            promise.reject("NotFoundError", "no capture is found for the track");
+            return;
+        }
+        final List<WebRTCVideoFrameProcessor> processors = new ArrayList<>();
+        for (int i = 0; i < stagesJson.size(); i++) {
+            final ReadableMap stageJson = stagesJson.getMap(i);
+            final String name = stageJson != null ? stageJson.getString("name") : null;
+            final WebRTCVideoFrameProcessor processor = name != null
+                    ? WebRTCVideoFrameProcessorRegistry.create(name, stageJson)
+                    : null;
+            if (processor == null) {
+                promise.reject("NotFoundError", "video processor " + name + " is not found");
+                return;
+            }
+            processors.add(processor);
+        }
+        session.setProcessors(processors);
+        promise.resolve(null);
+    }
+
+    /**
+     * trackSnapshot(valueTag: ValueTag, options: RTCVideoSnapshotOptions): Promise<RTCVideoSnapshot>
+     * 映像トラックの次のフレームを画像にします。変換とエンコードは専用のスレッドで行います。
+     */
+    @ReactMethod
+    public void trackSnapshot(@Nullable ReadableMap optionsJson, @NonNull String valueTag, @NonNull Promise promise) {
+        Log.d(getName(), "trackSnapshot() - options=" + optionsJson);
+        final MediaStreamTrack track = repository.tracks.getByValueTag(valueTag);
+        if (!(track instanceof VideoTrack)) {
+            promise.reject("NotFoundError", "video track is not found");
+            return;
+        }
+        final WebRTCVideoTrackSnapshot snapshot = new WebRTCVideoTrackSnapshot(this,
+                (VideoTrack) track,
+                videoSnapshotOptions(optionsJson),
+                reactContext.getCacheDir(),
+                new WebRTCVideoTrackSnapshot.Callback() {
+                    @Override
+                    public void onSnapshotDone(@NonNull WebRTCVideoTrackSnapshot.Result result) {
+                        promise.resolve(videoSnapshotJsonValue(result));
+                    }
+
+                    @Override
+                    public void onSnapshotError(@NonNull String code, @NonNull String message) {
+                        promise.reject(code, message);
+                    }
+                });
+        snapshot.start();
     }
 
     /**
@@ -361,6 +762,39 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         promise.resolve(rtpTransceiverDirectionStringValue(currentDirection));
     }
 
+    /**
+     * transceiverDirectionSync(valueTag: ValueTag): RTCRtpTransceiverDirection | null
+     * JS のスレッドから同期的に呼び出されます。トランシーバーが見つからない、または破棄されている場合は null を返します。
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    @Nullable
+    public String transceiverDirectionSync(@NonNull String valueTag) {
+        final RtpTransceiver transceiver = repository.transceivers.getByValueTag(valueTag);
+        if (transceiver == null) return null;
+        try {
+            return rtpTransceiverDirectionStringValue(transceiver.getDirection());
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * transceiverCurrentDirectionSync(valueTag: ValueTag): RTCRtpTransceiverDirection | null
+     * JS のスレッドから同期的に呼び出されます。ネゴシエーションが済んでいない場合も null を返します。
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    @Nullable
+    public String transceiverCurrentDirectionSync(@NonNull String valueTag) {
+        final RtpTransceiver transceiver = repository.transceivers.getByValueTag(valueTag);
+        if (transceiver == null) return null;
+        try {
+            final RtpTransceiver.RtpTransceiverDirection currentDirection = transceiver.getCurrentDirection();
+            return currentDirection != null ? rtpTransceiverDirectionStringValue(currentDirection) : null;
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
     /**
      * transceiverStop(valueTag: ValueTag)
      */
@@ -383,19 +817,21 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void peerConnectionInit(@NonNull ReadableMap configurationJson, @Nullable ReadableMap constraintsJson, @NonNull String valueTag) {
         Log.d(getName(), "peerConnectionInit() - valueTag=" + valueTag);
-        final PeerConnection.RTCConfiguration configuration = rtcConfiguration(configurationJson);
-        final WebRTCPeerConnectionObserver observer = new WebRTCPeerConnectionObserver(reactContext);
-        final PeerConnection peerConnection = peerConnectionFactory.createPeerConnection(configuration, observer);
-        if (peerConnection == null) {
-            throw new IllegalStateException("createPeerConnection failed");
-        }
-        final Pair<String, PeerConnection> peerConnectionPair = new Pair<>(valueTag, peerConnection);
-        // observerもrepositoryに保存するようにして、close時に明示的にかつ確実に破棄するようにしたほうが良いかもしれないが、
-        // Java側で明示的に破棄してもしなくても結局はlibwebrtcのobserverのラッパーでしかないため、
-        // libwebrtc側できちんと破棄されればJava側もそのうち適切にGCされて消えることがわかったので、
-        // ひとまずこの状態で大丈夫
-        observer.peerConnectionPair = peerConnectionPair;
-        repository.addPeerConnection(peerConnectionPair);
+        runSerially(valueTag, null, () -> {
+            final PeerConnection.RTCConfiguration configuration = rtcConfiguration(configurationJson);
+            final WebRTCPeerConnectionObserver observer = new WebRTCPeerConnectionObserver(reactContext);
+            final PeerConnection peerConnection = peerConnectionFactory.createPeerConnection(configuration, observer);
+            if (peerConnection == null) {
+                throw new IllegalStateException("createPeerConnection failed");
+            }
+            final Pair<String, PeerConnection> peerConnectionPair = new Pair<>(valueTag, peerConnection);
+            // observerもrepositoryに保存するようにして、close時に明示的にかつ確実に破棄するようにしたほうが良いかもしれないが、
+            // Java側で明示的に破棄してもしなくても結局はlibwebrtcのobserverのラッパーでしかないため、
+            // libwebrtc側できちんと破棄されればJava側もそのうち適切にGCされて消えることがわかったので、
+            // ひとまずこの状態で大丈夫
+            observer.peerConnectionPair = peerConnectionPair;
+            repository.addPeerConnection(peerConnectionPair);
+        });
     }
 
     /**
@@ -404,10 +840,12 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void peerConnectionSetConfiguration(@NonNull ReadableMap configurationJson, @NonNull String valueTag) {
         Log.d(getName(), "peerConnectionSetConfiguration()");
-        final PeerConnection.RTCConfiguration configuration = rtcConfiguration(configurationJson);
-        final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
-        if (peerConnection == null) return;
-        peerConnection.setConfiguration(configuration);
+        runSerially(valueTag, null, () -> {
+            final PeerConnection.RTCConfiguration configuration = rtcConfiguration(configurationJson);
+            final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
+            if (peerConnection == null) return;
+            peerConnection.setConfiguration(configuration);
+        });
     }
 
     /**
@@ -419,26 +857,28 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                                        @NonNull String valueTag,
                                        @NonNull Promise promise) {
         Log.d(getName(), "peerConnectionAddTrack()");
-        final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
-        if (peerConnection == null) {
-            promise.reject("NotFoundError", "peer connection is not found");
-            return;
-        }
-        final MediaStreamTrack track = repository.tracks.getByValueTag(trackValueTag);
-        if (track == null) {
-            promise.reject("NotFoundError", "track is not found");
-            return;
-        }
-        final List<String> streamIdsList = toStringList(streamIds);
-        final RtpSender sender = peerConnection.addTrack(track, streamIdsList);
-        if (sender == null) {
-            promise.reject("PeerConnectionError", "cannot add the track");
-            return;
-        }
-        repository.senders.add(sender.id(), createNewValueTag(), sender);
-        repository.setStreamIdsForSender(sender, streamIdsList);
+        runSerially(valueTag, promise, () -> {
+            final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
+            if (peerConnection == null) {
+                promise.reject("NotFoundError", "peer connection is not found");
+                return;
+            }
+            final MediaStreamTrack track = repository.tracks.getByValueTag(trackValueTag);
+            if (track == null) {
+                promise.reject("NotFoundError", "track is not found");
+                return;
+            }
+            final List<String> streamIdsList = toStringList(streamIds);
+            final RtpSender sender = peerConnection.addTrack(track, streamIdsList);
+            if (sender == null) {
+                promise.reject("PeerConnectionError", "cannot add the track");
+                return;
+            }
+            repository.senders.add(sender.id(), createNewValueTag(), sender);
+            repository.setStreamIdsForSender(sender, streamIdsList);
 
-        promise.resolve(rtpSenderJsonValue(sender, repository));
+            promise.resolve(rtpSenderJsonValue(sender, repository));
+        });
     }
 
     /**
@@ -450,23 +890,25 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                                           @NonNull String valueTag,
                                           @NonNull Promise promise) {
         Log.d(getName(), "peerConnectionRemoveTrack()");
-        final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
-        if (peerConnection == null) {
-            promise.reject("NotFoundError", "peer connection is not found");
-            return;
-        }
-        final RtpSender sender = repository.senders.getByValueTag(senderValueTag);
-        if (sender == null) {
-            promise.reject("NotFoundError", "sender is not found");
-            return;
-        }
+        runSerially(valueTag, promise, () -> {
+            final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
+            if (peerConnection == null) {
+                promise.reject("NotFoundError", "peer connection is not found");
+                return;
+            }
+            final RtpSender sender = repository.senders.getByValueTag(senderValueTag);
+            if (sender == null) {
+                promise.reject("NotFoundError", "sender is not found");
+                return;
+            }
 
-        repository.senders.removeById(sender.id());
-        if (peerConnection.removeTrack(sender)) {
-            promise.resolve(null);
-        } else {
-            promise.reject("RemoveTrackFailed", "cannot remove track");
-        }
+            repository.senders.removeById(sender.id());
+            if (peerConnection.removeTrack(sender)) {
+                promise.resolve(null);
+            } else {
+                promise.reject("RemoveTrackFailed", "cannot remove track");
+            }
+        });
     }
 
     /**
@@ -475,40 +917,40 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void peerConnectionCreateOffer(@NonNull String valueTag, @Nullable ReadableMap constraintsJson, @NonNull Promise promise) {
         Log.d(getName(), "peerConnectionCreateOffer() - valueTag=" + valueTag);
-        final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
-        if (peerConnection == null) {
-            promise.reject("NotFoundError", "peer connection is not found");
-            return;
-        }
-        if (constraintsJson == null) {
-            promise.reject("NotFoundError", "constraints is null");
-            return;
-        }
-        final SdpObserver observer = new SdpObserver() {
-            @Override
-            public void onCreateSuccess(SessionDescription sessionDescription) {
-                final WritableMap result = Arguments.createMap();
-                result.putString("sdp", sessionDescription.description);
-                result.putString("type", sessionDescription.type.canonicalForm());
-                promise.resolve(result);
-            }
-
-            @Override
-            public void onSetSuccess() {
-                promise.reject("FatalError", "this must not be called");
-            }
-
-            @Override
-            public void onCreateFailure(String s) {
-                promise.reject("CreateOfferFailed", s);
+        runSerially(valueTag, promise, () -> {
+            final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
+            if (peerConnection == null) {
+                promise.reject("NotFoundError", "peer connection is not found");
+                return;
             }
-
-            @Override
-            public void onSetFailure(String s) {
-                promise.reject("FatalError", "this must not be called");
+            if (constraintsJson == null) {
+                promise.reject("NotFoundError", "constraints is null");
+                return;
             }
-        };
-        peerConnection.createOffer(observer, mediaConstraints(constraintsJson));
+            final SdpObserver observer = new SdpObserver() {
+                @Override
+                public void onCreateSuccess(SessionDescription sessionDescription) {
+                    // SDP の変換はシグナリングスレッドを塞がないよう共有のスレッドプールで行う
+                    scheduler.execute(() -> promise.resolve(sessionDescriptionJsonValue(sessionDescription)));
+                }
+
+                @Override
+                public void onSetSuccess() {
+                    promise.reject("FatalError", "this must not be called");
+                }
+
+                @Override
+                public void onCreateFailure(String s) {
+                    promise.reject("CreateOfferFailed", s);
+                }
+
+                @Override
+                public void onSetFailure(String s) {
+                    promise.reject("FatalError", "this must not be called");
+                }
+            };
+            peerConnection.createOffer(observer, mediaConstraints(constraintsJson));
+        });
     }
 
     /**
@@ -517,40 +959,40 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void peerConnectionCreateAnswer(@NonNull String valueTag, @Nullable ReadableMap constraintsJson, @NonNull Promise promise) {
         Log.d(getName(), "peerConnectionCreateAnswer()");
-        final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
-        if (peerConnection == null) {
-            promise.reject("NotFoundError", "peer connection is not found");
-            return;
-        }
-        if (constraintsJson == null) {
-            promise.reject("NotFoundError", "constraints is null");
-            return;
-        }
-        final SdpObserver observer = new SdpObserver() {
-            @Override
-            public void onCreateSuccess(SessionDescription sessionDescription) {
-                final WritableMap result = Arguments.createMap();
-                result.putString("sdp", sessionDescription.description);
-                result.putString("type", sessionDescription.type.canonicalForm());
-                promise.resolve(result);
-            }
-
-            @Override
-            public void onSetSuccess() {
-                promise.reject("FatalError", "this must not be called");
-            }
-
-            @Override
-            public void onCreateFailure(String s) {
-                promise.reject("CreateOfferFailed", s);
+        runSerially(valueTag, promise, () -> {
+            final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
+            if (peerConnection == null) {
+                promise.reject("NotFoundError", "peer connection is not found");
+                return;
             }
-
-            @Override
-            public void onSetFailure(String s) {
-                promise.reject("FatalError", "this must not be called");
+            if (constraintsJson == null) {
+                promise.reject("NotFoundError", "constraints is null");
+                return;
             }
-        };
-        peerConnection.createAnswer(observer, mediaConstraints(constraintsJson));
+            final SdpObserver observer = new SdpObserver() {
+                @Override
+                public void onCreateSuccess(SessionDescription sessionDescription) {
+                    // SDP の変換はシグナリングスレッドを塞がないよう共有のスレッドプールで行う
+                    scheduler.execute(() -> promise.resolve(sessionDescriptionJsonValue(sessionDescription)));
+                }
+
+                @Override
+                public void onSetSuccess() {
+                    promise.reject("FatalError", "this must not be called");
+                }
+
+                @Override
+                public void onCreateFailure(String s) {
+                    promise.reject("CreateOfferFailed", s);
+                }
+
+                @Override
+                public void onSetFailure(String s) {
+                    promise.reject("FatalError", "this must not be called");
+                }
+            };
+            peerConnection.createAnswer(observer, mediaConstraints(constraintsJson));
+        });
     }
 
     /**
@@ -559,83 +1001,306 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void peerConnectionSetLocalDescription(@NonNull ReadableMap sdpJson, @NonNull String valueTag, @NonNull Promise promise) {
         Log.d(getName(), "peerConnectionSetLocalDescription()");
-        final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
-        if (peerConnection == null) {
-            promise.reject("NotFoundError", "peer connection is not found");
-            return;
-        }
-        final SdpObserver observer = new SdpObserver() {
-            @Override
-            public void onCreateSuccess(SessionDescription sessionDescription) {
-                promise.reject("FatalError", "this must not be called");
+        runSerially(valueTag, promise, () -> {
+            final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
+            if (peerConnection == null) {
+                promise.reject("NotFoundError", "peer connection is not found");
+                return;
             }
+            final SdpObserver observer = new SdpObserver() {
+                @Override
+                public void onCreateSuccess(SessionDescription sessionDescription) {
+                    promise.reject("FatalError", "this must not be called");
+                }
+
+                @Override
+                public void onSetSuccess() {
+                    promise.resolve(null);
+                }
+
+                @Override
+                public void onCreateFailure(String s) {
+                    promise.reject("FatalError", "this must not be called");
+                }
+
+                @Override
+                public void onSetFailure(String s) {
+                    promise.reject("SetLocalDescriptionFailed", s);
+                }
+            };
+            peerConnection.setLocalDescription(observer, sessionDescription(sdpJson));
+        });
+    }
 
-            @Override
-            public void onSetSuccess() {
-                promise.resolve(null);
+    /**
+     * peerConnectionSetRemoteDescription(valueTag: ValueTag, sdp: RTCSessionDescription): Promise<void>
+     */
+    @ReactMethod
+    public void peerConnectionSetRemoteDescription(@NonNull ReadableMap sdpJson, @NonNull String valueTag, @NonNull Promise promise) {
+        Log.d(getName(), "peerConnectionSetRemoteDescription()");
+        runSerially(valueTag, promise, () -> {
+            final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
+            if (peerConnection == null) {
+                promise.reject("NotFoundError", "peer connection is not found");
+                return;
             }
+            final Executor executor = scheduler.executorFor(valueTag);
+            final WebRTCIceCandidateQueue iceCandidateQueue = iceCandidateQueueFor(valueTag, peerConnection);
+            iceCandidateQueue.beginRemoteDescription();
+            final SdpObserver observer = new SdpObserver() {
+                @Override
+                public void onCreateSuccess(SessionDescription sessionDescription) {
+                    promise.reject("FatalError", "this must not be called");
+                }
+
+                @Override
+                public void onSetSuccess() {
+                    // 保持している ICE candidate を追加してから解決する
+                    executor.execute(() -> {
+                        iceCandidateQueue.endRemoteDescription();
+                        promise.resolve(null);
+                    });
+                }
+
+                @Override
+                public void onCreateFailure(String s) {
+                    promise.reject("FatalError", "this must not be called");
+                }
+
+                @Override
+                public void onSetFailure(String s) {
+                    executor.execute(iceCandidateQueue::endRemoteDescription);
+                    promise.reject("SetRemoteDescriptionFailed", s);
+                }
+            };
+            peerConnection.setRemoteDescription(observer, sessionDescription(sdpJson));
+        });
+    }
 
-            @Override
-            public void onCreateFailure(String s) {
-                promise.reject("FatalError", "this must not be called");
+    /**
+     * peerConnectionOfferAndSetLocal(valueTag: ValueTag, constraints: RTCMediaConstraints): Promise<RTCSessionDescription>
+     * Offer の生成とローカルの SDP の設定をネイティブで続けて行い、設定したローカルの SDP を返します。
+     */
+    @ReactMethod
+    public void peerConnectionOfferAndSetLocal(@NonNull String valueTag, @Nullable ReadableMap constraintsJson, @NonNull Promise promise) {
+        Log.d(getName(), "peerConnectionOfferAndSetLocal() - valueTag=" + valueTag);
+        runSerially(valueTag, promise, () -> {
+            final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
+            if (peerConnection == null) {
+                promise.reject("NotFoundError", "peer connection is not found");
+                return;
             }
-
-            @Override
-            public void onSetFailure(String s) {
-                promise.reject("SetLocalDescriptionFailed", s);
+            if (constraintsJson == null) {
+                promise.reject("NotFoundError", "constraints is null");
+                return;
             }
-        };
-        peerConnection.setLocalDescription(observer, sessionDescription(sdpJson));
+            WebRTCSdpPipeline.offerAndSetLocal(peerConnection, mediaConstraints(constraintsJson), sdpPipelineCallback(promise));
+        });
     }
 
     /**
-     * peerConnectionSetRemoteDescription(valueTag: ValueTag, sdp: RTCSessionDescription): Promise<void>
+     * peerConnectionAnswerRemoteAndSetLocal(valueTag: ValueTag, sdp: RTCSessionDescription, constraints: RTCMediaConstraints): Promise<RTCSessionDescription>
+     * リモートの SDP の設定、 Answer の生成、ローカルの SDP の設定をネイティブで続けて行い、設定したローカルの SDP を返します。
      */
     @ReactMethod
-    public void peerConnectionSetRemoteDescription(@NonNull ReadableMap sdpJson, @NonNull String valueTag, @NonNull Promise promise) {
-        Log.d(getName(), "peerConnectionSetRemoteDescription()");
-        final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
-        if (peerConnection == null) {
-            promise.reject("NotFoundError", "peer connection is not found");
-            return;
-        }
-        final SdpObserver observer = new SdpObserver() {
-            @Override
-            public void onCreateSuccess(SessionDescription sessionDescription) {
-                promise.reject("FatalError", "this must not be called");
+    public void peerConnectionAnswerRemoteAndSetLocal(@NonNull ReadableMap sdpJson,
+                                                      @Nullable ReadableMap constraintsJson,
+                                                      @NonNull String valueTag,
+                                                      @NonNull Promise promise) {
+        Log.d(getName(), "peerConnectionAnswerRemoteAndSetLocal() - valueTag=" + valueTag);
+        runSerially(valueTag, promise, () -> {
+            final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
+            if (peerConnection == null) {
+                promise.reject("NotFoundError", "peer connection is not found");
+                return;
             }
+            if (constraintsJson == null) {
+                promise.reject("NotFoundError", "constraints is null");
+                return;
+            }
+            final Executor executor = scheduler.executorFor(valueTag);
+            final WebRTCIceCandidateQueue iceCandidateQueue = iceCandidateQueueFor(valueTag, peerConnection);
+            final WebRTCSdpPipeline.Callback callback = sdpPipelineCallback(promise);
+            iceCandidateQueue.beginRemoteDescription();
+            WebRTCSdpPipeline.answerRemoteAndSetLocal(peerConnection, sessionDescription(sdpJson),
+                    mediaConstraints(constraintsJson), new WebRTCSdpPipeline.Callback() {
+                        @Override
+                        public void onSuccess(@NonNull SessionDescription localDescription) {
+                            executor.execute(() -> {
+                                iceCandidateQueue.endRemoteDescription();
+                                callback.onSuccess(localDescription);
+                            });
+                        }
+
+                        @Override
+                        public void onFailure(@NonNull String code, @Nullable String message) {
+                            executor.execute(iceCandidateQueue::endRemoteDescription);
+                            callback.onFailure(code, message);
+                        }
+                    });
+        });
+    }
 
-            @Override
-            public void onSetSuccess() {
-                promise.resolve(null);
+    /**
+     * peerConnectionSetPerfectNegotiation(valueTag: ValueTag, enabled: boolean, polite: boolean)
+     * 有効にすると、再ネゴシエーションを peerConnectionShouldNegotiate イベントを送らずにネイティブで行います。
+     * 送信する SDP は peerConnectionNegotiationSendDescription イベントで通知します。
+     */
+    @ReactMethod
+    public void peerConnectionSetPerfectNegotiation(boolean enabled, boolean polite, @NonNull String valueTag) {
+        Log.d(getName(), "peerConnectionSetPerfectNegotiation() - valueTag=" + valueTag + ", enabled=" + enabled + ", polite=" + polite);
+        runSerially(valueTag, null, () -> {
+            final WebRTCPerfectNegotiation oldNegotiation = perfectNegotiations.remove(valueTag);
+            if (oldNegotiation != null) {
+                oldNegotiation.dispose();
+            }
+            if (!enabled) {
+                return;
             }
+            final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
+            if (peerConnection == null) {
+                return;
+            }
+            final WebRTCPerfectNegotiation negotiation = new WebRTCPerfectNegotiation(peerConnection,
+                    scheduler.executorFor(valueTag), iceCandidateQueueFor(valueTag, peerConnection),
+                    polite, new WebRTCPerfectNegotiation.Listener() {
+                @Override
+                public void onSendDescription(@NonNull SessionDescription description) {
+                    final WritableMap params = Arguments.createMap();
+                    params.putString("valueTag", valueTag);
+                    params.putMap("description", sessionDescriptionJsonValue(description));
+                    sendDeviceEvent("peerConnectionNegotiationSendDescription", params);
+                }
+
+                @Override
+                public void onError(@NonNull String code, @Nullable String message) {
+                    Log.d(getName(), "perfect negotiation failed - valueTag=" + valueTag + ", " + code + " " + message);
+                    final WritableMap params = Arguments.createMap();
+                    params.putString("valueTag", valueTag);
+                    params.putString("code", code);
+                    params.putString("message", message);
+                    sendDeviceEvent("peerConnectionNegotiationError", params);
+                }
+            });
+            perfectNegotiations.put(valueTag, negotiation);
+        });
+    }
 
-            @Override
-            public void onCreateFailure(String s) {
-                promise.reject("FatalError", "this must not be called");
+    /**
+     * peerConnectionNegotiationReceiveDescription(valueTag: ValueTag, sdp: RTCSessionDescription): Promise<boolean>
+     * 相手から受け取った SDP を Perfect Negotiation の手順で適用します。 Offer の衝突により無視した場合は false を返します。
+     */
+    @ReactMethod
+    public void peerConnectionNegotiationReceiveDescription(@NonNull ReadableMap sdpJson,
+                                                            @NonNull String valueTag,
+                                                            @NonNull Promise promise) {
+        Log.d(getName(), "peerConnectionNegotiationReceiveDescription() - valueTag=" + valueTag);
+        runSerially(valueTag, promise, () -> {
+            final WebRTCPerfectNegotiation negotiation = perfectNegotiations.get(valueTag);
+            if (negotiation == null) {
+                promise.reject("InvalidStateError", "perfect negotiation is not enabled");
+                return;
             }
+            negotiation.receiveDescription(sessionDescription(sdpJson), perfectNegotiationCompletion(promise));
+        });
+    }
 
-            @Override
-            public void onSetFailure(String s) {
-                promise.reject("SetRemoteDescriptionFailed", s);
+    /**
+     * peerConnectionNegotiationReceiveCandidate(valueTag: ValueTag, candidate: RTCIceCandidate): Promise<boolean>
+     * 相手から受け取った ICE candidate を追加します。無視した Offer に対応する ICE candidate の場合は false を返します。
+     */
+    @ReactMethod
+    public void peerConnectionNegotiationReceiveCandidate(@NonNull ReadableMap iceCandidateJson,
+                                                          @NonNull String valueTag,
+                                                          @NonNull Promise promise) {
+        Log.d(getName(), "peerConnectionNegotiationReceiveCandidate() - valueTag=" + valueTag);
+        runSerially(valueTag, promise, () -> {
+            final WebRTCPerfectNegotiation negotiation = perfectNegotiations.get(valueTag);
+            if (negotiation == null) {
+                promise.reject("InvalidStateError", "perfect negotiation is not enabled");
+                return;
             }
-        };
-        peerConnection.setRemoteDescription(observer, sessionDescription(sdpJson));
+            negotiation.receiveCandidate(iceCandidate(iceCandidateJson), perfectNegotiationCompletion(promise));
+        });
     }
 
     /**
      * peerConnectionAddICECandidate(valueTag: ValueTag, candidate: RTCIceCandidate): Promise<void>
+     * リモートの SDP が設定される前の candidate は、設定が成功するまでネイティブで保持し、追加を試みてから解決します。
      */
     @ReactMethod
     public void peerConnectionAddICECandidate(@NonNull ReadableMap iceCandidateJson, @NonNull String valueTag, @NonNull Promise promise) {
         Log.d(getName(), "peerConnectionAddICECandidate()");
-        final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
-        if (peerConnection == null) {
-            promise.reject("NotFoundError", "peer connection is not found");
-            return;
-        }
-        peerConnection.addIceCandidate(iceCandidate(iceCandidateJson));
-        promise.resolve(null);
+        runSerially(valueTag, promise, () -> {
+            final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
+            if (peerConnection == null) {
+                promise.reject("NotFoundError", "peer connection is not found");
+                return;
+            }
+            addIceCandidates(iceCandidateQueueFor(valueTag, peerConnection),
+                    Collections.singletonList(iceCandidate(iceCandidateJson)), promise);
+        });
+    }
+
+    /**
+     * peerConnectionAddICECandidates(valueTag: ValueTag, candidates: Array<RTCIceCandidate>): Promise<void>
+     * 複数の candidate を 1 回の呼び出しで追加します。
+     */
+    @ReactMethod
+    public void peerConnectionAddICECandidates(@NonNull ReadableArray iceCandidatesJson, @NonNull String valueTag, @NonNull Promise promise) {
+        Log.d(getName(), "peerConnectionAddICECandidates() - count=" + iceCandidatesJson.size());
+        runSerially(valueTag, promise, () -> {
+            final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
+            if (peerConnection == null) {
+                promise.reject("NotFoundError", "peer connection is not found");
+                return;
+            }
+            final List<IceCandidate> iceCandidates = new ArrayList<>();
+            for (int i = 0; i < iceCandidatesJson.size(); i++) {
+                final ReadableMap iceCandidateJson = iceCandidatesJson.getMap(i);
+                if (iceCandidateJson != null) {
+                    iceCandidates.add(iceCandidate(iceCandidateJson));
+                }
+            }
+            addIceCandidates(iceCandidateQueueFor(valueTag, peerConnection), iceCandidates, promise);
+        });
+    }
+
+    /**
+     * peerConnectionSetIceCandidateFilter(valueTag: ValueTag, options: RTCIceCandidateFilterOptions | null)
+     * 生成した ICE candidate を条件に従って間引き、 batchInterval が指定されていれば
+     * peerConnectionGotICECandidates イベントでまとめて通知します。 null を指定するとフィルタを解除します。
+     */
+    @ReactMethod
+    public void peerConnectionSetIceCandidateFilter(@Nullable ReadableMap optionsJson, @NonNull String valueTag) {
+        Log.d(getName(), "peerConnectionSetIceCandidateFilter() - valueTag=" + valueTag + ", options=" + optionsJson);
+        runSerially(valueTag, null, () -> {
+            final WebRTCIceCandidateFilter oldFilter = iceCandidateFilters.remove(valueTag);
+            if (oldFilter != null) {
+                // まとめていた candidate は捨てずに通知する
+                oldFilter.flush();
+                oldFilter.dispose();
+            }
+            if (optionsJson == null) {
+                return;
+            }
+            final WebRTCIceCandidateFilter.Options options = iceCandidateFilterOptions(optionsJson);
+            iceCandidateFilters.put(valueTag, new WebRTCIceCandidateFilter(options, candidates -> {
+                final WritableMap params = Arguments.createMap();
+                params.putString("valueTag", valueTag);
+                if (options.batchIntervalMs > 0) {
+                    final WritableArray candidatesJson = Arguments.createArray();
+                    for (final IceCandidate candidate : candidates) {
+                        candidatesJson.pushMap(iceCandidateJsonValue(candidate));
+                    }
+                    params.putArray("candidates", candidatesJson);
+                    sendDeviceEvent("peerConnectionGotICECandidates", params);
+                } else {
+                    params.putMap("candidate", iceCandidateJsonValue(candidates.get(0)));
+                    sendDeviceEvent("peerConnectionGotICECandidate", params);
+                }
+            }));
+        });
     }
 
     /**
@@ -644,14 +1309,29 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void peerConnectionClose(@NonNull String valueTag) {
         Log.d(getName(), "peerConnectionClose() - valueTag=" + valueTag);
-        final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
-        if (peerConnection == null) {
-            return;
-        }
-        repository.removePeerConnectionByValueTag(valueTag);
-        peerConnection.dispose();
+        runSerially(valueTag, null, () -> {
+            // 実行キューはこの処理を最後に使わなくなる
+            scheduler.remove(valueTag);
+            final WebRTCPerfectNegotiation negotiation = perfectNegotiations.remove(valueTag);
+            if (negotiation != null) {
+                negotiation.dispose();
+            }
+            final WebRTCIceCandidateQueue iceCandidateQueue = iceCandidateQueues.remove(valueTag);
+            if (iceCandidateQueue != null) {
+                iceCandidateQueue.clear();
+            }
+            final WebRTCIceCandidateFilter iceCandidateFilter = iceCandidateFilters.remove(valueTag);
+            if (iceCandidateFilter != null) {
+                iceCandidateFilter.dispose();
+            }
+            final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
+            if (peerConnection == null) {
+                return;
+            }
+            repository.removePeerConnectionByValueTag(valueTag);
+            peerConnection.dispose();
+        });
     }
-
     /**
      * rtpEncodingParametersSetActive(owner: ValueTag, ssrc: number | null, flag: boolean)
      */
@@ -697,64 +1377,289 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void peerConnectionCreateDataChannel(@NonNull String label, @Nullable ReadableMap initJson, @NonNull String valueTag, @NonNull Promise promise) {
         Log.d(getName(), "peerConnectionCreateDataChannel()");
-        final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
-        if (peerConnection == null) {
-            promise.reject("NotFoundError", "peer connection is not found");
-            return;
-        }
-        final DataChannel dataChannel = peerConnection.createDataChannel(label, dataChannelInit(initJson));
-        if (dataChannel == null) {
-            promise.reject("FatalError", "createDataChannel failed");
-            return;
-        }
-        // observer を登録する
-        final String dataChannelValueTag = createNewValueTag();
-        final WebRTCDataChannelObserver observer = new WebRTCDataChannelObserver(reactContext);
-        final Pair<String, DataChannel> dataChannelPair = new Pair<>(dataChannelValueTag, dataChannel);
-        observer.dataChannelPair = dataChannelPair;
-        dataChannel.registerObserver(observer);
-        repository.addDataChannel(dataChannelPair);
-        Log.d(getName(), "peerConnectionCreateDataChannel()" + dataChannelJsonValue(dataChannel, dataChannelValueTag));
-        promise.resolve(dataChannelJsonValue(dataChannel, dataChannelValueTag));
+        runSerially(valueTag, promise, () -> {
+            final PeerConnection peerConnection = repository.getPeerConnectionByValueTag(valueTag);
+            if (peerConnection == null) {
+                promise.reject("NotFoundError", "peer connection is not found");
+                return;
+            }
+            final DataChannel dataChannel = peerConnection.createDataChannel(label, dataChannelInit(initJson));
+            if (dataChannel == null) {
+                promise.reject("FatalError", "createDataChannel failed");
+                return;
+            }
+            // observer を登録する
+            final String dataChannelValueTag = createNewValueTag();
+            final WebRTCDataChannelObserver observer = new WebRTCDataChannelObserver(reactContext);
+            final Pair<String, DataChannel> dataChannelPair = new Pair<>(dataChannelValueTag, dataChannel);
+            observer.dataChannelPair = dataChannelPair;
+            dataChannel.registerObserver(observer);
+            repository.addDataChannel(dataChannelPair);
+            Log.d(getName(), "peerConnectionCreateDataChannel()" + dataChannelJsonValue(dataChannel, dataChannelValueTag));
+            promise.resolve(dataChannelJsonValue(dataChannel, dataChannelValueTag));
+        });
     }
 
     /**
      * dataChannelClose(valueTag: ValueTag)
      * XXX(kdxu): PeerConnection.close() と統一性をもたせるため、こちらは同期メソッドとする
+     * 送信の後に閉じるよう、送信と同じ DataChannel の実行キューで実行する
      */
     @ReactMethod
     public void dataChannelClose(@NonNull String valueTag) {
         Log.d(getName(), "dataChannelClose() - valueTag=" + valueTag);
-        final DataChannel dataChannel = repository.getDataChannelByValueTag(valueTag);
-        if (dataChannel == null) {
-            return;
-        }
-        // dataChannel の state が open でないときは実行しない
-        if (dataChannel.state() != DataChannel.State.OPEN) {
-          return;
-        }
-        dataChannel.close();
+        runSerially(valueTag, null, () -> {
+            scheduler.remove(valueTag);
+            final DataChannel dataChannel = repository.getDataChannelByValueTag(valueTag);
+            if (dataChannel == null) {
+                return;
+            }
+            // dataChannel の state が open でないときは実行しない
+            if (dataChannel.state() != DataChannel.State.OPEN) {
+              return;
+            }
+            dataChannel.close();
+        });
     }
 
     /**
      * dataChannelSend(buffer: ReadableMap, valueTag: ValueTag): Promise<void>
+     * バイナリの Base64 のデコードをネイティブモジュールのスレッドで行わないよう、 DataChannel ごとの実行キューで順に送信する
      */
     @ReactMethod
     public void dataChannelSend(@NonNull ReadableMap sendBufferJson, @NonNull String valueTag, @NonNull Promise promise) {
         Log.d(getName(), "dataChannelSend() - valueTag=" + valueTag + " sendBufferJson=" + sendBufferJson);
+        runSerially(valueTag, promise, () -> {
+            final DataChannel dataChannel = repository.getDataChannelByValueTag(valueTag);
+            if (dataChannel == null) {
+                promise.reject("NotFoundError", "dataChannel is not found");
+                return;
+            }
+            final DataChannel.Buffer buffer = dataChannelBuffer(sendBufferJson);
+            dataChannel.send(buffer);
+            promise.resolve(null);
+        });
+    }
+
+    /**
+     * dataChannelStateSync(valueTag: ValueTag): { readyState: RTCDataChannelState, bufferedAmount: number } | null
+     * JS のスレッドから同期的に呼び出されます。送信のフロー制御のたびに呼び出されることを想定し、ログは出力しません。
+     * DataChannel が見つからない、または破棄されている場合は null を返します。
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    @Nullable
+    public WritableMap dataChannelStateSync(@NonNull String valueTag) {
         final DataChannel dataChannel = repository.getDataChannelByValueTag(valueTag);
-        if (dataChannel == null) {
-            promise.reject("NotFoundError", "dataChannel is not found");
-            return;
+        if (dataChannel == null) return null;
+        try {
+            final WritableMap result = Arguments.createMap();
+            result.putString("readyState", dataChannelStateStringValue(dataChannel.state()));
+            // putLong() が存在しないため double で返す
+            result.putDouble("bufferedAmount", dataChannel.bufferedAmount());
+            return result;
+        } catch (IllegalStateException e) {
+            return null;
         }
-        final DataChannel.Buffer buffer = dataChannelBuffer(sendBufferJson);
-        dataChannel.send(buffer);
-        promise.resolve(null);
+    }
+
+    /**
+     * executeBatch(commands: Array<{ method: string, args: Array<any> }>): Promise<Array<any>>
+     * 複数の操作を 1 回の呼び出しで順に実行し、すべての結果を 1 つの配列で返します。
+     * 最初に失敗した操作で止まり、その操作の番号を含むエラーで reject します。
+     */
+    @ReactMethod
+    public void executeBatch(@NonNull ReadableArray commands, @NonNull Promise promise) {
+        Log.d(getName(), "executeBatch() - size=" + commands.size());
+        new WebRTCCommandBatch(this, commands, promise).start();
     }
 
     //endregion
 
 
+    /**
+     * SDP の処理の結果で promise を解決します。 SDP の変換はシグナリングスレッドを塞がないよう共有のスレッドプールで行います。
+     */
+    @NonNull
+    private WebRTCSdpPipeline.Callback sdpPipelineCallback(@NonNull final Promise promise) {
+        return new WebRTCSdpPipeline.Callback() {
+            @Override
+            public void onSuccess(@NonNull SessionDescription localDescription) {
+                scheduler.execute(() -> promise.resolve(sessionDescriptionJsonValue(localDescription)));
+            }
+
+            @Override
+            public void onFailure(@NonNull String code, @Nullable String message) {
+                promise.reject(code, message);
+            }
+        };
+    }
+
+    /**
+     * PeerConnection の ICE candidate のキューを返します。実行キューから呼び出してください。
+     */
+    @NonNull
+    private WebRTCIceCandidateQueue iceCandidateQueueFor(@NonNull final String valueTag,
+                                                         @NonNull final PeerConnection peerConnection) {
+        WebRTCIceCandidateQueue queue = iceCandidateQueues.get(valueTag);
+        if (queue == null) {
+            queue = new WebRTCIceCandidateQueue(peerConnection);
+            iceCandidateQueues.put(valueTag, queue);
+        }
+        return queue;
+    }
+
+    /**
+     * candidate を追加し、すべて追加できたら promise を解決します。実行キューから呼び出してください。
+     * PeerConnection が受け付けなかった場合は OperationError 、追加する前に閉じられた場合は InvalidStateError で失敗します。
+     * 失敗した後の candidate も追加は試みます。
+     */
+    private void addIceCandidates(@NonNull final WebRTCIceCandidateQueue iceCandidateQueue,
+                                  @NonNull final List<IceCandidate> iceCandidates,
+                                  @NonNull final Promise promise) {
+        if (iceCandidates.isEmpty()) {
+            promise.resolve(null);
+            return;
+        }
+        // 通知はすべて実行キューで行われるため、同期は不要
+        final int[] pendingCount = {iceCandidates.size()};
+        final boolean[] isSettled = {false};
+        for (final IceCandidate iceCandidate : iceCandidates) {
+            iceCandidateQueue.add(iceCandidate, result -> {
+                if (isSettled[0]) {
+                    return;
+                }
+                switch (result) {
+                    case ADDED:
+                        if (--pendingCount[0] == 0) {
+                            isSettled[0] = true;
+                            promise.resolve(null);
+                        }
+                        break;
+                    case FAILED:
+                        Log.d(getName(), "addIceCandidates() - cannot add the candidate: " + iceCandidate.sdp);
+                        isSettled[0] = true;
+                        promise.reject("OperationError", "cannot add the candidate: " + iceCandidate.sdp);
+                        break;
+                    default:
+                        isSettled[0] = true;
+                        promise.reject("InvalidStateError", "peer connection is closed");
+                        break;
+                }
+            });
+        }
+    }
+
+    @NonNull
+    private WebRTCPerfectNegotiation.Completion perfectNegotiationCompletion(@NonNull final Promise promise) {
+        return new WebRTCPerfectNegotiation.Completion() {
+            @Override
+            public void onComplete(boolean isApplied) {
+                promise.resolve(isApplied);
+            }
+
+            @Override
+            public void onError(@NonNull String code, @Nullable String message) {
+                promise.reject(code, message);
+            }
+        };
+    }
+
+    /**
+     * ICE candidate のフィルタを設定していれば、そのフィルタを返します。
+     */
+    @Nullable
+    WebRTCIceCandidateFilter getIceCandidateFilter(@NonNull final String valueTag) {
+        return iceCandidateFilters.get(valueTag);
+    }
+
+    /**
+     * Perfect Negotiation を有効にしていれば、その状態を返します。
+     */
+    @Nullable
+    WebRTCPerfectNegotiation getPerfectNegotiation(@NonNull final String valueTag) {
+        return perfectNegotiations.get(valueTag);
+    }
+
+    private void sendDeviceEvent(@NonNull final String eventName, @NonNull final WritableMap params) {
+        reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(eventName, params);
+    }
+
+    /**
+     * PeerConnection または DataChannel への処理を、その valueTag の実行キューで呼び出された順に実行します。
+     * 処理中に例外が発生した場合、 promise があれば reject します。
+     */
+    private void runSerially(@NonNull final String valueTag,
+                                          @Nullable final Promise promise,
+                                          @NonNull final Runnable task) {
+        scheduler.executorFor(valueTag).execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.e(getName(), "runSerially() - valueTag=" + valueTag, e);
+                if (promise != null) {
+                    promise.reject("FatalError", e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * マイクの PCM サンプルを受け取るタップを登録します。ホストアプリケーションの Java から使用します。
+     * 任意のスレッドから呼び出せます。
+     *
+     * @param capacity リングバッファに保持するサンプル数。 {@link WebRTCAudioSampleRingBuffer#MAX_CAPACITY} 以下を指定してください
+     * @throws IllegalArgumentException capacity が上限を超える場合
+     */
+    @NonNull
+    public WebRTCAudioSampleTap addMicrophoneSampleTap(final int capacity) {
+        final WebRTCAudioSampleTap tap = new WebRTCAudioSampleTap(capacity);
+        audioDevice.addSamplesReadyCallback(tap);
+        return tap;
+    }
+
+    /**
+     * 登録したタップを解除します。任意のスレッドから呼び出せます。
+     */
+    public void removeMicrophoneSampleTap(@NonNull final WebRTCAudioSampleTap tap) {
+        audioDevice.removeSamplesReadyCallback(tap);
+    }
+
+    /**
+     * リモートの映像トラックを受信したときに呼び出します。任意のスレッドから呼び出せます。
+     */
+    void onRemoteVideoTrackAdded(@NonNull final VideoTrack videoTrack) {
+        remoteVideoAutoPause.onRemoteVideoTrackAdded(videoTrack.id());
+    }
+
+    /**
+     * ビューが映像トラックにシンクを付けたときに呼び出します。任意のスレッドから呼び出せます。
+     */
+    void onVideoSinkAdded(@NonNull final VideoTrack videoTrack) {
+        remoteVideoAutoPause.onVideoSinkAdded(videoTrack.id());
+    }
+
+    /**
+     * ビューが映像トラックからシンクを外したときに呼び出します。任意のスレッドから呼び出せます。
+     */
+    void onVideoSinkRemoved(@NonNull final VideoTrack videoTrack) {
+        remoteVideoAutoPause.onVideoSinkRemoved(videoTrack.id());
+    }
+
+    /**
+     * RTCVideoView が使用するレンダラーのプールです。メインスレッドでのみ使用してください。
+     */
+    @NonNull
+    WebRTCVideoRendererPool getVideoRendererPool() {
+        return videoRendererPool;
+    }
+
+    private void trimPools() {
+        Log.d(getName(), "trimPools()");
+        UiThreadUtil.runOnUiThread(videoRendererPool::trim);
+        WebRTCVideoFrameBufferPool.getShared().trim();
+    }
+
     @NonNull
     EglBase.Context getEglContext() {
         return eglBase.getEglBaseContext();
@@ -0,0 +1,115 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本モジュール独自のメトリクスを、 libwebrtc の Metrics と同じ形式のヒストグラムとして集計します。
+ * 集計結果は getAndResetMetrics() で libwebrtc のメトリクスと一緒に返されます。
+ * <p>
+ * enableMetrics() が呼ばれるまでは何も記録しません。キャプチャスレッドなど任意のスレッドから呼び出せます。
+ */
+final class WebRTCModuleMetrics {
+
+    /**
+     * libwebrtc の Metrics.HistogramInfo と同じ構造のヒストグラムです。
+     * samples のキーはバケットの下限値、値はそのバケットに入ったサンプル数です。
+     */
+    static final class Histogram {
+        @NonNull
+        final String name;
+        final int min;
+        final int max;
+        final int bucketCount;
+        @NonNull
+        final Map<Integer, Integer> samples = new HashMap<>();
+
+        private Histogram(@NonNull final String name, final int min, final int max, final int bucketCount) {
+            this.name = name;
+            this.min = Math.max(1, min);
+            this.max = Math.max(this.min + 1, max);
+            this.bucketCount = Math.max(3, bucketCount);
+        }
+
+        /**
+         * libwebrtc の Counts 系ヒストグラムと同様に、 min から max までを指数的に分割したバケットに振り分けます。
+         * min 未満は 0 のバケット、 max 以上は max のバケットに入ります。
+         */
+        private void add(final int value) {
+            final int bucket;
+            if (value < min) {
+                bucket = 0;
+            } else if (value >= max) {
+                bucket = max;
+            } else {
+                final double ratio = Math.log((double) value / min) / Math.log((double) max / min);
+                final int index = (int) Math.floor(ratio * (bucketCount - 2));
+                bucket = (int) Math.round(min * Math.pow((double) max / min, (double) index / (bucketCount - 2)));
+            }
+            final Integer count = samples.get(bucket);
+            samples.put(bucket, count == null ? 1 : count + 1);
+        }
+    }
+
+    private static final Object lock = new Object();
+    private static volatile boolean isEnabled = false;
+    private static final Map<String, Histogram> histograms = new LinkedHashMap<>();
+
+    private WebRTCModuleMetrics() {
+    }
+
+    static void enable() {
+        isEnabled = true;
+    }
+
+    static boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * 指定された名前のヒストグラムにサンプルを追加します。ヒストグラムが存在しなければ生成します。
+     * min / max / bucketCount は最初の呼び出しの値が使われます。
+     */
+    static void addSample(@NonNull final String name,
+                          final int min,
+                          final int max,
+                          final int bucketCount,
+                          final int value) {
+        if (!isEnabled) {
+            return;
+        }
+        synchronized (lock) {
+            Histogram histogram = histograms.get(name);
+            if (histogram == null) {
+                histogram = new Histogram(name, min, max, bucketCount);
+                histograms.put(name, histogram);
+            }
+            histogram.add(value);
+        }
+    }
+
+    /**
+     * 処理時間 (マイクロ秒) のサンプルを追加します。 1us から 1s までを 50 のバケットで集計します。
+     */
+    static void addTimeSample(@NonNull final String name, final long nanos) {
+        addSample(name, 1, 1000000, 50, (int) Math.min(Integer.MAX_VALUE, nanos / 1000));
+    }
+
+    /**
+     * 集計中のヒストグラムをすべて返し、リセットします。
+     */
+    @NonNull
+    static List<Histogram> getAndReset() {
+        synchronized (lock) {
+            final List<Histogram> results = new ArrayList<>(histograms.values());
+            histograms.clear();
+            return results;
+        }
+    }
+
+}
@@ -1,25 +1,42 @@
 
 package jp.shiguredo.react.webrtckit;
 
+import androidx.annotation.NonNull;
+
 import com.facebook.react.ReactPackage;
 import com.facebook.react.bridge.JavaScriptModule;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.uimanager.ViewManager;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 public class WebRTCModulePackage implements ReactPackage {
 
+    @NonNull
+    private final WebRTCAudioDeviceModuleOptions audioDeviceModuleOptions;
+
+    public WebRTCModulePackage() {
+        this(new WebRTCAudioDeviceModuleOptions());
+    }
+
+    /**
+     * 音声デバイスの設定を指定して生成します。
+     */
+    public WebRTCModulePackage(@NonNull WebRTCAudioDeviceModuleOptions audioDeviceModuleOptions) {
+        this.audioDeviceModuleOptions = audioDeviceModuleOptions;
+    }
+
     @Override
     public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        return Collections.<NativeModule>singletonList(new WebRTCModule(reactContext));
+        return Collections.<NativeModule>singletonList(new WebRTCModule(reactContext, audioDeviceModuleOptions));
     }
 
     @Override
     public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
-        return Collections.<ViewManager>singletonList(new WebRTCVideoViewManager());
+        return Arrays.<ViewManager>asList(new WebRTCVideoViewManager(), new WebRTCVideoGridViewManager());
     }
 
     // Deprecated from RN 0.47
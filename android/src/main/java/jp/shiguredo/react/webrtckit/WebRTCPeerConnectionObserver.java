@@ -19,8 +19,10 @@ import org.webrtc.PeerConnection;
 import org.webrtc.RtpReceiver;
 import org.webrtc.RtpSender;
 import org.webrtc.RtpTransceiver;
+import org.webrtc.VideoTrack;
 
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.dataChannelJsonValue;
+import static jp.shiguredo.react.webrtckit.WebRTCConverter.iceCandidateJsonValue;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.peerConnectionStateStringValue;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.iceConnectionStateStringValue;
 import static jp.shiguredo.react.webrtckit.WebRTCConverter.iceGatheringStateStringValue;
@@ -135,6 +137,13 @@ final class WebRTCPeerConnectionObserver implements PeerConnection.Observer {
     public void onIceGatheringChange(PeerConnection.IceGatheringState iceGatheringState) {
         if (peerConnectionPair == null) return;
         Log.d("WebRTCModule", "onIceGatheringChange()[" + peerConnectionPair.first + "] - iceGatheringState=" + iceGatheringState);
+        if (iceGatheringState == PeerConnection.IceGatheringState.COMPLETE) {
+            // まとめている candidate を収集の完了より先に通知する
+            final WebRTCIceCandidateFilter filter = getModule().getIceCandidateFilter(peerConnectionPair.first);
+            if (filter != null) {
+                filter.flush();
+            }
+        }
         final WritableMap params = Arguments.createMap();
         params.putString("valueTag", peerConnectionPair.first);
         params.putString("iceGatheringState", iceGatheringStateStringValue(iceGatheringState));
@@ -145,13 +154,15 @@ final class WebRTCPeerConnectionObserver implements PeerConnection.Observer {
     public void onIceCandidate(IceCandidate iceCandidate) {
         if (peerConnectionPair == null) return;
         Log.d("WebRTCModule", "onIceCandidate()[" + peerConnectionPair.first + "] - iceCandidate=" + iceCandidate);
-        final WritableMap candidate = Arguments.createMap();
-        candidate.putString("candidate", iceCandidate.sdp);
-        candidate.putInt("sdpMLineIndex", iceCandidate.sdpMLineIndex);
-        candidate.putString("sdpMid", iceCandidate.sdpMid);
+        final WebRTCIceCandidateFilter filter = getModule().getIceCandidateFilter(peerConnectionPair.first);
+        if (filter != null) {
+            // 通知はフィルタから行う
+            filter.add(iceCandidate);
+            return;
+        }
         final WritableMap params = Arguments.createMap();
         params.putString("valueTag", peerConnectionPair.first);
-        params.putMap("candidate", candidate);
+        params.putMap("candidate", iceCandidateJsonValue(iceCandidate));
         sendDeviceEvent("peerConnectionGotICECandidate", params);
     }
 
@@ -221,6 +232,7 @@ final class WebRTCPeerConnectionObserver implements PeerConnection.Observer {
         final MediaStreamTrack track = receiver.track();
         if (track != null) {
             module.repository.tracks.removeById(track.id());
+            module.repository.removePeerConnectionValueTagForReceiverTrack(track.id());
         }
 
         final WritableMap params = Arguments.createMap();
@@ -246,6 +258,10 @@ final class WebRTCPeerConnectionObserver implements PeerConnection.Observer {
         }
         if (receiverTrack != null) {
             module.repository.tracks.add(receiverTrack.id(), module.createNewValueTag(), receiverTrack);
+            module.repository.setPeerConnectionValueTagForReceiverTrack(receiverTrack.id(), peerConnectionPair.first);
+            if (receiverTrack instanceof VideoTrack) {
+                module.onRemoteVideoTrackAdded((VideoTrack) receiverTrack);
+            }
         }
         // XXX: 本来であればここで sender.streams() や receiver.streams() を使ってstreamIdsを取得し、repository.setStreamIds(...)とする必要がある
         //      しかしながら現在libwebrtcに sender.streams() や receiver.streams() の実装がないため実現不能
@@ -277,6 +293,12 @@ final class WebRTCPeerConnectionObserver implements PeerConnection.Observer {
     public void onRenegotiationNeeded() {
         if (peerConnectionPair == null) return;
         Log.d("WebRTCModule", "onRenegotiationNeeded()[" + peerConnectionPair.first + "]");
+        final WebRTCPerfectNegotiation negotiation = getModule().getPerfectNegotiation(peerConnectionPair.first);
+        if (negotiation != null) {
+            // ネゴシエーションはネイティブで行う
+            negotiation.onNegotiationNeeded();
+            return;
+        }
         final WritableMap params = Arguments.createMap();
         params.putString("valueTag", peerConnectionPair.first);
         sendDeviceEvent("peerConnectionShouldNegotiate", params);
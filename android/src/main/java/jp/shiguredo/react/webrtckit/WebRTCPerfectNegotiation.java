@@ -0,0 +1,239 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+import android.util.Log;
+
+import org.webrtc.IceCandidate;
+import org.webrtc.MediaConstraints;
+import org.webrtc.PeerConnection;
+import org.webrtc.SessionDescription;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 1 つの PeerConnection のネゴシエーションを Perfect Negotiation の手順でネイティブで行います。
+ * https://w3c.github.io/webrtc-pc/#perfect-negotiation-example
+ * <p>
+ * 再ネゴシエーションが必要になると Offer を生成してローカルの SDP に設定し、 {@link Listener#onSendDescription} で送信を依頼します。
+ * 相手から受け取った SDP と ICE candidate は {@link #receiveDescription} と {@link #receiveCandidate} で渡します。
+ * リモートの SDP を設定している間に受け取った ICE candidate は、 PeerConnection の {@link WebRTCIceCandidateQueue} に保持します。
+ * Offer が衝突した場合、 polite な側は自分の Offer を取り消して相手の Offer を受け入れ、
+ * impolite な側は相手の Offer を無視します。
+ * <p>
+ * 状態はすべて PeerConnection の実行キュー ({@link WebRTCScheduler#executorFor}) で扱います。
+ * libwebrtc のコールバックは実行キューに戻してから状態を更新するため、ロックは使いません。
+ */
+final class WebRTCPerfectNegotiation {
+
+    private static final String TAG = "WebRTCModule";
+
+    interface Listener {
+        /**
+         * 設定したローカルの SDP を相手に送信するよう依頼します。
+         */
+        void onSendDescription(@NonNull SessionDescription description);
+
+        void onError(@NonNull String code, @Nullable String message);
+    }
+
+    interface Completion {
+        /**
+         * @param isApplied 受け取った SDP または ICE candidate を適用した場合は true 、衝突により無視した場合は false
+         */
+        void onComplete(boolean isApplied);
+
+        void onError(@NonNull String code, @Nullable String message);
+    }
+
+    @NonNull
+    private final PeerConnection peerConnection;
+    @NonNull
+    private final Executor executor;
+    @NonNull
+    private final WebRTCIceCandidateQueue iceCandidateQueue;
+    @NonNull
+    private final Listener listener;
+    private final boolean isPolite;
+
+    // 以下は実行キューでのみ使用する
+    private boolean isMakingOffer = false;
+    private boolean isIgnoringOffer = false;
+    private boolean isSettingRemoteAnswerPending = false;
+    /**
+     * Offer の生成中またはネゴシエーション中に再ネゴシエーションが必要になった場合に true にし、 stable に戻ってから行います。
+     */
+    private boolean isNegotiationPending = false;
+    private boolean isSettingRemoteDescription = false;
+    private boolean isDisposed = false;
+
+    WebRTCPerfectNegotiation(@NonNull final PeerConnection peerConnection,
+                             @NonNull final Executor executor,
+                             @NonNull final WebRTCIceCandidateQueue iceCandidateQueue,
+                             final boolean isPolite,
+                             @NonNull final Listener listener) {
+        this.peerConnection = peerConnection;
+        this.executor = executor;
+        this.iceCandidateQueue = iceCandidateQueue;
+        this.isPolite = isPolite;
+        this.listener = listener;
+    }
+
+    /**
+     * PeerConnection.Observer.onRenegotiationNeeded() から呼び出します。任意のスレッドから呼び出せます。
+     */
+    void onNegotiationNeeded() {
+        executor.execute(() -> {
+            isNegotiationPending = true;
+            negotiateIfNeeded();
+        });
+    }
+
+    /**
+     * 以降のコールバックを無視します。実行キューから呼び出してください。
+     */
+    void dispose() {
+        isDisposed = true;
+    }
+
+    /**
+     * 相手から受け取った SDP を適用します。実行キューから呼び出してください。
+     */
+    void receiveDescription(@NonNull final SessionDescription description, @NonNull final Completion completion) {
+        if (isDisposed) {
+            completion.onError("InvalidStateError", "negotiation is disposed");
+            return;
+        }
+        final boolean isOffer = description.type == SessionDescription.Type.OFFER;
+        final boolean isStable = peerConnection.signalingState() == PeerConnection.SignalingState.STABLE;
+        final boolean isReadyForOffer = !isMakingOffer && (isStable || isSettingRemoteAnswerPending);
+        final boolean isOfferCollision = isOffer && !isReadyForOffer;
+        isIgnoringOffer = !isPolite && isOfferCollision;
+        if (isIgnoringOffer) {
+            Log.d(TAG, "WebRTCPerfectNegotiation - ignore the colliding offer");
+            completion.onComplete(false);
+            return;
+        }
+
+        isSettingRemoteAnswerPending = description.type == SessionDescription.Type.ANSWER;
+        isSettingRemoteDescription = true;
+        iceCandidateQueue.beginRemoteDescription();
+        final WebRTCSdpPipeline.Callback callback = new WebRTCSdpPipeline.Callback() {
+            @Override
+            public void onSuccess(@NonNull SessionDescription localOrRemoteDescription) {
+                executor.execute(() -> {
+                    isSettingRemoteDescription = false;
+                    iceCandidateQueue.endRemoteDescription();
+                    if (isDisposed) return;
+                    isSettingRemoteAnswerPending = false;
+                    if (isOffer) {
+                        // 相手の Offer に対する Answer を送信する
+                        listener.onSendDescription(localOrRemoteDescription);
+                    }
+                    completion.onComplete(true);
+                    negotiateIfNeeded();
+                });
+            }
+
+            @Override
+            public void onFailure(@NonNull String code, @Nullable String message) {
+                executor.execute(() -> {
+                    isSettingRemoteDescription = false;
+                    iceCandidateQueue.endRemoteDescription();
+                    isSettingRemoteAnswerPending = false;
+                    completion.onError(code, message);
+                });
+            }
+        };
+
+        if (isOfferCollision
+                && peerConnection.signalingState() == PeerConnection.SignalingState.HAVE_LOCAL_OFFER) {
+            // polite な側は自分の Offer を取り消してから相手の Offer を受け入れる
+            // Offer をまだローカルに設定していない場合は取り消すものがないため、相手の Offer をそのまま受け入れる。
+            // 生成中の Offer の設定は失敗し、必要であれば onRenegotiationNeeded() で再びネゴシエーションを行う
+            Log.d(TAG, "WebRTCPerfectNegotiation - rollback the local offer");
+            WebRTCSdpPipeline.rollbackLocal(peerConnection, new WebRTCSdpPipeline.Callback() {
+                @Override
+                public void onSuccess(@NonNull SessionDescription rollback) {
+                    WebRTCSdpPipeline.answerRemoteAndSetLocal(peerConnection, description, new MediaConstraints(), callback);
+                }
+
+                @Override
+                public void onFailure(@NonNull String code, @Nullable String message) {
+                    callback.onFailure(code, message);
+                }
+            });
+        } else if (isOffer) {
+            WebRTCSdpPipeline.answerRemoteAndSetLocal(peerConnection, description, new MediaConstraints(), callback);
+        } else {
+            WebRTCSdpPipeline.setRemote(peerConnection, description, callback);
+        }
+    }
+
+    /**
+     * 相手から受け取った ICE candidate を追加します。実行キューから呼び出してください。
+     * リモートの SDP を設定している間は、設定が終わって追加を試みてから完了します。
+     * 無視した Offer に対応する ICE candidate の追加に失敗した場合はエラーにしません。
+     */
+    void receiveCandidate(@NonNull final IceCandidate candidate, @NonNull final Completion completion) {
+        if (isDisposed) {
+            completion.onError("InvalidStateError", "negotiation is disposed");
+            return;
+        }
+        iceCandidateQueue.add(candidate, result -> {
+            switch (result) {
+                case ADDED:
+                    completion.onComplete(true);
+                    break;
+                case FAILED:
+                    if (isIgnoringOffer) {
+                        completion.onComplete(false);
+                    } else {
+                        completion.onError("OperationError", "cannot add the candidate");
+                    }
+                    break;
+                default:
+                    completion.onError("InvalidStateError", "peer connection is closed");
+                    break;
+            }
+        });
+    }
+
+    private void negotiateIfNeeded() {
+        if (isDisposed || !isNegotiationPending || isMakingOffer || isSettingRemoteDescription) {
+            return;
+        }
+        if (peerConnection.signalingState() != PeerConnection.SignalingState.STABLE) {
+            // 進行中のネゴシエーションが終わってから行う
+            return;
+        }
+        isNegotiationPending = false;
+        isMakingOffer = true;
+        WebRTCSdpPipeline.offerAndSetLocal(peerConnection, new MediaConstraints(), new WebRTCSdpPipeline.Callback() {
+            @Override
+            public void onSuccess(@NonNull SessionDescription offer) {
+                executor.execute(() -> {
+                    isMakingOffer = false;
+                    if (isDisposed) return;
+                    listener.onSendDescription(offer);
+                });
+            }
+
+            @Override
+            public void onFailure(@NonNull String code, @Nullable String message) {
+                executor.execute(() -> {
+                    isMakingOffer = false;
+                    if (isDisposed) return;
+                    // 相手の Offer を受け入れるために取り消した場合は失敗しても問題ない
+                    if (peerConnection.signalingState() != PeerConnection.SignalingState.HAVE_LOCAL_OFFER) {
+                        Log.d(TAG, "WebRTCPerfectNegotiation - offer was superseded: " + message);
+                        negotiateIfNeeded();
+                        return;
+                    }
+                    listener.onError(code, message);
+                });
+            }
+        });
+    }
+
+}
@@ -0,0 +1,292 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+
+import org.webrtc.MediaStreamTrack;
+import org.webrtc.RtpTransceiver;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * どのビューにも描画されていないリモートの映像トラックの受信を一時停止します。
+ * <p>
+ * ビューがシンクを付け外しするたびに、 WebRTCRepository でトラックごとのシンクの数を数えます。
+ * トラックを受信したとき、一時停止を有効にしたとき、シンクの数が 0 になったときにシンクが 1 つもなければ、
+ * 一定時間の経過後にトラックを一時停止します。
+ * 再びシンクが付けられると、予定している一時停止を取り消し、一時停止中であればただちに解除します。
+ * <p>
+ * 一時停止の方法は以下の 2 つです。
+ * <ul>
+ * <li>DISABLE_TRACK - トラックを無効にします。再ネゴシエーションは不要ですが、受信とデコードは継続するため、
+ * 描画されないフレームを捨てる以外に CPU の負荷は下がりません。</li>
+ * <li>CHANGE_DIRECTION - トランシーバーの方向から受信を外します (sendrecv は sendonly 、 recvonly は inactive) 。
+ * 再ネゴシエーションが必要ですが、完了すると受信とデコードが止まります。</li>
+ * </ul>
+ * 一時停止の状態はネイティブモジュールのスレッドでのみ扱います。
+ * トランシーバーの方向の変更は、 setRemoteDescription() などのネゴシエーションの処理と順序を保つため、
+ * トラックを受信している PeerConnection の実行キュー ({@link WebRTCScheduler#findExecutor}) で行います。
+ */
+final class WebRTCRemoteVideoAutoPause {
+
+    private static final String TAG = "WebRTCModule";
+
+    enum Mode {
+        DISABLE_TRACK,
+        CHANGE_DIRECTION
+    }
+
+    /**
+     * 一時停止前の状態です。
+     */
+    private static final class PausedState {
+        /**
+         * CHANGE_DIRECTION で一時停止した場合の、変更前の方向です。
+         */
+        @Nullable
+        final RtpTransceiver.RtpTransceiverDirection direction;
+        /**
+         * 一時停止を解除したときのトラックの有効・無効です。一時停止中にアプリケーションが変更した場合はその値になります。
+         */
+        boolean isEnabled = true;
+
+        PausedState(@Nullable final RtpTransceiver.RtpTransceiverDirection direction) {
+            this.direction = direction;
+        }
+    }
+
+    @NonNull
+    private final ReactApplicationContext reactContext;
+    @NonNull
+    private final WebRTCRepository repository;
+    @NonNull
+    private final WebRTCScheduler scheduler;
+    @NonNull
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    /**
+     * Key is track id.
+     */
+    @NonNull
+    private final Map<String, PausedState> pausedStates = new HashMap<>();
+    /**
+     * 予定している一時停止です。 Key is track id.
+     */
+    @NonNull
+    private final Map<String, Runnable> scheduledPauses = new HashMap<>();
+    /**
+     * 一時停止するまでの時間です。 0 の場合は一時停止しません。
+     */
+    private volatile long intervalMs = 0;
+    @NonNull
+    private volatile Mode mode = Mode.DISABLE_TRACK;
+
+    WebRTCRemoteVideoAutoPause(@NonNull final ReactApplicationContext reactContext,
+                               @NonNull final WebRTCRepository repository,
+                               @NonNull final WebRTCScheduler scheduler) {
+        this.reactContext = reactContext;
+        this.repository = repository;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 一時停止するまでの時間と方法を設定します。 intervalMs が 0 の場合は一時停止を無効にし、一時停止中のトラックをすべて再開します。
+     * intervalMs が 0 より大きい場合は、すでに受信していてシンクが 1 つもないリモートの映像トラックの一時停止を予定します。
+     * ネイティブモジュールのスレッドから呼び出してください。
+     */
+    void configure(final long intervalMs, @NonNull final Mode mode) {
+        this.intervalMs = Math.max(0, intervalMs);
+        this.mode = mode;
+        if (this.intervalMs == 0) {
+            for (final String trackId : scheduledPauses.keySet().toArray(new String[0])) {
+                cancelScheduledPause(trackId);
+            }
+            for (final String trackId : pausedStates.keySet().toArray(new String[0])) {
+                resume(trackId);
+            }
+            return;
+        }
+        for (final RtpTransceiver transceiver : repository.transceivers.all()) {
+            final MediaStreamTrack track = transceiver.getReceiver().track();
+            if (track != null && MediaStreamTrack.VIDEO_TRACK_KIND.equals(track.kind())) {
+                schedulePauseIfUnused(track.id());
+            }
+        }
+    }
+
+    /**
+     * リモートの映像トラックを受信したときに呼び出します。一度もビューに描画されないトラックも一時停止の対象にするためです。
+     * 任意のスレッドから呼び出せます。
+     */
+    void onRemoteVideoTrackAdded(@NonNull final String trackId) {
+        reactContext.runOnNativeModulesQueueThread(() -> schedulePauseIfUnused(trackId));
+    }
+
+    /**
+     * ビューがトラックにシンクを付けたときに呼び出します。任意のスレッドから呼び出せます。
+     */
+    void onVideoSinkAdded(@NonNull final String trackId) {
+        reactContext.runOnNativeModulesQueueThread(() -> {
+            repository.addVideoSink(trackId);
+            cancelScheduledPause(trackId);
+            resume(trackId);
+        });
+    }
+
+    /**
+     * ビューがトラックからシンクを外したときに呼び出します。任意のスレッドから呼び出せます。
+     */
+    void onVideoSinkRemoved(@NonNull final String trackId) {
+        reactContext.runOnNativeModulesQueueThread(() -> {
+            repository.removeVideoSink(trackId);
+            schedulePauseIfUnused(trackId);
+        });
+    }
+
+    /**
+     * シンクが 1 つもなければ、 intervalMs の経過後に一時停止するよう予定します。一時停止中のトラックは何もしません。
+     */
+    private void schedulePauseIfUnused(@NonNull final String trackId) {
+        final long interval = intervalMs;
+        if (interval == 0 || pausedStates.containsKey(trackId) || repository.getVideoSinkCount(trackId) > 0) {
+            return;
+        }
+        // 付け外しが繰り返されても、予定する一時停止はトラックごとに 1 つにする
+        cancelScheduledPause(trackId);
+        final Runnable pause = new Runnable() {
+            @Override
+            public void run() {
+                reactContext.runOnNativeModulesQueueThread(() -> {
+                    // 待っている間に取り消された、または予定し直された場合は何もしない
+                    if (scheduledPauses.get(trackId) != this) {
+                        return;
+                    }
+                    scheduledPauses.remove(trackId);
+                    pauseIfUnused(trackId);
+                });
+            }
+        };
+        scheduledPauses.put(trackId, pause);
+        handler.postDelayed(pause, interval);
+    }
+
+    private void cancelScheduledPause(@NonNull final String trackId) {
+        final Runnable pause = scheduledPauses.remove(trackId);
+        if (pause != null) {
+            handler.removeCallbacks(pause);
+        }
+    }
+
+    /**
+     * 一時停止中のトラックに対してアプリケーションが有効・無効を設定した場合、その値を一時停止の解除時に反映します。
+     * 一時停止中であれば true を返します。その場合、呼び出し元はトラックに値を設定しないでください。
+     */
+    boolean setEnabledWhilePaused(@NonNull final String trackId, final boolean isEnabled) {
+        final PausedState state = pausedStates.get(trackId);
+        if (state == null || state.direction != null) {
+            return false;
+        }
+        state.isEnabled = isEnabled;
+        return true;
+    }
+
+    private void pauseIfUnused(@NonNull final String trackId) {
+        if (intervalMs == 0 || pausedStates.containsKey(trackId) || repository.getVideoSinkCount(trackId) > 0) {
+            return;
+        }
+        final RtpTransceiver transceiver = repository.getTransceiverByReceiverTrackId(trackId);
+        if (transceiver == null) {
+            // ローカルのトラック、またはすでに破棄されたトラック
+            return;
+        }
+        final MediaStreamTrack track = transceiver.getReceiver().track();
+        if (track == null || !MediaStreamTrack.VIDEO_TRACK_KIND.equals(track.kind())) {
+            return;
+        }
+        if (mode == Mode.CHANGE_DIRECTION) {
+            final RtpTransceiver.RtpTransceiverDirection direction = transceiver.getDirection();
+            final RtpTransceiver.RtpTransceiverDirection pausedDirection;
+            switch (direction) {
+                case SEND_RECV:
+                    pausedDirection = RtpTransceiver.RtpTransceiverDirection.SEND_ONLY;
+                    break;
+                case RECV_ONLY:
+                    pausedDirection = RtpTransceiver.RtpTransceiverDirection.INACTIVE;
+                    break;
+                default:
+                    return;
+            }
+            Log.d(TAG, "pauseIfUnused() - change direction of " + trackId + " to " + pausedDirection);
+            if (setDirection(trackId, transceiver, pausedDirection)) {
+                pausedStates.put(trackId, new PausedState(direction));
+            }
+        } else {
+            if (!track.enabled()) {
+                // アプリケーションが無効にしているトラックはそのままにする
+                return;
+            }
+            Log.d(TAG, "pauseIfUnused() - disable " + trackId);
+            pausedStates.put(trackId, new PausedState(null));
+            track.setEnabled(false);
+        }
+    }
+
+    private void resume(@NonNull final String trackId) {
+        final PausedState state = pausedStates.remove(trackId);
+        if (state == null) {
+            return;
+        }
+        final RtpTransceiver transceiver = repository.getTransceiverByReceiverTrackId(trackId);
+        if (transceiver == null) {
+            return;
+        }
+        if (state.direction != null) {
+            Log.d(TAG, "resume() - restore direction of " + trackId + " to " + state.direction);
+            setDirection(trackId, transceiver, state.direction);
+        } else {
+            final MediaStreamTrack track = transceiver.getReceiver().track();
+            if (track != null) {
+                Log.d(TAG, "resume() - enable " + trackId);
+                track.setEnabled(state.isEnabled);
+            }
+        }
+    }
+
+    /**
+     * トラックを受信している PeerConnection の実行キューでトランシーバーの方向を変更します。
+     * PeerConnection がすでに閉じられている場合は何もせずに false を返します。
+     */
+    private boolean setDirection(@NonNull final String trackId,
+                                 @NonNull final RtpTransceiver transceiver,
+                                 @NonNull final RtpTransceiver.RtpTransceiverDirection direction) {
+        final String valueTag = repository.getPeerConnectionValueTagByReceiverTrackId(trackId);
+        final Executor executor = valueTag != null ? scheduler.findExecutor(valueTag) : null;
+        if (executor == null) {
+            return false;
+        }
+        executor.execute(() -> {
+            // 実行を待つ間に閉じられた場合は何もしない
+            if (repository.getPeerConnectionByValueTag(valueTag) == null) {
+                return;
+            }
+            transceiver.setDirection(direction);
+        });
+        return true;
+    }
+
+    /**
+     * 予定している一時停止をすべて取り消します。一時停止中のトラックはそのままです。
+     */
+    void dispose() {
+        handler.removeCallbacksAndMessages(null);
+        scheduledPauses.clear();
+        pausedStates.clear();
+    }
+
+}
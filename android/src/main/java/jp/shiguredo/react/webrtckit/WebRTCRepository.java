@@ -17,7 +17,6 @@ import org.webrtc.VideoTrack;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -27,8 +26,10 @@ import static jp.shiguredo.react.webrtckit.WebRTCConverter.rtpTransceiverDump;
 /**
  * WebRTCモジュールが使用するすべてのWebRTC関連のオブジェクト (PeerConnection, MediaStream, MediaStreamTrack等) を管理するリポジトリです。
  *
- * XXX: 現状一切同期処理を行っていないので、複数スレッドから同時に触られると壊れる可能性が高いです。
- *      同期ロックが必要になった場合追加してください。
+ * PeerConnection の処理は {@link WebRTCScheduler} の実行キューで、 Observer のコールバックは libwebrtc のスレッドで行われるため、
+ * 各メソッドはロックを取得して実行します。一覧を返すメソッドはその時点のコピーを返します。
+ * libwebrtc のオブジェクトの ID などの取得は libwebrtc のスレッドを待つことがあるため、ロックの外で行います。
+ * 複数のメソッドの呼び出しをまたいだ一貫性は保証しません。
  */
 final class WebRTCRepository {
 
@@ -40,11 +41,11 @@ final class WebRTCRepository {
      */
     private final Map<String, PeerConnection> peerConnectionMap = new HashMap<>();
 
-    void addPeerConnection(@NonNull final Pair<String, PeerConnection> peerConnectionPair) {
+    synchronized void addPeerConnection(@NonNull final Pair<String, PeerConnection> peerConnectionPair) {
         peerConnectionMap.put(peerConnectionPair.first, peerConnectionPair.second);
     }
 
-    void removePeerConnectionByValueTag(@Nullable final String valueTag) {
+    synchronized void removePeerConnectionByValueTag(@Nullable final String valueTag) {
         if (valueTag == null) {
             return;
         }
@@ -52,7 +53,7 @@ final class WebRTCRepository {
     }
 
     @Nullable
-    PeerConnection getPeerConnectionByValueTag(@Nullable final String valueTag) {
+    synchronized PeerConnection getPeerConnectionByValueTag(@Nullable final String valueTag) {
         if (valueTag == null) {
             return null;
         }
@@ -60,14 +61,16 @@ final class WebRTCRepository {
     }
 
     @NonNull
-    Iterable<PeerConnection> allPeerConnections() {
-        return new Iterable<PeerConnection>() {
-            @NonNull
-            @Override
-            public Iterator<PeerConnection> iterator() {
-                return peerConnectionMap.values().iterator();
-            }
-        };
+    synchronized List<PeerConnection> allPeerConnections() {
+        return new ArrayList<>(peerConnectionMap.values());
+    }
+
+    /**
+     * Key is valueTag, Value is PeerConnection.
+     */
+    @NonNull
+    synchronized Map<String, PeerConnection> allPeerConnectionsByValueTag() {
+        return new HashMap<>(peerConnectionMap);
     }
 
     //endregion
@@ -89,10 +92,115 @@ final class WebRTCRepository {
     private final Map<String, Double> trackAspectRatioMap = new HashMap<>();
 
     void setVideoTrackAspectRatio(@NonNull final VideoTrack videoTrack, double aspectRatio) {
-        if (!tracks.containsId(videoTrack.id())) {
+        final String trackId = videoTrack.id();
+        if (!tracks.containsId(trackId)) {
+            return;
+        }
+        synchronized (this) {
+            trackAspectRatioMap.put(trackId, aspectRatio);
+        }
+    }
+
+    /**
+     * 設定されているアスペクト比を返します。設定されていない場合は -1 を返します。
+     */
+    double getVideoTrackAspectRatio(@NonNull final VideoTrack videoTrack) {
+        final String trackId = videoTrack.id();
+        final Double aspectRatio;
+        synchronized (this) {
+            aspectRatio = trackAspectRatioMap.get(trackId);
+        }
+        return aspectRatio == null ? -1 : aspectRatio;
+    }
+
+    /**
+     * Key is id, Value is the current settings of the video track.
+     */
+    private final Map<String, WebRTCVideoTrackSettings> trackSettingsMap = new HashMap<>();
+
+    void setVideoTrackSettings(@NonNull final VideoTrack videoTrack, @NonNull final WebRTCVideoTrackSettings settings) {
+        final String trackId = videoTrack.id();
+        if (!tracks.containsId(trackId)) {
             return;
         }
-        trackAspectRatioMap.put(videoTrack.id(), aspectRatio);
+        synchronized (this) {
+            trackSettingsMap.put(trackId, settings);
+        }
+    }
+
+    @Nullable
+    WebRTCVideoTrackSettings getTrackSettings(@NonNull final MediaStreamTrack track) {
+        final String trackId = track.id();
+        synchronized (this) {
+            return trackSettingsMap.get(trackId);
+        }
+    }
+
+    /**
+     * Key is id, Value is the number of video sinks (views) rendering the track.
+     */
+    private final Map<String, Integer> videoSinkCountMap = new HashMap<>();
+
+    /**
+     * 映像トラックを描画しているシンクの数を 1 増やし、増やした後の数を返します。
+     */
+    synchronized int addVideoSink(@NonNull final String trackId) {
+        final int count = getVideoSinkCount(trackId) + 1;
+        videoSinkCountMap.put(trackId, count);
+        return count;
+    }
+
+    /**
+     * 映像トラックを描画しているシンクの数を 1 減らし、減らした後の数を返します。
+     */
+    synchronized int removeVideoSink(@NonNull final String trackId) {
+        final int count = Math.max(0, getVideoSinkCount(trackId) - 1);
+        if (count == 0) {
+            videoSinkCountMap.remove(trackId);
+        } else {
+            videoSinkCountMap.put(trackId, count);
+        }
+        return count;
+    }
+
+    synchronized int getVideoSinkCount(@NonNull final String trackId) {
+        final Integer count = videoSinkCountMap.get(trackId);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Key is id of the receiver track, Value is valueTag of PeerConnection receiving the track.
+     */
+    private final Map<String, String> receiverTrackPeerConnectionMap = new HashMap<>();
+
+    synchronized void setPeerConnectionValueTagForReceiverTrack(@NonNull final String trackId, @NonNull final String valueTag) {
+        receiverTrackPeerConnectionMap.put(trackId, valueTag);
+    }
+
+    synchronized void removePeerConnectionValueTagForReceiverTrack(@NonNull final String trackId) {
+        receiverTrackPeerConnectionMap.remove(trackId);
+    }
+
+    /**
+     * 指定されたトラックを受信している PeerConnection の valueTag を返します。リモートのトラックでない場合は null を返します。
+     */
+    @Nullable
+    synchronized String getPeerConnectionValueTagByReceiverTrackId(@NonNull final String trackId) {
+        return receiverTrackPeerConnectionMap.get(trackId);
+    }
+
+    /**
+     * 指定されたトラックを受信している RtpTransceiver を返します。リモートのトラックでない場合は null を返します。
+     */
+    @Nullable
+    RtpTransceiver getTransceiverByReceiverTrackId(@NonNull final String trackId) {
+        for (final RtpTransceiver transceiver : transceivers.all()) {
+            final MediaStreamTrack track = transceiver.getReceiver().track();
+            if (track != null && trackId.equals(track.id())) {
+                return transceiver;
+            }
+        }
+        return null;
     }
 
     //endregion
@@ -109,15 +217,21 @@ final class WebRTCRepository {
 
     @Nullable
     List<String> getStreamIdsForSender(@NonNull final RtpSender sender) {
-        return receiverStreamIdsMap.get(sender.id());
+        final String senderId = sender.id();
+        synchronized (this) {
+            return receiverStreamIdsMap.get(senderId);
+        }
     }
 
     void setStreamIdsForSender(@NonNull final RtpSender sender, @Nullable final List<String> streamIds) {
-        if (streamIds == null || streamIds.size() == 0) {
-            receiverStreamIdsMap.remove(sender.id());
-            return;
+        final String senderId = sender.id();
+        synchronized (this) {
+            if (streamIds == null || streamIds.size() == 0) {
+                receiverStreamIdsMap.remove(senderId);
+                return;
+            }
+            receiverStreamIdsMap.put(senderId, streamIds);
         }
-        receiverStreamIdsMap.put(sender.id(), streamIds);
     }
 
     void setStreamIdsForSender(@NonNull final RtpSender sender, @Nullable final MediaStream[] mediaStreams) {
@@ -145,23 +259,27 @@ final class WebRTCRepository {
 
     @Nullable
     List<String> getStreamIdsForReceiver(@NonNull final RtpReceiver receiver) {
-        return receiverStreamIdsMap.get(receiver.id());
+        final String receiverId = receiver.id();
+        synchronized (this) {
+            return receiverStreamIdsMap.get(receiverId);
+        }
     }
 
     void setStreamIdsForReceiver(@NonNull final RtpReceiver receiver, @Nullable final MediaStream[] mediaStreams) {
-        if (mediaStreams == null) {
-            receiverStreamIdsMap.remove(receiver.id());
-            return;
-        }
+        final String receiverId = receiver.id();
         final List<String> streamIds = new ArrayList<>();
-        for (final MediaStream stream : mediaStreams) {
-            streamIds.add(stream.getId());
+        if (mediaStreams != null) {
+            for (final MediaStream stream : mediaStreams) {
+                streamIds.add(stream.getId());
+            }
         }
-        if (streamIds.size() == 0) {
-            receiverStreamIdsMap.remove(receiver.id());
-            return;
+        synchronized (this) {
+            if (streamIds.size() == 0) {
+                receiverStreamIdsMap.remove(receiverId);
+                return;
+            }
+            receiverStreamIdsMap.put(receiverId, streamIds);
         }
-        receiverStreamIdsMap.put(receiver.id(), streamIds);
     }
 
     //endregion
@@ -210,11 +328,11 @@ final class WebRTCRepository {
 
     private final Map<String, DataChannel> dataChannelMap = new HashMap<>();
 
-    void addDataChannel(@NonNull final Pair<String, DataChannel> dataChannelPair) {
+    synchronized void addDataChannel(@NonNull final Pair<String, DataChannel> dataChannelPair) {
         dataChannelMap.put(dataChannelPair.first, dataChannelPair.second);
     }
 
-    void removeDataChannelByValueTag(@Nullable final String valueTag) {
+    synchronized void removeDataChannelByValueTag(@Nullable final String valueTag) {
         if (valueTag == null) {
             return;
         }
@@ -222,7 +340,7 @@ final class WebRTCRepository {
     }
 
     @Nullable
-    DataChannel getDataChannelByValueTag(@Nullable final String valueTag) {
+    synchronized DataChannel getDataChannelByValueTag(@Nullable final String valueTag) {
         if (valueTag == null) {
             return null;
         }
@@ -236,13 +354,16 @@ final class WebRTCRepository {
      * その際、格納されていたWebRTC関連のオブジェクトは、現在のところ、明示的に初期化されません。
      * ※将来的にこの挙動は変更される可能性があります。
      */
-    void clear() {
+    synchronized void clear() {
         peerConnectionMap.clear();
 
         streams.clear();
 
         tracks.clear();
         trackAspectRatioMap.clear();
+        trackSettingsMap.clear();
+        videoSinkCountMap.clear();
+        receiverTrackPeerConnectionMap.clear();
 
         senders.clear();
 
@@ -262,7 +383,7 @@ final class WebRTCRepository {
         @NonNull
         private final Map<String, String> valueTagToId = new HashMap<>();
 
-        void add(@NonNull final String id, @NonNull final String valueTag, @NonNull final V value) {
+        synchronized void add(@NonNull final String id, @NonNull final String valueTag, @NonNull final V value) {
             // すでに同一のIDで同一のインスタンスが登録されている場合は上書きしないで無視します
             // 同一のIDがすでに登録されていても、インスタンスが別であれば上書きします
             // XXX: ひょっとしたらIDだけ同一なら上書きしないほうがいいかも、というのはAndroidの場合実態はnative側にあって、
@@ -279,35 +400,35 @@ final class WebRTCRepository {
         }
 
         @Nullable
-        String getId(@Nullable final String valueTag) {
+        synchronized String getId(@Nullable final String valueTag) {
             if (valueTag == null) return null;
             return valueTagToId.get(valueTag);
         }
 
         @Nullable
-        String getValueTag(@Nullable final String id) {
+        synchronized String getValueTag(@Nullable final String id) {
             if (id == null) return null;
             return idToValueTag.get(id);
         }
 
-        boolean containsId(@Nullable final String id) {
+        synchronized boolean containsId(@Nullable final String id) {
             if (id == null) return false;
             return idToValueTag.containsKey(id);
         }
 
-        boolean containsValueTag(@Nullable final String valueTag) {
+        synchronized boolean containsValueTag(@Nullable final String valueTag) {
             if (valueTag == null) return false;
             return valueTagToId.containsKey(valueTag);
         }
 
         @Nullable
-        V getById(@Nullable final String id) {
+        synchronized V getById(@Nullable final String id) {
             if (id == null) return null;
             return idMap.get(id);
         }
 
         @Nullable
-        V getByValueTag(@Nullable final String valueTag) {
+        synchronized V getByValueTag(@Nullable final String valueTag) {
             if (valueTag == null) return null;
             final String id = valueTagToId.get(valueTag);
             if (id == null) return null;
@@ -315,17 +436,11 @@ final class WebRTCRepository {
         }
 
         @NonNull
-        Iterable<V> all() {
-            return new Iterable<V>() {
-                @NonNull
-                @Override
-                public Iterator<V> iterator() {
-                    return idMap.values().iterator();
-                }
-            };
+        synchronized List<V> all() {
+            return new ArrayList<>(idMap.values());
         }
 
-        void removeById(@Nullable final String id) {
+        synchronized void removeById(@Nullable final String id) {
             if (id == null) return;
             final String valueTag = idToValueTag.get(id);
             if (valueTag == null) return;
@@ -334,7 +449,7 @@ final class WebRTCRepository {
             valueTagToId.remove(valueTag);
         }
 
-        void removeByValueTag(@Nullable final String valueTag) {
+        synchronized void removeByValueTag(@Nullable final String valueTag) {
             if (valueTag == null) return;
             final String id = valueTagToId.get(valueTag);
             if (id == null) return;
@@ -343,7 +458,7 @@ final class WebRTCRepository {
             valueTagToId.remove(valueTag);
         }
 
-        void clear() {
+        synchronized void clear() {
             idMap.clear();
             idToValueTag.clear();
             valueTagToId.clear();
@@ -353,10 +468,17 @@ final class WebRTCRepository {
          * このRepositoryが抱えているすべてのID - ValueTag - Valueペアをダンプして文字列にします。
          */
         String dump() {
+            // トラックなどの状態の取得は libwebrtc のスレッドを待つため、ロックの外で行う
+            final Map<String, V> values;
+            final Map<String, String> valueTags;
+            synchronized (this) {
+                values = new HashMap<>(idMap);
+                valueTags = new HashMap<>(idToValueTag);
+            }
             final StringBuilder sb = new StringBuilder(" * ID - ValueTag - Value\n");
-            for (final String id : idMap.keySet()) {
-                final String valueTag = idToValueTag.get(id);
-                final V value = idMap.get(id);
+            for (final String id : values.keySet()) {
+                final String valueTag = valueTags.get(id);
+                final V value = values.get(id);
                 final String valueString;
                 if (value instanceof MediaStreamTrack) {
                     final MediaStreamTrack track = (MediaStreamTrack) value;
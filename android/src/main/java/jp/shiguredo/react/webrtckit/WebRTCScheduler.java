@@ -0,0 +1,176 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PeerConnection ごとの処理を、ネイティブモジュールのスレッドから切り離して実行するスケジューラーです。
+ * <p>
+ * PeerConnection ごとに直列の実行キューを持ち、同じ PeerConnection への処理は呼び出された順に 1 つずつ実行します。
+ * 異なる PeerConnection への処理と、状態を持たない変換などの処理は共有のスレッドプールで並行に実行します。
+ * そのため、ある PeerConnection の setRemoteDescription() などが時間がかかっても、
+ * 他の PeerConnection やネイティブモジュールのスレッドの処理は待たされません。
+ * <p>
+ * 本クラスのメソッドは任意のスレッドから呼び出すことができます。
+ */
+final class WebRTCScheduler {
+
+    private static final String TAG = "WebRTCModule";
+
+    /**
+     * 共有のスレッドプールのスレッド数です。 libwebrtc の呼び出しは最終的にシグナリングスレッドで直列化されるため、多くは必要ありません。
+     */
+    private static final int POOL_SIZE = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * 共有のスレッドプールの上で、登録された処理を 1 つずつ順に実行します。
+     */
+    private final class SerialExecutor implements Executor {
+        @NonNull
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean isRunning = false;
+
+        @Override
+        public void execute(@NonNull final Runnable task) {
+            synchronized (this) {
+                tasks.add(task);
+                if (isRunning) {
+                    return;
+                }
+                isRunning = true;
+            }
+            scheduleNext();
+        }
+
+        private void scheduleNext() {
+            try {
+                pool.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // 破棄済み
+                synchronized (this) {
+                    tasks.clear();
+                    isRunning = false;
+                }
+            }
+        }
+
+        private void drain() {
+            final Runnable task;
+            synchronized (this) {
+                task = tasks.poll();
+                if (task == null) {
+                    isRunning = false;
+                    return;
+                }
+            }
+            runSafely(task);
+            // 1 つ実行するごとにプールへ戻し、他の PeerConnection の処理がスレッドを使えるようにする
+            scheduleNext();
+        }
+    }
+
+    @NonNull
+    private final ExecutorService pool;
+    /**
+     * Key is valueTag of PeerConnection.
+     */
+    @NonNull
+    private final Map<String, SerialExecutor> serialExecutors = new HashMap<>();
+
+    WebRTCScheduler() {
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, "WebRTCScheduler-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        pool = executor;
+    }
+
+    /**
+     * 指定された PeerConnection の直列の実行キューを返します。
+     */
+    @NonNull
+    synchronized Executor executorFor(@NonNull final String valueTag) {
+        SerialExecutor executor = serialExecutors.get(valueTag);
+        if (executor == null) {
+            executor = new SerialExecutor();
+            serialExecutors.put(valueTag, executor);
+        }
+        return executor;
+    }
+
+    /**
+     * 指定された PeerConnection の実行キューがあれば返します。
+     * 取り除かれた (PeerConnection が閉じられた) 後や破棄した後は、新しい実行キューを作らずに null を返します。
+     * ネイティブモジュールの外から PeerConnection の処理を登録する場合に使用します。
+     */
+    @Nullable
+    synchronized Executor findExecutor(@NonNull final String valueTag) {
+        return serialExecutors.get(valueTag);
+    }
+
+    /**
+     * 指定された PeerConnection の実行キューを取り除きます。
+     * すでに登録されている処理はそのまま実行されます。
+     */
+    synchronized void remove(@NonNull final String valueTag) {
+        serialExecutors.remove(valueTag);
+    }
+
+    /**
+     * 状態を持たない処理を共有のスレッドプールで実行します。実行の順序は保証しません。
+     */
+    void execute(@NonNull final Runnable task) {
+        try {
+            pool.execute(() -> runSafely(task));
+        } catch (RejectedExecutionException e) {
+            Log.d(TAG, "WebRTCScheduler.execute() - already disposed");
+        }
+    }
+
+    /**
+     * 新しい処理の受け付けを止め、実行中の処理が終わるまで最大 timeoutMs 待ちます。
+     * 実行キューに残っている処理は実行せずに捨てます。
+     *
+     * @return 時間内に実行中の処理がすべて終わった場合は true
+     */
+    boolean dispose(final long timeoutMs) {
+        synchronized (this) {
+            serialExecutors.clear();
+        }
+        pool.shutdown();
+        try {
+            return pool.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void runSafely(@NonNull final Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            // 1 つの処理の失敗で実行キューが止まらないようにする
+            Log.e(TAG, "WebRTCScheduler - task failed", e);
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+
+import org.webrtc.MediaConstraints;
+import org.webrtc.PeerConnection;
+import org.webrtc.SdpObserver;
+import org.webrtc.SessionDescription;
+
+/**
+ * SDP の生成と設定を、 JS を経由せずにネイティブで続けて行います。
+ * <p>
+ * createOffer() で生成した SDP をそのまま setLocalDescription() に渡すため、
+ * 大きな SDP の文字列がネイティブと JS の間を往復しません。
+ * コールバックは libwebrtc のシグナリングスレッドから呼ばれます。
+ */
+final class WebRTCSdpPipeline {
+
+    interface Callback {
+        /**
+         * すべての処理が成功したときに、最後に設定した SDP を渡します。
+         */
+        void onSuccess(@NonNull SessionDescription description);
+
+        void onFailure(@NonNull String code, @Nullable String message);
+    }
+
+    /**
+     * 使わないコールバックは FatalError として扱う SdpObserver です。
+     */
+    private static abstract class Observer implements SdpObserver {
+        @NonNull
+        final Callback callback;
+
+        Observer(@NonNull final Callback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void onCreateSuccess(SessionDescription sessionDescription) {
+            callback.onFailure("FatalError", "this must not be called");
+        }
+
+        @Override
+        public void onSetSuccess() {
+            callback.onFailure("FatalError", "this must not be called");
+        }
+
+        @Override
+        public void onCreateFailure(String s) {
+            callback.onFailure("FatalError", "this must not be called");
+        }
+
+        @Override
+        public void onSetFailure(String s) {
+            callback.onFailure("FatalError", "this must not be called");
+        }
+    }
+
+    private WebRTCSdpPipeline() {
+    }
+
+    /**
+     * Offer を生成し、ローカルの SDP に設定します。
+     */
+    static void offerAndSetLocal(@NonNull final PeerConnection peerConnection,
+                                 @NonNull final MediaConstraints constraints,
+                                 @NonNull final Callback callback) {
+        peerConnection.createOffer(new Observer(callback) {
+            @Override
+            public void onCreateSuccess(SessionDescription offer) {
+                setLocal(peerConnection, offer, callback);
+            }
+
+            @Override
+            public void onCreateFailure(String s) {
+                callback.onFailure("CreateOfferFailed", s);
+            }
+        }, constraints);
+    }
+
+    /**
+     * リモートの Offer を設定し、 Answer を生成してローカルの SDP に設定します。
+     */
+    static void answerRemoteAndSetLocal(@NonNull final PeerConnection peerConnection,
+                                        @NonNull final SessionDescription remoteDescription,
+                                        @NonNull final MediaConstraints constraints,
+                                        @NonNull final Callback callback) {
+        setRemote(peerConnection, remoteDescription, new Callback() {
+            @Override
+            public void onSuccess(@NonNull SessionDescription description) {
+                answerAndSetLocal(peerConnection, constraints, callback);
+            }
+
+            @Override
+            public void onFailure(@NonNull String code, @Nullable String message) {
+                callback.onFailure(code, message);
+            }
+        });
+    }
+
+    /**
+     * Answer を生成し、ローカルの SDP に設定します。
+     */
+    static void answerAndSetLocal(@NonNull final PeerConnection peerConnection,
+                                  @NonNull final MediaConstraints constraints,
+                                  @NonNull final Callback callback) {
+        peerConnection.createAnswer(new Observer(callback) {
+            @Override
+            public void onCreateSuccess(SessionDescription answer) {
+                setLocal(peerConnection, answer, callback);
+            }
+
+            @Override
+            public void onCreateFailure(String s) {
+                callback.onFailure("CreateAnswerFailed", s);
+            }
+        }, constraints);
+    }
+
+    /**
+     * リモートの SDP を設定します。
+     */
+    static void setRemote(@NonNull final PeerConnection peerConnection,
+                          @NonNull final SessionDescription remoteDescription,
+                          @NonNull final Callback callback) {
+        peerConnection.setRemoteDescription(new Observer(callback) {
+            @Override
+            public void onSetSuccess() {
+                callback.onSuccess(remoteDescription);
+            }
+
+            @Override
+            public void onSetFailure(String s) {
+                callback.onFailure("SetRemoteDescriptionFailed", s);
+            }
+        }, remoteDescription);
+    }
+
+    /**
+     * ローカルの Offer を取り消し (rollback) 、 stable の状態に戻します。
+     */
+    static void rollbackLocal(@NonNull final PeerConnection peerConnection,
+                              @NonNull final Callback callback) {
+        setLocal(peerConnection, new SessionDescription(SessionDescription.Type.ROLLBACK, ""), callback);
+    }
+
+    private static void setLocal(@NonNull final PeerConnection peerConnection,
+                                 @NonNull final SessionDescription localDescription,
+                                 @NonNull final Callback callback) {
+        peerConnection.setLocalDescription(new Observer(callback) {
+            @Override
+            public void onSetSuccess() {
+                callback.onSuccess(localDescription);
+            }
+
+            @Override
+            public void onSetFailure(String s) {
+                callback.onFailure("SetLocalDescriptionFailed", s);
+            }
+        }, localDescription);
+    }
+
+}
@@ -0,0 +1,153 @@
+package jp.shiguredo.react.webrtckit;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+import androidx.annotation.NonNull;
+
+import org.webrtc.EglBase;
+import org.webrtc.SurfaceViewRenderer;
+import org.webrtc.VideoFrame;
+
+/**
+ * 描画の統計 ({@link WebRTCVideoRenderStats}) を集計する SurfaceViewRenderer です。
+ * {@link WebRTCVideoRendererPool} が生成し、 RTCVideoView の間で再利用します。
+ * <p>
+ * 描画サーフェスの縮小率 ({@link #setRenderScale}) を指定すると、ビューの大きさを縮小したサーフェスに描画します。
+ * SurfaceViewRenderer はレイアウトのたびと映像の解像度が変わるたびに、内部で getHolder().setSizeFromLayout() を呼び出して
+ * サーフェスの大きさを戻してしまうため、 getHolder() が返す SurfaceHolder でその呼び出しを縮小した大きさの指定に置き換えます。
+ */
+final class WebRTCSurfaceViewRenderer extends SurfaceViewRenderer {
+
+    @NonNull
+    final WebRTCVideoRenderStats stats = new WebRTCVideoRenderStats();
+
+    // SurfaceViewRenderer のコンストラクタから getHolder() が呼ばれるため、初期値を代入せずに遅延して生成する
+    private ScaledSurfaceHolder scaledHolder;
+    private float renderScale = 1;
+
+    WebRTCSurfaceViewRenderer(@NonNull final Context context) {
+        super(context);
+    }
+
+    /**
+     * 統計を集計する GlDrawer を使って初期化します。
+     */
+    void init(@NonNull final EglBase.Context eglContext) {
+        init(eglContext, null, EglBase.CONFIG_PLAIN, stats);
+    }
+
+    /**
+     * 描画サーフェスの縮小率 (0 より大きく 1 以下) を設定します。メインスレッドから呼び出してください。
+     */
+    void setRenderScale(final float renderScale) {
+        this.renderScale = renderScale > 0 ? Math.min(1, renderScale) : 1;
+        getHolder().setSizeFromLayout();
+    }
+
+    @Override
+    public SurfaceHolder getHolder() {
+        if (scaledHolder == null) {
+            scaledHolder = new ScaledSurfaceHolder(super.getHolder());
+        }
+        return scaledHolder;
+    }
+
+    @Override
+    public void onFrame(@NonNull final VideoFrame frame) {
+        stats.onFrameReceived(frame);
+        super.onFrame(frame);
+    }
+
+    /**
+     * setSizeFromLayout() を、縮小率が 1 未満の場合はビューの大きさを縮小した setFixedSize() に置き換える SurfaceHolder です。
+     * 同じ大きさの指定は SurfaceView が無視するため、レイアウトのたびに呼ばれても再レイアウトは起きません。
+     */
+    private final class ScaledSurfaceHolder implements SurfaceHolder {
+
+        @NonNull
+        private final SurfaceHolder holder;
+
+        ScaledSurfaceHolder(@NonNull final SurfaceHolder holder) {
+            this.holder = holder;
+        }
+
+        @Override
+        public void setSizeFromLayout() {
+            final int width = getWidth();
+            final int height = getHeight();
+            if (renderScale < 1 && width > 0 && height > 0) {
+                holder.setFixedSize(
+                        Math.max(1, Math.round(width * renderScale)),
+                        Math.max(1, Math.round(height * renderScale)));
+            } else {
+                holder.setSizeFromLayout();
+            }
+        }
+
+        @Override
+        public void setFixedSize(final int width, final int height) {
+            holder.setFixedSize(width, height);
+        }
+
+        @Override
+        public void addCallback(final Callback callback) {
+            holder.addCallback(callback);
+        }
+
+        @Override
+        public void removeCallback(final Callback callback) {
+            holder.removeCallback(callback);
+        }
+
+        @Override
+        public boolean isCreating() {
+            return holder.isCreating();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void setType(final int type) {
+            holder.setType(type);
+        }
+
+        @Override
+        public void setFormat(final int format) {
+            holder.setFormat(format);
+        }
+
+        @Override
+        public void setKeepScreenOn(final boolean screenOn) {
+            holder.setKeepScreenOn(screenOn);
+        }
+
+        @Override
+        public Canvas lockCanvas() {
+            return holder.lockCanvas();
+        }
+
+        @Override
+        public Canvas lockCanvas(final Rect dirty) {
+            return holder.lockCanvas(dirty);
+        }
+
+        @Override
+        public void unlockCanvasAndPost(final Canvas canvas) {
+            holder.unlockCanvasAndPost(canvas);
+        }
+
+        @Override
+        public Rect getSurfaceFrame() {
+            return holder.getSurfaceFrame();
+        }
+
+        @Override
+        public Surface getSurface() {
+            return holder.getSurface();
+        }
+
+    }
+
+}
@@ -0,0 +1,199 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import org.webrtc.CapturerObserver;
+import org.webrtc.SurfaceTextureHelper;
+import org.webrtc.VideoCapturer;
+import org.webrtc.VideoFrame;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * カメラを使わずにテストパターンの映像を生成する VideoCapturer です。
+ * <p>
+ * 斜めのグラデーションが一定の速度で流れる映像に、 complexity (0.0 - 1.0) に比例した数のノイズブロックを重ねます。
+ * ノイズは固定のシードで生成するため、同じ設定であれば毎回同じ映像が生成され、エンコーダーの負荷を再現性のある形で計測できます。
+ * フレームバッファは {@link WebRTCVideoFrameBufferPool} から取得して再利用します。
+ */
+final class WebRTCSyntheticVideoCapturer implements VideoCapturer {
+
+    private static final int BLOCK_SIZE = 16;
+    private static final long RANDOM_SEED = 0x5EED;
+
+    private final double complexity;
+    @Nullable
+    private CapturerObserver capturerObserver = null;
+    @Nullable
+    private HandlerThread thread = null;
+    @Nullable
+    private Handler handler = null;
+    private int width;
+    private int height;
+    private int framerate;
+    private long frameCount = 0;
+    // 送出時刻は誤差が累積しないよう、開始時刻とそこからのフレーム数から求める (Handler.postAtTime() の基準の uptimeMillis)
+    private long scheduleStartTimeMs = 0;
+    private long scheduledFrameCount = 0;
+    private boolean isRunning = false;
+    @NonNull
+    private byte[] gradient = new byte[0];
+    @NonNull
+    private final byte[] noise = new byte[BLOCK_SIZE * 1024];
+    @NonNull
+    private Random random = new Random(RANDOM_SEED);
+
+    WebRTCSyntheticVideoCapturer(final double complexity) {
+        this.complexity = Math.max(0.0, Math.min(1.0, complexity));
+    }
+
+    //region VideoCapturer
+
+    @Override
+    public void initialize(@Nullable final SurfaceTextureHelper surfaceTextureHelper,
+                           @Nullable final Context context,
+                           @NonNull final CapturerObserver capturerObserver) {
+        this.capturerObserver = capturerObserver;
+        this.thread = new HandlerThread("WebRTCSyntheticCaptureThread");
+        this.thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    @Override
+    public void startCapture(final int width, final int height, final int framerate) {
+        if (handler == null || capturerObserver == null) {
+            throw new IllegalStateException("WebRTCSyntheticVideoCapturer is not initialized");
+        }
+        handler.post(() -> {
+            configure(width, height, framerate);
+            isRunning = true;
+            capturerObserver.onCapturerStarted(true);
+            captureNextFrame();
+        });
+    }
+
+    @Override
+    public void stopCapture() throws InterruptedException {
+        if (handler == null || capturerObserver == null) {
+            return;
+        }
+        final Object lock = new Object();
+        final boolean[] isDone = {false};
+        handler.post(() -> {
+            isRunning = false;
+            handler.removeCallbacksAndMessages(null);
+            capturerObserver.onCapturerStopped();
+            synchronized (lock) {
+                isDone[0] = true;
+                lock.notifyAll();
+            }
+        });
+        synchronized (lock) {
+            while (!isDone[0]) {
+                lock.wait();
+            }
+        }
+    }
+
+    @Override
+    public void changeCaptureFormat(final int width, final int height, final int framerate) {
+        if (handler == null) {
+            return;
+        }
+        handler.post(() -> configure(width, height, framerate));
+    }
+
+    @Override
+    public void dispose() {
+        if (thread != null) {
+            thread.quitSafely();
+            thread = null;
+            handler = null;
+        }
+    }
+
+    @Override
+    public boolean isScreencast() {
+        return false;
+    }
+
+    //endregion
+
+    private void configure(final int width, final int height, final int framerate) {
+        // I420 の色差プレーンのために偶数に揃える
+        this.width = Math.max(2, width & ~1);
+        this.height = Math.max(2, height & ~1);
+        this.framerate = Math.max(1, framerate);
+        this.gradient = new byte[this.width + this.height + 256];
+        for (int i = 0; i < gradient.length; i++) {
+            gradient[i] = (byte) i;
+        }
+        this.random = new Random(RANDOM_SEED);
+        this.random.nextBytes(noise);
+        this.scheduleStartTimeMs = SystemClock.uptimeMillis();
+        this.scheduledFrameCount = 0;
+    }
+
+    private void captureNextFrame() {
+        if (!isRunning || handler == null || capturerObserver == null) {
+            return;
+        }
+        final VideoFrame.I420Buffer buffer = WebRTCVideoFrameBufferPool.getShared().acquire(width, height);
+        drawFrame(buffer);
+        final VideoFrame frame = new VideoFrame(buffer, 0, TimeUnit.MILLISECONDS.toNanos(SystemClock.elapsedRealtime()));
+        capturerObserver.onFrameCaptured(frame);
+        frame.release();
+        frameCount++;
+
+        scheduledFrameCount++;
+        final long nextTimeMs = scheduleStartTimeMs + scheduledFrameCount * 1000 / framerate;
+        handler.postAtTime(this::captureNextFrame, nextTimeMs);
+    }
+
+    private void drawFrame(@NonNull final VideoFrame.I420Buffer buffer) {
+        // 輝度: 1フレームあたり2画素ずつ流れる斜めのグラデーション
+        final ByteBuffer dataY = buffer.getDataY();
+        final int strideY = buffer.getStrideY();
+        final int offset = (int) ((frameCount * 2) & 0xFF);
+        for (int y = 0; y < height; y++) {
+            dataY.position(y * strideY);
+            dataY.put(gradient, (y + offset) & 0xFF, width);
+        }
+
+        // ノイズブロック: complexity に比例した数のブロックを毎フレーム異なる位置に描く
+        final int blocksX = width / BLOCK_SIZE;
+        final int blocksY = height / BLOCK_SIZE;
+        final int noiseBlocks = (int) Math.round(blocksX * blocksY * complexity);
+        for (int i = 0; i < noiseBlocks; i++) {
+            final int bx = random.nextInt(Math.max(1, blocksX)) * BLOCK_SIZE;
+            final int by = random.nextInt(Math.max(1, blocksY)) * BLOCK_SIZE;
+            final int noiseOffset = random.nextInt(noise.length / BLOCK_SIZE - BLOCK_SIZE) * BLOCK_SIZE;
+            for (int row = 0; row < BLOCK_SIZE && by + row < height; row++) {
+                dataY.position((by + row) * strideY + bx);
+                dataY.put(noise, noiseOffset + row * BLOCK_SIZE, Math.min(BLOCK_SIZE, width - bx));
+            }
+        }
+        dataY.rewind();
+
+        // 色差: フレームごとにゆっくり変化する単色
+        final int chromaHeight = (height + 1) / 2;
+        final byte u = (byte) (128 + 64 * Math.sin(frameCount / 30.0));
+        final byte v = (byte) (128 + 64 * Math.cos(frameCount / 30.0));
+        fillPlane(buffer.getDataU(), buffer.getStrideU(), chromaHeight, u);
+        fillPlane(buffer.getDataV(), buffer.getStrideV(), chromaHeight, v);
+    }
+
+    private static void fillPlane(@NonNull final ByteBuffer plane, final int stride, final int rows, final byte value) {
+        for (int i = 0; i < stride * rows && i < plane.capacity(); i++) {
+            plane.put(i, value);
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.NonNull;
+
+import org.webrtc.JavaI420Buffer;
+import org.webrtc.VideoFrame;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * I420 のフレームバッファを大きさごとに再利用するプールです。
+ * <p>
+ * JavaI420Buffer.allocate() はフレームごとにダイレクトバッファを確保するため、
+ * 720p/30fps では毎秒 40MB 程度の確保と GC が発生します。
+ * 本プールから取得したバッファは、参照カウントが 0 になった時点 (release() の呼び出し) で自動的にプールに戻されます。
+ * <p>
+ * ヒット率は WebRTCKit.FrameBufferPool.Hit (0 がミス、 1 がヒット) 、
+ * 使用中のバッファ数は WebRTCKit.FrameBufferPool.InUseBuffers としてメトリクスに記録します。
+ * 任意のスレッドから使用できます。
+ */
+public final class WebRTCVideoFrameBufferPool {
+
+    /**
+     * 大きさごとに保持する未使用バッファの上限です。
+     */
+    private static final int MAX_FREE_BUFFERS_PER_SIZE = 4;
+
+    private static final WebRTCVideoFrameBufferPool shared = new WebRTCVideoFrameBufferPool();
+
+    /**
+     * モジュール全体で共有するプールを返します。フレームの加工処理からも使用できます。
+     */
+    @NonNull
+    public static WebRTCVideoFrameBufferPool getShared() {
+        return shared;
+    }
+
+    /**
+     * Key is "[width]x[height]", Value is the free buffers.
+     */
+    private final Map<String, ArrayDeque<ByteBuffer>> freeBuffers = new HashMap<>();
+    private int inUseCount = 0;
+    private int peakInUseCount = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * 指定された大きさの I420 バッファを取得します。未使用のバッファがなければ新規に確保します。
+     * 内容は初期化されていません。
+     */
+    @NonNull
+    public VideoFrame.I420Buffer acquire(final int width, final int height) {
+        final int chromaWidth = (width + 1) / 2;
+        final int chromaHeight = (height + 1) / 2;
+        final int sizeY = width * height;
+        final int sizeUV = chromaWidth * chromaHeight;
+        final String key = width + "x" + height;
+
+        ByteBuffer buffer;
+        final int inUse;
+        synchronized (this) {
+            final ArrayDeque<ByteBuffer> buffers = freeBuffers.get(key);
+            buffer = buffers != null ? buffers.poll() : null;
+            if (buffer != null) {
+                hitCount++;
+            } else {
+                missCount++;
+            }
+            inUse = ++inUseCount;
+            peakInUseCount = Math.max(peakInUseCount, inUseCount);
+        }
+        WebRTCModuleMetrics.addSample("WebRTCKit.FrameBufferPool.Hit", 1, 2, 3, buffer != null ? 1 : 0);
+        WebRTCModuleMetrics.addSample("WebRTCKit.FrameBufferPool.InUseBuffers", 1, 100, 50, inUse);
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(sizeY + sizeUV * 2);
+        }
+
+        // JavaI420Buffer.allocate() と同じく、 1 つのバッファを Y, U, V の 3 つに分割する
+        final ByteBuffer whole = buffer;
+        whole.position(0);
+        whole.limit(sizeY);
+        final ByteBuffer dataY = whole.slice();
+        whole.position(sizeY);
+        whole.limit(sizeY + sizeUV);
+        final ByteBuffer dataU = whole.slice();
+        whole.position(sizeY + sizeUV);
+        whole.limit(sizeY + sizeUV * 2);
+        final ByteBuffer dataV = whole.slice();
+        whole.clear();
+
+        return JavaI420Buffer.wrap(width, height, dataY, width, dataU, chromaWidth, dataV, chromaWidth,
+                () -> recycle(key, whole));
+    }
+
+    private synchronized void recycle(@NonNull final String key, @NonNull final ByteBuffer buffer) {
+        inUseCount--;
+        ArrayDeque<ByteBuffer> buffers = freeBuffers.get(key);
+        if (buffers == null) {
+            buffers = new ArrayDeque<>();
+            freeBuffers.put(key, buffers);
+        }
+        if (buffers.size() < MAX_FREE_BUFFERS_PER_SIZE) {
+            buffers.push(buffer);
+        }
+    }
+
+    /**
+     * 未使用のバッファをすべて破棄します。使用中のバッファは解放時に再びプールされます。
+     */
+    public synchronized void trim() {
+        freeBuffers.clear();
+    }
+
+    public synchronized double getHitRate() {
+        final long total = hitCount + missCount;
+        return total > 0 ? (double) hitCount / total : 0.0;
+    }
+
+    public synchronized int getPeakInUseCount() {
+        return peakInUseCount;
+    }
+
+}
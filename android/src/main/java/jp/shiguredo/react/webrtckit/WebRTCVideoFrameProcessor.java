@@ -0,0 +1,59 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+
+import org.webrtc.VideoFrame;
+
+/**
+ * キャプチャされた映像フレームを VideoSource に渡す前に加工する処理です。
+ * 複数の処理を {@link WebRTCVideoProcessorChain} に連結して使用します。
+ * <p>
+ * 独自の処理を追加するには、本インターフェースを実装して {@link WebRTCVideoFrameProcessorRegistry} に登録し、
+ * JS 側で RTCMediaStreamTrack.setVideoProcessors() に登録名を指定してください。
+ * <p>
+ * process() はキャプチャスレッドから呼び出されます。処理に時間がかかるとフレームレートが低下するので注意してください。
+ * 新しい I420 バッファが必要な場合は、 {@link WebRTCVideoFrameBufferPool#getShared()} から取得すると確保のコストを抑えられます。
+ */
+public interface WebRTCVideoFrameProcessor {
+
+    /**
+     * 処理が扱うバッファの種類です。
+     * チェーンは、 I420 の処理の前に限りテクスチャから I420 への変換を行います。
+     * TEXTURE の処理には I420 のフレームは渡されず、その処理はスキップされます。
+     */
+    enum BufferType {
+        /**
+         * VideoFrame.TextureBuffer のみを扱います。
+         */
+        TEXTURE,
+        /**
+         * VideoFrame.I420Buffer のみを扱います。
+         */
+        I420,
+        /**
+         * バッファの種類を問いません。 cropAndScale() などバッファの共通インターフェースのみを使う処理です。
+         */
+        ANY
+    }
+
+    /**
+     * メトリクスやログに使用する名前です。
+     */
+    @NonNull
+    String getName();
+
+    @NonNull
+    BufferType getBufferType();
+
+    /**
+     * フレームを加工して返します。
+     * <p>
+     * 与えられたフレームの所有権はチェーンにあります。
+     * 新しいフレームを返した場合、入力のフレームはチェーンが解放します。入力のフレームをそのまま返すこともできます。
+     * null を返すとフレームは破棄され、以降の処理には渡されません。
+     */
+    @Nullable
+    VideoFrame process(@NonNull VideoFrame frame);
+
+}
@@ -0,0 +1,184 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.ReadableMap;
+
+import org.webrtc.VideoFrame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static jp.shiguredo.react.webrtckit.Readables.jint;
+
+/**
+ * 名前から {@link WebRTCVideoFrameProcessor} を生成するファクトリーを管理します。
+ * <p>
+ * 組み込みの処理として以下を登録しています。
+ * <ul>
+ * <li>crop - x, y, width, height で指定された範囲を切り出します。</li>
+ * <li>scale - width, height に拡大縮小します。</li>
+ * <li>rotate - degrees (90 の倍数) だけ回転します。回転はフレームのメタデータとして扱われ、画素は変換しません。</li>
+ * </ul>
+ * アプリケーションは {@link #register} で独自の処理を追加できます。
+ */
+public final class WebRTCVideoFrameProcessorRegistry {
+
+    public interface Factory {
+        /**
+         * JS から指定された設定で処理を生成します。
+         * options には name を含むステージの設定がそのまま渡されます。
+         */
+        @NonNull
+        WebRTCVideoFrameProcessor create(@NonNull ReadableMap options);
+    }
+
+    private static final Map<String, Factory> factories = new HashMap<>();
+
+    static {
+        factories.put("crop", options -> new CropProcessor(
+                jint(options, "x", 0),
+                jint(options, "y", 0),
+                jint(options, "width", 0),
+                jint(options, "height", 0)));
+        factories.put("scale", options -> new ScaleProcessor(
+                jint(options, "width", 0),
+                jint(options, "height", 0)));
+        factories.put("rotate", options -> new RotateProcessor(jint(options, "degrees", 0)));
+    }
+
+    private WebRTCVideoFrameProcessorRegistry() {
+    }
+
+    /**
+     * 処理のファクトリーを登録します。同じ名前のファクトリーがすでにある場合は置き換えます。
+     */
+    public static synchronized void register(@NonNull final String name, @NonNull final Factory factory) {
+        factories.put(name, factory);
+    }
+
+    public static synchronized void unregister(@NonNull final String name) {
+        factories.remove(name);
+    }
+
+    /**
+     * 指定された名前の処理を生成します。ファクトリーが登録されていない場合は null を返します。
+     */
+    @Nullable
+    static synchronized WebRTCVideoFrameProcessor create(@NonNull final String name, @NonNull final ReadableMap options) {
+        final Factory factory = factories.get(name);
+        return factory != null ? factory.create(options) : null;
+    }
+
+    //region Built-in processors
+
+    private static final class CropProcessor implements WebRTCVideoFrameProcessor {
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+
+        CropProcessor(final int x, final int y, final int width, final int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        @NonNull
+        @Override
+        public String getName() {
+            return "crop";
+        }
+
+        @NonNull
+        @Override
+        public BufferType getBufferType() {
+            return BufferType.ANY;
+        }
+
+        @Nullable
+        @Override
+        public VideoFrame process(@NonNull final VideoFrame frame) {
+            final VideoFrame.Buffer buffer = frame.getBuffer();
+            final int cropX = Math.max(0, Math.min(x, buffer.getWidth() - 2));
+            final int cropY = Math.max(0, Math.min(y, buffer.getHeight() - 2));
+            final int cropWidth = width > 0 ? Math.min(width, buffer.getWidth() - cropX) : buffer.getWidth() - cropX;
+            final int cropHeight = height > 0 ? Math.min(height, buffer.getHeight() - cropY) : buffer.getHeight() - cropY;
+            if (cropX == 0 && cropY == 0 && cropWidth == buffer.getWidth() && cropHeight == buffer.getHeight()) {
+                return frame;
+            }
+            final VideoFrame.Buffer cropped = buffer.cropAndScale(cropX, cropY, cropWidth, cropHeight, cropWidth, cropHeight);
+            return new VideoFrame(cropped, frame.getRotation(), frame.getTimestampNs());
+        }
+    }
+
+    private static final class ScaleProcessor implements WebRTCVideoFrameProcessor {
+        private final int width;
+        private final int height;
+
+        ScaleProcessor(final int width, final int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @NonNull
+        @Override
+        public String getName() {
+            return "scale";
+        }
+
+        @NonNull
+        @Override
+        public BufferType getBufferType() {
+            return BufferType.ANY;
+        }
+
+        @Nullable
+        @Override
+        public VideoFrame process(@NonNull final VideoFrame frame) {
+            final VideoFrame.Buffer buffer = frame.getBuffer();
+            if (width <= 0 || height <= 0 || (width == buffer.getWidth() && height == buffer.getHeight())) {
+                return frame;
+            }
+            final VideoFrame.Buffer scaled = buffer.cropAndScale(0, 0, buffer.getWidth(), buffer.getHeight(), width, height);
+            return new VideoFrame(scaled, frame.getRotation(), frame.getTimestampNs());
+        }
+    }
+
+    private static final class RotateProcessor implements WebRTCVideoFrameProcessor {
+        private final int degrees;
+
+        RotateProcessor(final int degrees) {
+            // 90 の倍数に丸め、 0 - 270 の範囲に正規化する
+            this.degrees = ((Math.round(degrees / 90.0f) * 90) % 360 + 360) % 360;
+        }
+
+        @NonNull
+        @Override
+        public String getName() {
+            return "rotate";
+        }
+
+        @NonNull
+        @Override
+        public BufferType getBufferType() {
+            return BufferType.ANY;
+        }
+
+        @Nullable
+        @Override
+        public VideoFrame process(@NonNull final VideoFrame frame) {
+            if (degrees == 0) {
+                return frame;
+            }
+            final VideoFrame.Buffer buffer = frame.getBuffer();
+            buffer.retain();
+            return new VideoFrame(buffer, (frame.getRotation() + degrees) % 360, frame.getTimestampNs());
+        }
+    }
+
+    //endregion
+
+}
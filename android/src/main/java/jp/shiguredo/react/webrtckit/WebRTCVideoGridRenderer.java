@@ -0,0 +1,431 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+import android.graphics.Matrix;
+import android.opengl.GLES20;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Surface;
+
+import org.webrtc.EglBase;
+import org.webrtc.GlRectDrawer;
+import org.webrtc.GlTextureFrameBuffer;
+import org.webrtc.RendererCommon;
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoFrameDrawer;
+import org.webrtc.VideoSink;
+import org.webrtc.VideoTrack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 複数の映像トラックを 1 つの Surface にタイル状に描画します。
+ * <p>
+ * SurfaceViewRenderer はトラックごとに EGL サーフェスと描画スレッドを持つため、
+ * 多数の映像を並べると描画スレッドとコンテキストの切り替えが負荷になります。
+ * 本クラスは 1 つの描画スレッドと 1 つの EGL サーフェスで、タイルごとにビューポートを切り替えて描画します。
+ * <p>
+ * 描画はいずれかのトラックで新しいフレームが届いたときに、次の垂直同期 (Choreographer) で行います。
+ * 垂直同期までに複数のフレームが届いた場合は 1 回の描画にまとめるため、トラック数によらず描画は画面のリフレッシュレートを超えません。
+ * <p>
+ * 届いたフレームは描画のたびにタイルごとのテクスチャに一度だけ描き込み、すぐに解放します。
+ * ハードウェアデコーダーのテクスチャのフレームは、解放されるまで次のフレームがデコーダーから渡されないため、保持し続けてはいけません。
+ * グリッドはそれぞれのタイルのテクスチャから描画するため、更新されていないタイルの映像を毎回アップロードし直すこともありません。
+ */
+final class WebRTCVideoGridRenderer {
+
+    private static final String TAG = "WebRTCVideoGridRenderer";
+
+    /**
+     * 1 つのタイルです。トラックのシンクとして、まだ描画していない最新のフレームのみを保持します。
+     */
+    private final class Tile implements VideoSink {
+        @NonNull
+        final VideoTrack track;
+        @Nullable
+        private VideoFrame pendingFrame = null;
+        // 以下は描画スレッドでのみ使用する
+        /**
+         * 最後に描画したフレームを描き込んだテクスチャです。まだフレームを描画していない場合は null です。
+         */
+        @Nullable
+        GlTextureFrameBuffer texture = null;
+        /**
+         * texture に描き込んだフレームの回転後のアスペクト比です。
+         */
+        float textureAspectRatio = 1;
+
+        Tile(@NonNull final VideoTrack track) {
+            this.track = track;
+        }
+
+        @Override
+        public void onFrame(@NonNull final VideoFrame frame) {
+            synchronized (this) {
+                if (pendingFrame != null) {
+                    pendingFrame.release();
+                }
+                frame.retain();
+                pendingFrame = frame;
+            }
+            requestRender();
+        }
+
+        /**
+         * まだ描画していないフレームを取り出して返します。呼び出し元が release() してください。
+         */
+        @Nullable
+        synchronized VideoFrame takeFrame() {
+            final VideoFrame frame = pendingFrame;
+            pendingFrame = null;
+            return frame;
+        }
+
+        /**
+         * フレームをテクスチャに描き込みます。描画スレッドから呼び出してください。
+         * タイルを覆うのに必要な大きさまで縮小し、大きな映像でもテクスチャのメモリと描画の負荷を抑えます。
+         */
+        void updateTexture(@NonNull final VideoFrame frame, final int tileWidth, final int tileHeight) {
+            final int frameWidth = frame.getRotatedWidth();
+            final int frameHeight = frame.getRotatedHeight();
+            final float scale = Math.min(1f, Math.max((float) tileWidth / frameWidth, (float) tileHeight / frameHeight));
+            final int width = Math.max(1, Math.round(frameWidth * scale));
+            final int height = Math.max(1, Math.round(frameHeight * scale));
+            if (texture == null) {
+                texture = new GlTextureFrameBuffer(GLES20.GL_RGBA);
+            }
+            texture.setSize(width, height);
+            GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, texture.getFrameBufferId());
+            frameDrawer.drawFrame(frame, drawer, null, 0, 0, width, height);
+            GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+            textureAspectRatio = (float) frameWidth / frameHeight;
+        }
+
+        /**
+         * テクスチャを解放します。描画スレッドから呼び出してください。
+         */
+        void releaseTexture() {
+            if (texture != null) {
+                texture.release();
+                texture = null;
+            }
+        }
+
+        synchronized void clear() {
+            if (pendingFrame != null) {
+                pendingFrame.release();
+                pendingFrame = null;
+            }
+        }
+    }
+
+    @Nullable
+    private HandlerThread renderThread = null;
+    @Nullable
+    private volatile Handler renderHandler = null;
+    // 以下は描画スレッドでのみ使用する
+    @Nullable
+    private EglBase eglBase = null;
+    @Nullable
+    private GlRectDrawer drawer = null;
+    @Nullable
+    private VideoFrameDrawer frameDrawer = null;
+    private final Matrix drawMatrix = new Matrix();
+    @Nullable
+    private Choreographer choreographer = null;
+    @NonNull
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> render();
+    /**
+     * テクスチャを持っているタイルです。グリッドから外されたタイルのテクスチャを解放するために使います。
+     */
+    @NonNull
+    private final List<Tile> texturedTiles = new ArrayList<>();
+
+    private final Object tilesLock = new Object();
+    @NonNull
+    private List<Tile> tiles = new ArrayList<>();
+    private volatile int columns = 0;
+    private volatile int spacing = 0;
+    private volatile boolean isAspectFill = true;
+    @NonNull
+    private final AtomicBoolean isRenderPending = new AtomicBoolean(false);
+
+    /**
+     * 描画スレッドを開始し、共有コンテキストから EGL コンテキストを生成します。
+     * {@link #release()} の後に呼び出すと、再び描画できるようになります。
+     */
+    void init(@NonNull final EglBase.Context sharedContext) {
+        if (renderThread != null) {
+            return;
+        }
+        renderThread = new HandlerThread(TAG);
+        renderThread.start();
+        renderHandler = new Handler(renderThread.getLooper());
+        isRenderPending.set(false);
+        renderHandler.post(() -> {
+            // 描画スレッドの Looper に紐付いた Choreographer を使う
+            choreographer = Choreographer.getInstance();
+            eglBase = EglBase.create(sharedContext, EglBase.CONFIG_PLAIN);
+            drawer = new GlRectDrawer();
+            frameDrawer = new VideoFrameDrawer();
+        });
+    }
+
+    /**
+     * 描画先の Surface を設定します。
+     */
+    void createSurface(@NonNull final Surface surface) {
+        runOnRenderThread(() -> {
+            if (eglBase != null && !eglBase.hasSurface()) {
+                eglBase.createSurface(surface);
+                eglBase.makeCurrent();
+            }
+        }, false);
+        requestRender();
+    }
+
+    /**
+     * 描画先の Surface を解放します。 Surface が破棄される前に解放が完了するよう、処理の完了を待ちます。
+     */
+    void releaseSurface() {
+        runOnRenderThread(() -> {
+            if (eglBase != null) {
+                eglBase.detachCurrent();
+                eglBase.releaseSurface();
+            }
+        }, true);
+    }
+
+    /**
+     * 描画するトラックを設定します。トラックの順にタイルを左上から並べます。
+     */
+    void setTracks(@NonNull final List<VideoTrack> tracks) {
+        synchronized (tilesLock) {
+            final List<Tile> newTiles = new ArrayList<>();
+            for (final VideoTrack track : tracks) {
+                Tile tile = null;
+                for (final Tile old : tiles) {
+                    if (old.track == track) {
+                        tile = old;
+                        break;
+                    }
+                }
+                if (tile == null) {
+                    tile = new Tile(track);
+                    track.addSink(tile);
+                }
+                newTiles.add(tile);
+            }
+            for (final Tile old : tiles) {
+                if (!newTiles.contains(old)) {
+                    old.track.removeSink(old);
+                    old.clear();
+                }
+            }
+            tiles = newTiles;
+        }
+        requestRender();
+    }
+
+    /**
+     * 列数を設定します。 0 以下の場合はタイル数から正方形に近くなるように決めます。
+     */
+    void setColumns(final int columns) {
+        this.columns = columns;
+        requestRender();
+    }
+
+    /**
+     * タイル間の間隔 (ピクセル) を設定します。
+     */
+    void setSpacing(final int spacing) {
+        this.spacing = Math.max(0, spacing);
+        requestRender();
+    }
+
+    /**
+     * true の場合はタイル全体を埋めるように映像をクロップし、 false の場合はタイル内に収まるように縮小します。
+     */
+    void setAspectFill(final boolean isAspectFill) {
+        this.isAspectFill = isAspectFill;
+        requestRender();
+    }
+
+    /**
+     * すべてのトラックからシンクを外し、描画スレッドと EGL コンテキストを解放します。
+     * 再び描画するには {@link #init} を呼び出してください。
+     */
+    void release() {
+        setTracks(new ArrayList<>());
+        runOnRenderThread(() -> {
+            if (choreographer != null) {
+                choreographer.removeFrameCallback(frameCallback);
+                choreographer = null;
+            }
+            if (eglBase != null) {
+                // テクスチャの解放には EGL コンテキストを current にする必要がある
+                if (!eglBase.hasSurface()) {
+                    eglBase.createDummyPbufferSurface();
+                }
+                eglBase.makeCurrent();
+            }
+            for (final Tile tile : texturedTiles) {
+                tile.releaseTexture();
+            }
+            texturedTiles.clear();
+            if (frameDrawer != null) {
+                frameDrawer.release();
+                frameDrawer = null;
+            }
+            if (drawer != null) {
+                drawer.release();
+                drawer = null;
+            }
+            if (eglBase != null) {
+                eglBase.release();
+                eglBase = null;
+            }
+        }, true);
+        if (renderThread != null) {
+            renderThread.quitSafely();
+            renderThread = null;
+            renderHandler = null;
+        }
+    }
+
+    /**
+     * 次の垂直同期での描画を要求します。すでに要求済みで描画されていない場合は何もしません。
+     * 任意のスレッド (各トラックのデコーダーのスレッドなど) から呼び出せます。
+     */
+    void requestRender() {
+        final Handler handler = renderHandler;
+        if (handler == null || !isRenderPending.compareAndSet(false, true)) {
+            return;
+        }
+        handler.post(() -> {
+            if (choreographer == null) {
+                isRenderPending.set(false);
+                return;
+            }
+            choreographer.postFrameCallback(frameCallback);
+        });
+    }
+
+    private void runOnRenderThread(@NonNull final Runnable runnable, final boolean waitForCompletion) {
+        final Handler handler = renderHandler;
+        if (handler == null) {
+            return;
+        }
+        if (!waitForCompletion) {
+            handler.post(runnable);
+            return;
+        }
+        final CountDownLatch latch = new CountDownLatch(1);
+        handler.post(() -> {
+            runnable.run();
+            latch.countDown();
+        });
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Log.e(TAG, "runOnRenderThread()", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //region Rendering
+
+    private void render() {
+        isRenderPending.set(false);
+        if (eglBase == null || !eglBase.hasSurface() || drawer == null || frameDrawer == null) {
+            return;
+        }
+        final List<Tile> currentTiles;
+        synchronized (tilesLock) {
+            currentTiles = tiles;
+        }
+        for (final Tile tile : texturedTiles) {
+            if (!currentTiles.contains(tile)) {
+                tile.releaseTexture();
+            }
+        }
+        texturedTiles.clear();
+        final int surfaceWidth = eglBase.surfaceWidth();
+        final int surfaceHeight = eglBase.surfaceHeight();
+        GLES20.glViewport(0, 0, surfaceWidth, surfaceHeight);
+        GLES20.glClearColor(0, 0, 0, 1);
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+
+        final int count = currentTiles.size();
+        if (count > 0) {
+            final int cols = columns > 0 ? columns : (int) Math.ceil(Math.sqrt(count));
+            final int rows = (count + cols - 1) / cols;
+            final int tileWidth = Math.max(1, (surfaceWidth - spacing * (cols - 1)) / cols);
+            final int tileHeight = Math.max(1, (surfaceHeight - spacing * (rows - 1)) / rows);
+            for (int i = 0; i < count; i++) {
+                final Tile tile = currentTiles.get(i);
+                // 新しいフレームはテクスチャに描き込んだらすぐに解放し、デコーダーが次のフレームを渡せるようにする
+                final VideoFrame frame = tile.takeFrame();
+                if (frame != null) {
+                    try {
+                        tile.updateTexture(frame, tileWidth, tileHeight);
+                    } finally {
+                        frame.release();
+                    }
+                }
+                if (tile.texture == null) {
+                    continue;
+                }
+                texturedTiles.add(tile);
+                final int x = (i % cols) * (tileWidth + spacing);
+                final int y = (i / cols) * (tileHeight + spacing);
+                // GL のビューポートは左下が原点
+                drawTile(tile, x, surfaceHeight - y - tileHeight, tileWidth, tileHeight);
+            }
+        }
+        eglBase.swapBuffers();
+    }
+
+    private void drawTile(@NonNull final Tile tile, int x, int y, int width, int height) {
+        final GlTextureFrameBuffer texture = tile.texture;
+        final float frameAspectRatio = tile.textureAspectRatio;
+        final float tileAspectRatio = (float) width / height;
+        float scaleX = 1;
+        float scaleY = 1;
+        if (isAspectFill) {
+            // タイルからはみ出す部分をテクスチャ座標でクロップする
+            if (frameAspectRatio > tileAspectRatio) {
+                scaleX = tileAspectRatio / frameAspectRatio;
+            } else {
+                scaleY = frameAspectRatio / tileAspectRatio;
+            }
+        } else {
+            // タイル内に収まるようにビューポートを縮小する
+            if (frameAspectRatio > tileAspectRatio) {
+                final int fitHeight = Math.round(width / frameAspectRatio);
+                y += (height - fitHeight) / 2;
+                height = fitHeight;
+            } else {
+                final int fitWidth = Math.round(height * frameAspectRatio);
+                x += (width - fitWidth) / 2;
+                width = fitWidth;
+            }
+        }
+        drawMatrix.reset();
+        drawMatrix.preTranslate(0.5f, 0.5f);
+        drawMatrix.preScale(scaleX, scaleY);
+        drawMatrix.preTranslate(-0.5f, -0.5f);
+        // テクスチャには表示する向きで描き込んであるため、クロップのみを行う
+        drawer.drawRgb(texture.getTextureId(), RendererCommon.convertMatrixFromAndroidGraphicsMatrix(drawMatrix),
+                texture.getWidth(), texture.getHeight(), x, y, width, height);
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,148 @@
+package jp.shiguredo.react.webrtckit;
+
+import android.content.Context;
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import android.view.ViewGroup;
+
+import com.facebook.react.uimanager.ThemedReactContext;
+
+import org.webrtc.VideoTrack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 複数の映像トラックを 1 つの SurfaceView にタイル状に並べて描画するビューです。
+ * 描画は {@link WebRTCVideoGridRenderer} が 1 つの描画スレッドで行います。
+ */
+public class WebRTCVideoGridView extends ViewGroup implements SurfaceHolder.Callback {
+
+    @NonNull
+    private final SurfaceView surfaceView;
+    @NonNull
+    final WebRTCVideoGridRenderer renderer = new WebRTCVideoGridRenderer();
+    private boolean isRendererInitialized = false;
+    @NonNull
+    private List<VideoTrack> videoTracks = new ArrayList<>();
+
+    public WebRTCVideoGridView(@Nullable final Context context) {
+        super(context);
+        if (!(context instanceof ThemedReactContext)) {
+            throw new IllegalArgumentException("The context to initialize WebRTCVideoGridView is expected to be an instance of ThemedReactContext.");
+        }
+        surfaceView = new SurfaceView(context);
+        surfaceView.getHolder().addCallback(this);
+        final LayoutParams lp = new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
+        addView(surfaceView, lp);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        startRendering();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // ナビゲーターやリストで再びウィンドウに追加される場合があるため、トラックは保持したまま描画スレッドのみ解放する
+        stopRendering();
+    }
+
+    @Override
+    protected void onLayout(final boolean changed,
+                            final int l,
+                            final int t,
+                            final int r,
+                            final int b) {
+        surfaceView.layout(0, 0, r - l, b - t);
+    }
+
+    @NonNull
+    ThemedReactContext getReactContext() {
+        return (ThemedReactContext) getContext();
+    }
+
+    /**
+     * 描画するトラックを設定します。ウィンドウに追加されていない間は保持のみ行い、追加されてから描画します。
+     */
+    void setVideoTracks(@NonNull final List<VideoTrack> videoTracks) {
+        if (isRendererInitialized) {
+            // 描画しているトラックの増減をモジュールに知らせ、描画されていないリモートの映像の一時停止に使う
+            notifyVideoSinks(videoTracks, this.videoTracks);
+            renderer.setTracks(videoTracks);
+        }
+        this.videoTracks = new ArrayList<>(videoTracks);
+    }
+
+    /**
+     * 描画を止め、描画スレッドと EGL コンテキストを解放します。
+     * 本メソッドを呼び出すと、それ以降本インスタンスは使用不可能になります。
+     * なお描画していた videoTrack は dispose() されません。
+     */
+    void release() {
+        stopRendering();
+        videoTracks = new ArrayList<>();
+    }
+
+    private void startRendering() {
+        if (isRendererInitialized) {
+            return;
+        }
+        final WebRTCModule module = getReactContext().getNativeModule(WebRTCModule.class);
+        renderer.init(module.getEglContext());
+        isRendererInitialized = true;
+        notifyVideoSinks(videoTracks, new ArrayList<>());
+        renderer.setTracks(videoTracks);
+    }
+
+    private void stopRendering() {
+        if (!isRendererInitialized) {
+            return;
+        }
+        notifyVideoSinks(new ArrayList<>(), videoTracks);
+        renderer.release();
+        isRendererInitialized = false;
+    }
+
+    private void notifyVideoSinks(@NonNull final List<VideoTrack> newTracks, @NonNull final List<VideoTrack> oldTracks) {
+        final WebRTCModule module = getReactContext().getNativeModule(WebRTCModule.class);
+        if (module == null) {
+            return;
+        }
+        for (final VideoTrack videoTrack : newTracks) {
+            if (!oldTracks.contains(videoTrack)) {
+                module.onVideoSinkAdded(videoTrack);
+            }
+        }
+        for (final VideoTrack videoTrack : oldTracks) {
+            if (!newTracks.contains(videoTrack)) {
+                module.onVideoSinkRemoved(videoTrack);
+            }
+        }
+    }
+
+    //region SurfaceHolder.Callback
+
+    @Override
+    public void surfaceCreated(@NonNull final SurfaceHolder holder) {
+        renderer.createSurface(holder.getSurface());
+    }
+
+    @Override
+    public void surfaceChanged(@NonNull final SurfaceHolder holder, final int format, final int width, final int height) {
+        // サーフェスの大きさは描画のたびに EglBase から取得するので、再描画のみ要求する
+        renderer.requestRender();
+    }
+
+    @Override
+    public void surfaceDestroyed(@NonNull final SurfaceHolder holder) {
+        renderer.releaseSurface();
+    }
+
+    //endregion
+
+}
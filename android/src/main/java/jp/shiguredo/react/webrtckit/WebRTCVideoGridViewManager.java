@@ -0,0 +1,85 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+import android.util.Log;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.uimanager.PixelUtil;
+import com.facebook.react.uimanager.SimpleViewManager;
+import com.facebook.react.uimanager.ThemedReactContext;
+import com.facebook.react.uimanager.annotations.ReactProp;
+
+import org.webrtc.MediaStreamTrack;
+import org.webrtc.VideoTrack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static jp.shiguredo.react.webrtckit.Readables.string;
+
+public class WebRTCVideoGridViewManager extends SimpleViewManager<WebRTCVideoGridView> {
+
+    @Override
+    @NonNull
+    public String getName() {
+        return "WebRTCVideoGridView";
+    }
+
+    @Override
+    @NonNull
+    public WebRTCVideoGridView createViewInstance(@NonNull final ThemedReactContext context) {
+        return new WebRTCVideoGridView(context);
+    }
+
+    @Override
+    public void onDropViewInstance(WebRTCVideoGridView view) {
+        // リロード時には呼び出されないため、描画スレッドの解放は onDetachedFromWindow() でも行う
+        view.release();
+    }
+
+    //region ReactProp
+
+    @ReactProp(name = "objectFit")
+    public void setObjectFit(@NonNull final WebRTCVideoGridView view, @Nullable final String objectFit) {
+        Log.d(getName(), "setObjectFit() - objectFit=" + objectFit);
+        // "contain" のみタイル内に収まるように縮小し、それ以外はタイル全体を埋める
+        view.renderer.setAspectFill(!"contain".equals(objectFit));
+    }
+
+    @ReactProp(name = "columns", defaultInt = 0)
+    public void setColumns(@NonNull final WebRTCVideoGridView view, final int columns) {
+        view.renderer.setColumns(columns);
+    }
+
+    @ReactProp(name = "spacing", defaultFloat = 0f)
+    public void setSpacing(@NonNull final WebRTCVideoGridView view, final float spacing) {
+        view.renderer.setSpacing(Math.round(PixelUtil.toPixelFromDIP(spacing)));
+    }
+
+    @ReactProp(name = "tracks")
+    public void setTracks(@NonNull final WebRTCVideoGridView view, @Nullable final ReadableArray json) {
+        Log.d(getName(), "setTracks() - tracks=" + json);
+        final List<VideoTrack> videoTracks = new ArrayList<>();
+        if (json != null) {
+            final WebRTCModule module = view.getReactContext().getNativeModule(WebRTCModule.class);
+            for (int i = 0; i < json.size(); i++) {
+                final ReadableMap trackJson = json.getMap(i);
+                final String valueTag = trackJson != null ? string(trackJson, "_valueTag") : null;
+                if (valueTag == null) {
+                    throw new IllegalStateException("track._valueTag is not defined");
+                }
+                final MediaStreamTrack track = module.repository.tracks.getByValueTag(valueTag);
+                if (!(track instanceof VideoTrack)) {
+                    throw new IllegalStateException("VideoTrack with valueTag " + valueTag + " is not found");
+                }
+                videoTracks.add((VideoTrack) track);
+            }
+        }
+        view.setVideoTracks(videoTracks);
+    }
+
+    //endregion
+
+}
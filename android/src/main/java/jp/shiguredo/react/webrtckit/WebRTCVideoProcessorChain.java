@@ -0,0 +1,118 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+import android.util.Log;
+
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoProcessor;
+import org.webrtc.VideoSink;
+
+import java.util.List;
+
+/**
+ * 複数の {@link WebRTCVideoFrameProcessor} を順に適用する VideoProcessor です。
+ * VideoSource.setVideoProcessor() で設定すると、 adaptOutputFormat() による調整後のフレームがキャプチャスレッドで渡されます。
+ * <p>
+ * テクスチャから I420 への変換は、 I420 を扱う処理の直前で一度だけ行います。
+ * 処理ごとの所要時間は WebRTCKit.VideoProcessor.[name].ProcessingTimeUs として、
+ * 変換の所要時間は WebRTCKit.VideoProcessor.ToI420TimeUs としてメトリクスに記録します。
+ */
+final class WebRTCVideoProcessorChain implements VideoProcessor {
+
+    private static final String TAG = "WebRTCVideoProcessor";
+
+    @Nullable
+    private volatile VideoSink sink = null;
+    /**
+     * 処理の配列です。キャプチャスレッドから参照されるため、変更時は配列ごと置き換えます。
+     */
+    @NonNull
+    private volatile WebRTCVideoFrameProcessor[] processors = new WebRTCVideoFrameProcessor[0];
+
+    void setProcessors(@NonNull final List<WebRTCVideoFrameProcessor> processors) {
+        this.processors = processors.toArray(new WebRTCVideoFrameProcessor[0]);
+    }
+
+    boolean isEmpty() {
+        return processors.length == 0;
+    }
+
+    //region VideoProcessor
+
+    @Override
+    public void setSink(@Nullable final VideoSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void onCapturerStarted(final boolean success) {
+        // Do nothing
+    }
+
+    @Override
+    public void onCapturerStopped() {
+        // Do nothing
+    }
+
+    @Override
+    public void onFrameCaptured(@NonNull final VideoFrame frame) {
+        final VideoSink sink = this.sink;
+        if (sink == null) {
+            return;
+        }
+        final boolean isMetricsEnabled = WebRTCModuleMetrics.isEnabled();
+        VideoFrame current = frame;
+        current.retain();
+        for (final WebRTCVideoFrameProcessor processor : processors) {
+            final VideoFrame.Buffer buffer = current.getBuffer();
+            switch (processor.getBufferType()) {
+                case I420:
+                    if (!(buffer instanceof VideoFrame.I420Buffer)) {
+                        final long convertStart = System.nanoTime();
+                        final VideoFrame converted = new VideoFrame(buffer.toI420(), current.getRotation(), current.getTimestampNs());
+                        if (isMetricsEnabled) {
+                            WebRTCModuleMetrics.addTimeSample("WebRTCKit.VideoProcessor.ToI420TimeUs", System.nanoTime() - convertStart);
+                        }
+                        current.release();
+                        current = converted;
+                    }
+                    break;
+                case TEXTURE:
+                    if (!(buffer instanceof VideoFrame.TextureBuffer)) {
+                        // I420 からテクスチャへの変換は行わない
+                        continue;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            final long start = System.nanoTime();
+            VideoFrame result;
+            try {
+                result = processor.process(current);
+            } catch (RuntimeException e) {
+                // 処理が失敗してもキャプチャは継続し、そのフレームはこの処理を適用せずに後続に渡す
+                Log.e(TAG, "onFrameCaptured() - " + processor.getName() + " failed", e);
+                result = current;
+            }
+            if (isMetricsEnabled) {
+                WebRTCModuleMetrics.addTimeSample("WebRTCKit.VideoProcessor." + processor.getName() + ".ProcessingTimeUs",
+                        System.nanoTime() - start);
+            }
+            if (result != current) {
+                current.release();
+            }
+            if (result == null) {
+                return;
+            }
+            current = result;
+        }
+        sink.onFrame(current);
+        current.release();
+    }
+
+    //endregion
+
+}
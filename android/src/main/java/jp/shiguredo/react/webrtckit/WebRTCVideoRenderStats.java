@@ -0,0 +1,179 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.NonNull;
+
+import org.webrtc.GlRectDrawer;
+import org.webrtc.RendererCommon;
+import org.webrtc.VideoFrame;
+
+import java.util.Arrays;
+
+/**
+ * 1 つのレンダラーの描画の統計です。
+ * <p>
+ * レンダラーの GlDrawer として描画処理を包み、 1 回の描画 (1 フレーム) ごとに所要時間を記録します。
+ * 受け取ったフレームの数はレンダラーのシンクから {@link #onFrameReceived(VideoFrame)} で数えます。
+ * 受け取ったのに描画されなかったフレーム (描画が間に合わず新しいフレームで置き換えられた、フレームレートの制限で間引かれた) は
+ * ドロップとして数えます。
+ * <p>
+ * 描画時間は GL コマンドの発行にかかった時間で、 GPU の処理の完了までは含みません。
+ * 統計は {@link #setEnabled(boolean)} で有効にした場合のみ集計します。
+ * 描画スレッドとメインスレッドから使用されます。
+ */
+final class WebRTCVideoRenderStats implements RendererCommon.GlDrawer {
+
+    /**
+     * 平均と 95 パーセンタイルを計算する、直近の描画時間のサンプル数です。
+     */
+    private static final int RENDER_TIME_WINDOW = 120;
+
+    static final class Snapshot {
+        final long framesReceived;
+        final long framesRendered;
+        final long framesDropped;
+        final double averageRenderTimeMs;
+        final double p95RenderTimeMs;
+        /**
+         * シンクを付けてから最初のフレームを描画するまでの時間です。まだ描画していない場合は -1 です。
+         */
+        final double timeToFirstFrameMs;
+        final int frameWidth;
+        final int frameHeight;
+
+        Snapshot(final long framesReceived,
+                 final long framesRendered,
+                 final double averageRenderTimeMs,
+                 final double p95RenderTimeMs,
+                 final double timeToFirstFrameMs,
+                 final int frameWidth,
+                 final int frameHeight) {
+            this.framesReceived = framesReceived;
+            this.framesRendered = framesRendered;
+            this.framesDropped = Math.max(0, framesReceived - framesRendered);
+            this.averageRenderTimeMs = averageRenderTimeMs;
+            this.p95RenderTimeMs = p95RenderTimeMs;
+            this.timeToFirstFrameMs = timeToFirstFrameMs;
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+        }
+    }
+
+    @NonNull
+    private final RendererCommon.GlDrawer drawer = new GlRectDrawer();
+    private volatile boolean isEnabled = false;
+
+    // 以下は this で同期する
+    private long framesReceived = 0;
+    private long framesRendered = 0;
+    private final long[] renderTimesNs = new long[RENDER_TIME_WINDOW];
+    private int renderTimeCount = 0;
+    private int renderTimeIndex = 0;
+    private long startTimeNs = 0;
+    private long firstFrameTimeNs = -1;
+    private int frameWidth = 0;
+    private int frameHeight = 0;
+
+    void setEnabled(final boolean isEnabled) {
+        this.isEnabled = isEnabled;
+    }
+
+    boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * 統計を消去し、最初のフレームまでの時間の計測を開始します。トラックにシンクを付けたときに呼び出します。
+     */
+    synchronized void reset() {
+        framesReceived = 0;
+        framesRendered = 0;
+        renderTimeCount = 0;
+        renderTimeIndex = 0;
+        startTimeNs = System.nanoTime();
+        firstFrameTimeNs = -1;
+        frameWidth = 0;
+        frameHeight = 0;
+    }
+
+    void onFrameReceived(@NonNull final VideoFrame frame) {
+        if (!isEnabled) {
+            return;
+        }
+        synchronized (this) {
+            framesReceived++;
+            frameWidth = frame.getRotatedWidth();
+            frameHeight = frame.getRotatedHeight();
+        }
+    }
+
+    private void onFrameRendered(final long startNs) {
+        final long endNs = System.nanoTime();
+        synchronized (this) {
+            framesRendered++;
+            if (firstFrameTimeNs < 0) {
+                firstFrameTimeNs = endNs;
+            }
+            renderTimesNs[renderTimeIndex] = endNs - startNs;
+            renderTimeIndex = (renderTimeIndex + 1) % RENDER_TIME_WINDOW;
+            renderTimeCount = Math.min(renderTimeCount + 1, RENDER_TIME_WINDOW);
+        }
+    }
+
+    @NonNull
+    synchronized Snapshot getSnapshot() {
+        double average = 0;
+        double p95 = 0;
+        if (renderTimeCount > 0) {
+            final long[] sorted = Arrays.copyOf(renderTimesNs, renderTimeCount);
+            Arrays.sort(sorted);
+            long total = 0;
+            for (final long time : sorted) {
+                total += time;
+            }
+            average = total / (double) renderTimeCount / 1e6;
+            p95 = sorted[(int) Math.ceil(renderTimeCount * 0.95) - 1] / 1e6;
+        }
+        final double timeToFirstFrame = firstFrameTimeNs < 0 ? -1 : (firstFrameTimeNs - startTimeNs) / 1e6;
+        return new Snapshot(framesReceived, framesRendered, average, p95, timeToFirstFrame, frameWidth, frameHeight);
+    }
+
+    //region RendererCommon.GlDrawer
+
+    @Override
+    public void drawOes(int oesTextureId, float[] texMatrix, int frameWidth, int frameHeight,
+                        int viewportX, int viewportY, int viewportWidth, int viewportHeight) {
+        final long startNs = System.nanoTime();
+        drawer.drawOes(oesTextureId, texMatrix, frameWidth, frameHeight, viewportX, viewportY, viewportWidth, viewportHeight);
+        if (isEnabled) {
+            onFrameRendered(startNs);
+        }
+    }
+
+    @Override
+    public void drawRgb(int textureId, float[] texMatrix, int frameWidth, int frameHeight,
+                        int viewportX, int viewportY, int viewportWidth, int viewportHeight) {
+        final long startNs = System.nanoTime();
+        drawer.drawRgb(textureId, texMatrix, frameWidth, frameHeight, viewportX, viewportY, viewportWidth, viewportHeight);
+        if (isEnabled) {
+            onFrameRendered(startNs);
+        }
+    }
+
+    @Override
+    public void drawYuv(int[] yuvTextures, float[] texMatrix, int frameWidth, int frameHeight,
+                        int viewportX, int viewportY, int viewportWidth, int viewportHeight) {
+        final long startNs = System.nanoTime();
+        drawer.drawYuv(yuvTextures, texMatrix, frameWidth, frameHeight, viewportX, viewportY, viewportWidth, viewportHeight);
+        if (isEnabled) {
+            onFrameRendered(startNs);
+        }
+    }
+
+    @Override
+    public void release() {
+        drawer.release();
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,96 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.NonNull;
+import android.content.Context;
+import android.util.Log;
+import android.view.ViewGroup;
+
+import org.webrtc.EglBase;
+
+import java.util.ArrayDeque;
+
+/**
+ * 初期化済みの SurfaceViewRenderer を再利用するプールです。
+ * <p>
+ * SurfaceViewRenderer の初期化では描画スレッドと EGL コンテキストを生成するため、
+ * リストのスクロールなどでビューが頻繁に生成・破棄されると、そのたびに初期化のコストがかかり黒いフレームが見えます。
+ * ビューはウィンドウに追加されたときに本プールからレンダラーを取得し、外されたときに返却します。
+ * <p>
+ * プールに保持するレンダラーの数には上限があり、上限を超えて返却されたレンダラーは解放します。
+ * メモリが不足したときは {@link #trim()} で保持しているレンダラーをすべて解放します。
+ * <p>
+ * レンダラーは Activity より長くプールに残るため、取得したビューのコンテキストではなくアプリケーションのコンテキストで生成します。
+ * 本クラスはメインスレッドでのみ使用してください。
+ */
+final class WebRTCVideoRendererPool {
+
+    private static final String TAG = "WebRTCVideoRendererPool";
+
+    @NonNull
+    private final EglBase.Context eglContext;
+    @NonNull
+    private final ArrayDeque<WebRTCSurfaceViewRenderer> renderers = new ArrayDeque<>();
+    private int maxSize = 4;
+
+    WebRTCVideoRendererPool(@NonNull final EglBase.Context eglContext) {
+        this.eglContext = eglContext;
+    }
+
+    /**
+     * プールに保持するレンダラーの上限を設定します。 0 の場合はプールしません。
+     */
+    void setMaxSize(final int maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+        while (renderers.size() > this.maxSize) {
+            renderers.poll().release();
+        }
+    }
+
+    /**
+     * 初期化済みのレンダラーを返します。プールが空の場合は新規に生成して初期化します。
+     *
+     * @param context 取得するビューのコンテキスト。 Activity を保持しないよう、レンダラーはアプリケーションのコンテキストで生成します。
+     */
+    @NonNull
+    WebRTCSurfaceViewRenderer acquire(@NonNull final Context context) {
+        final WebRTCSurfaceViewRenderer pooled = renderers.poll();
+        if (pooled != null) {
+            Log.d(TAG, "acquire() - reuse a pooled renderer, remaining " + renderers.size());
+            return pooled;
+        }
+        final WebRTCSurfaceViewRenderer renderer = new WebRTCSurfaceViewRenderer(context.getApplicationContext());
+        renderer.init(eglContext);
+        return renderer;
+    }
+
+    /**
+     * 使い終わったレンダラーを返却します。親ビューから外し、描画の設定を初期状態に戻してからプールに保持します。
+     * プールが上限に達している場合は解放します。
+     */
+    void recycle(@NonNull final WebRTCSurfaceViewRenderer renderer) {
+        if (renderer.getParent() instanceof ViewGroup) {
+            ((ViewGroup) renderer.getParent()).removeView(renderer);
+        }
+        if (renderers.size() >= maxSize) {
+            renderer.release();
+            return;
+        }
+        renderer.clearImage();
+        renderer.stats.setEnabled(false);
+        renderer.disableFpsReduction();
+        renderer.setMirror(false);
+        renderer.setRenderScale(1);
+        renderers.push(renderer);
+    }
+
+    /**
+     * プールに保持しているレンダラーをすべて解放します。
+     */
+    void trim() {
+        Log.d(TAG, "trim() - release " + renderers.size() + " renderers");
+        while (!renderers.isEmpty()) {
+            renderers.poll().release();
+        }
+    }
+
+}
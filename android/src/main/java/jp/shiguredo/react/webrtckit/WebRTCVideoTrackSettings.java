@@ -0,0 +1,44 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+
+/**
+ * 映像トラックの現在の設定 (MediaTrackSettings 相当) を表します。
+ * 出力フォーマットを調整している場合、 width / height / frameRate は調整後の値です。
+ */
+final class WebRTCVideoTrackSettings {
+    @NonNull
+    final String deviceName;
+    /**
+     * カメラ以外のソースの場合は null です。
+     */
+    @Nullable
+    final String facingMode;
+    final int width;
+    final int height;
+    final int frameRate;
+
+    WebRTCVideoTrackSettings(@NonNull final String deviceName,
+                             @Nullable final String facingMode,
+                             final int width,
+                             final int height,
+                             final int frameRate) {
+        this.deviceName = deviceName;
+        this.facingMode = facingMode;
+        this.width = width;
+        this.height = height;
+        this.frameRate = frameRate;
+    }
+
+    @NonNull
+    static WebRTCVideoTrackSettings fromCandidate(@NonNull final WebRTCCameraDeviceCandidate candidate) {
+        return new WebRTCVideoTrackSettings(candidate.deviceName, candidate.facingMode(),
+                candidate.format.width, candidate.format.height, candidate.framerate);
+    }
+
+    double aspectRatio() {
+        return (double) width / (double) height;
+    }
+
+}
@@ -0,0 +1,325 @@
+package jp.shiguredo.react.webrtckit;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
+import android.graphics.Bitmap;
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.YuvImage;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Base64;
+import android.util.Log;
+
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoSink;
+import org.webrtc.VideoTrack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 映像トラックの次のフレームを 1 枚だけ取得し、 JPEG または WebP の画像にします。
+ * <p>
+ * 一時的なシンクをトラックに付けて最初に届いたフレームを保持し、
+ * 縮小、 I420 への変換、回転、エンコードは専用のスレッドで行います。
+ * テクスチャのフレームは変換前に縮小するため、 GPU からの読み出しは縮小後の大きさで済みます。
+ * 描画スレッドやネイティブモジュールのスレッドはブロックしません。
+ * <p>
+ * 一時的なシンクもビューのシンクと同じくモジュールに知らせるため、
+ * 自動的に一時停止 ({@link WebRTCRemoteVideoAutoPause}) しているリモートのトラックは、フレームを待つ間再開します。
+ * <p>
+ * 処理時間は WebRTCKit.Snapshot.ProcessingTimeUs としてメトリクスに記録します。
+ */
+final class WebRTCVideoTrackSnapshot implements VideoSink {
+
+    private static final String TAG = "WebRTCVideoTrackSnapshot";
+
+    /**
+     * すべてのスナップショットの変換とエンコードを行うスレッドです。
+     */
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    enum Format {
+        JPEG,
+        WEBP
+    }
+
+    static final class Options {
+        /**
+         * 画像の最大の幅 (回転後) です。 0 の場合は縮小しません。
+         */
+        int maxWidth = 0;
+        @NonNull
+        Format format = Format.JPEG;
+        /**
+         * 画質 (0 - 100) です。
+         */
+        int quality = 80;
+        /**
+         * true の場合は画像を Base64 の文字列で返し、 false の場合はファイルに書き出してパスを返します。
+         */
+        boolean isBase64 = false;
+        /**
+         * フレームが届くまで待つ時間です。
+         */
+        long timeoutMs = 5000;
+    }
+
+    static final class Result {
+        final int width;
+        final int height;
+        @NonNull
+        final Format format;
+        @Nullable
+        final String path;
+        @Nullable
+        final String data;
+
+        Result(final int width,
+               final int height,
+               @NonNull final Format format,
+               @Nullable final String path,
+               @Nullable final String data) {
+            this.width = width;
+            this.height = height;
+            this.format = format;
+            this.path = path;
+            this.data = data;
+        }
+    }
+
+    interface Callback {
+        void onSnapshotDone(@NonNull Result result);
+
+        void onSnapshotError(@NonNull String code, @NonNull String message);
+    }
+
+    @NonNull
+    private final WebRTCModule module;
+    @NonNull
+    private final VideoTrack track;
+    @NonNull
+    private final Options options;
+    @NonNull
+    private final File directory;
+    @NonNull
+    private final Callback callback;
+    @NonNull
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    @NonNull
+    private final AtomicBoolean isDone = new AtomicBoolean(false);
+
+    /**
+     * @param directory ファイルに書き出す場合の保存先のディレクトリ
+     */
+    WebRTCVideoTrackSnapshot(@NonNull final WebRTCModule module,
+                             @NonNull final VideoTrack track,
+                             @NonNull final Options options,
+                             @NonNull final File directory,
+                             @NonNull final Callback callback) {
+        this.module = module;
+        this.track = track;
+        this.options = options;
+        this.directory = directory;
+        this.callback = callback;
+    }
+
+    /**
+     * シンクを付けてフレームを待ちます。タイムアウトした場合は TimeoutError で失敗します。
+     */
+    void start() {
+        track.addSink(this);
+        module.onVideoSinkAdded(track);
+        handler.postDelayed(() -> {
+            if (isDone.compareAndSet(false, true)) {
+                removeSink();
+                callback.onSnapshotError("TimeoutError", "no frame is received");
+            }
+        }, options.timeoutMs);
+    }
+
+    @Override
+    public void onFrame(@NonNull final VideoFrame frame) {
+        if (!isDone.compareAndSet(false, true)) {
+            return;
+        }
+        frame.retain();
+        // シンクの付け外しはフレームの配信中に行えないため、メインスレッドで外す
+        handler.removeCallbacksAndMessages(null);
+        handler.post(this::removeSink);
+        executor.execute(() -> {
+            try {
+                final long startTime = System.nanoTime();
+                final Result result = process(frame);
+                WebRTCModuleMetrics.addTimeSample("WebRTCKit.Snapshot.ProcessingTimeUs", System.nanoTime() - startTime);
+                callback.onSnapshotDone(result);
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "onFrame()", e);
+                callback.onSnapshotError("EncodingError", "failed to create the snapshot: " + e.getMessage());
+            } finally {
+                frame.release();
+            }
+        });
+    }
+
+    private void removeSink() {
+        try {
+            track.removeSink(this);
+            module.onVideoSinkRemoved(track);
+        } catch (IllegalStateException e) {
+            // トラックがすでに破棄されている
+            Log.d(TAG, "removeSink() - " + e.getMessage());
+        }
+    }
+
+    //region Processing
+
+    @NonNull
+    private Result process(@NonNull final VideoFrame frame) throws IOException {
+        final VideoFrame.Buffer buffer = frame.getBuffer();
+        final int rotation = frame.getRotation();
+
+        // 回転前の大きさで縮小する。 NV21 にするため幅と高さは偶数にそろえる
+        double scale = 1;
+        if (options.maxWidth > 0 && frame.getRotatedWidth() > options.maxWidth) {
+            scale = (double) options.maxWidth / frame.getRotatedWidth();
+        }
+        final int width = Math.max(2, (int) Math.round(buffer.getWidth() * scale) & ~1);
+        final int height = Math.max(2, (int) Math.round(buffer.getHeight() * scale) & ~1);
+        final VideoFrame.Buffer scaled;
+        if (width == buffer.getWidth() && height == buffer.getHeight()) {
+            buffer.retain();
+            scaled = buffer;
+        } else {
+            scaled = buffer.cropAndScale(0, 0, buffer.getWidth(), buffer.getHeight(), width, height);
+        }
+        final VideoFrame.I420Buffer i420 = scaled.toI420();
+        scaled.release();
+
+        final boolean isTransposed = rotation % 180 != 0;
+        final int outWidth = isTransposed ? height : width;
+        final int outHeight = isTransposed ? width : height;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            if (options.format == Format.WEBP) {
+                final Bitmap bitmap = Bitmap.createBitmap(toArgb(i420, rotation), outWidth, outHeight, Bitmap.Config.ARGB_8888);
+                bitmap.compress(Bitmap.CompressFormat.WEBP, options.quality, out);
+                bitmap.recycle();
+            } else {
+                final YuvImage image = new YuvImage(toNv21(i420, rotation), ImageFormat.NV21, outWidth, outHeight, null);
+                image.compressToJpeg(new Rect(0, 0, outWidth, outHeight), options.quality, out);
+            }
+        } finally {
+            i420.release();
+        }
+
+        final byte[] bytes = out.toByteArray();
+        if (options.isBase64) {
+            return new Result(outWidth, outHeight, options.format, null, Base64.encodeToString(bytes, Base64.NO_WRAP));
+        }
+        final String extension = options.format == Format.WEBP ? ".webp" : ".jpg";
+        final File file = new File(directory, "webrtckit-snapshot-" + UUID.randomUUID() + extension);
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            stream.write(bytes);
+        }
+        return new Result(outWidth, outHeight, options.format, file.getAbsolutePath(), null);
+    }
+
+    /**
+     * 回転後の座標 (x, y) に対応する、回転前の平面上の位置を返します。
+     */
+    private static int sourceIndex(final int x,
+                                   final int y,
+                                   final int width,
+                                   final int height,
+                                   final int stride,
+                                   final int rotation) {
+        switch (rotation) {
+            case 90:
+                return (height - 1 - x) * stride + y;
+            case 180:
+                return (height - 1 - y) * stride + (width - 1 - x);
+            case 270:
+                return x * stride + (width - 1 - y);
+            default:
+                return y * stride + x;
+        }
+    }
+
+    /**
+     * 回転を適用しながら NV21 (Y 平面に続いて VU が交互に並ぶ) に変換します。
+     */
+    @NonNull
+    private static byte[] toNv21(@NonNull final VideoFrame.I420Buffer i420, final int rotation) {
+        final int width = i420.getWidth();
+        final int height = i420.getHeight();
+        final int chromaWidth = width / 2;
+        final int chromaHeight = height / 2;
+        final boolean isTransposed = rotation % 180 != 0;
+        final int outWidth = isTransposed ? height : width;
+        final int outHeight = isTransposed ? width : height;
+        final ByteBuffer dataY = i420.getDataY();
+        final ByteBuffer dataU = i420.getDataU();
+        final ByteBuffer dataV = i420.getDataV();
+
+        final byte[] nv21 = new byte[outWidth * outHeight * 3 / 2];
+        int i = 0;
+        for (int y = 0; y < outHeight; y++) {
+            for (int x = 0; x < outWidth; x++) {
+                nv21[i++] = dataY.get(sourceIndex(x, y, width, height, i420.getStrideY(), rotation));
+            }
+        }
+        for (int y = 0; y < outHeight / 2; y++) {
+            for (int x = 0; x < outWidth / 2; x++) {
+                nv21[i++] = dataV.get(sourceIndex(x, y, chromaWidth, chromaHeight, i420.getStrideV(), rotation));
+                nv21[i++] = dataU.get(sourceIndex(x, y, chromaWidth, chromaHeight, i420.getStrideU(), rotation));
+            }
+        }
+        return nv21;
+    }
+
+    /**
+     * 回転を適用しながら ARGB に変換します (BT.601 、リミテッドレンジ) 。
+     */
+    @NonNull
+    private static int[] toArgb(@NonNull final VideoFrame.I420Buffer i420, final int rotation) {
+        final int width = i420.getWidth();
+        final int height = i420.getHeight();
+        final boolean isTransposed = rotation % 180 != 0;
+        final int outWidth = isTransposed ? height : width;
+        final int outHeight = isTransposed ? width : height;
+        final ByteBuffer dataY = i420.getDataY();
+        final ByteBuffer dataU = i420.getDataU();
+        final ByteBuffer dataV = i420.getDataV();
+
+        final int[] argb = new int[outWidth * outHeight];
+        int i = 0;
+        for (int y = 0; y < outHeight; y++) {
+            for (int x = 0; x < outWidth; x++) {
+                final int c = (dataY.get(sourceIndex(x, y, width, height, i420.getStrideY(), rotation)) & 0xff) - 16;
+                final int d = (dataU.get(sourceIndex(x / 2, y / 2, width / 2, height / 2, i420.getStrideU(), rotation)) & 0xff) - 128;
+                final int e = (dataV.get(sourceIndex(x / 2, y / 2, width / 2, height / 2, i420.getStrideV(), rotation)) & 0xff) - 128;
+                final int r = clamp((298 * c + 409 * e + 128) >> 8);
+                final int g = clamp((298 * c - 100 * d - 208 * e + 128) >> 8);
+                final int b = clamp((298 * c + 516 * d + 128) >> 8);
+                argb[i++] = 0xff000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return argb;
+    }
+
+    private static int clamp(final int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    //endregion
+
+}
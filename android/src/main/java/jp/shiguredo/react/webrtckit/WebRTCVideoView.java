@@ -3,58 +3,165 @@ package jp.shiguredo.react.webrtckit;
 import android.content.Context;
 import androidx.annotation.Nullable;
 import androidx.annotation.NonNull;
+import android.graphics.Rect;
+import android.util.Log;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.common.LifecycleState;
 import com.facebook.react.uimanager.ThemedReactContext;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
 
-import org.webrtc.SurfaceViewRenderer;
+import org.webrtc.RendererCommon;
 import org.webrtc.VideoTrack;
 
-public class WebRTCVideoView extends ViewGroup {
+/**
+ * 映像トラックを描画するビューです。
+ * <p>
+ * ビューが表示されていない間 (ウィンドウが非表示、画面外にスクロールされた、アプリがバックグラウンドにある) は
+ * トラックからシンクを外してフレームの受け取りと描画を止め、再び表示されたときにシンクを付け直します。
+ * <p>
+ * SurfaceViewRenderer はウィンドウに追加されたときにモジュールのプール ({@link WebRTCVideoRendererPool}) から取得し、
+ * 外されたときに返却します。
+ * <p>
+ * 描画の統計 ({@link WebRTCVideoRenderStats}) を有効にすると、 getRenderStatsJsonValue() で取得できます。
+ * 間隔を指定すると、 topRenderStats イベントで定期的に通知します。
+ */
+public class WebRTCVideoView extends ViewGroup implements LifecycleEventListener {
 
+    private static final String TAG = "WebRTCVideoView";
 
+
+    /**
+     * プールから取得したレンダラーです。ウィンドウに追加されていない間は null です。
+     */
+    @Nullable
+    private WebRTCSurfaceViewRenderer surfaceViewRenderer = null;
     @NonNull
-    final SurfaceViewRenderer surfaceViewRenderer;
-    private boolean isSurfaceViewRendererInitialized = false;
+    private RendererCommon.ScalingType scalingType = RendererCommon.ScalingType.SCALE_ASPECT_FILL;
     @Nullable
     private VideoTrack videoTrack = null;
     private boolean isVideoTrackRendererAdded = false;
 
+    /**
+     * 描画の最大フレームレートです。 0 の場合は制限しません。
+     */
+    private float maxFps = 0;
+    /**
+     * 移動中 (アニメーション中) 、または一部が画面外や親ビューの外に隠れている間の最大フレームレートです。 0 の場合は制限しません。
+     */
+    private float obscuredMaxFps = 0;
+    /**
+     * ビューの大きさに対する描画サーフェスの大きさの比率です。 1 未満の場合は縮小したサーフェスに描画し、拡大して表示します。
+     */
+    private float renderScale = 1;
+    private float appliedFps = Float.POSITIVE_INFINITY;
+    private boolean isAnimating = false;
+    private boolean isPartlyObscured = false;
+    private boolean isAttached = false;
+    private boolean isOnScreen = true;
+    private boolean isWindowVisible = true;
+    private boolean isHostResumed = true;
+    private final int[] lastLocationOnScreen = {Integer.MIN_VALUE, Integer.MIN_VALUE};
+    private final int[] locationOnScreen = new int[2];
+    private final Rect visibleRect = new Rect();
+    private boolean isRenderStatsEnabled = false;
+    /**
+     * 描画の統計をイベントで通知する間隔です。 0 の場合は通知しません。
+     */
+    private int renderStatsIntervalMs = 0;
+
+    /**
+     * 移動が止まってから、アニメーションが終わったとみなすまでの時間です。
+     */
+    private static final long ANIMATION_IDLE_MS = 200;
+
+    @NonNull
+    private final Runnable animationEndRunnable = () -> {
+        isAnimating = false;
+        updateFpsReduction();
+    };
+
+    @NonNull
+    private final Runnable renderStatsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final WritableMap json = getRenderStatsJsonValue();
+            if (json != null) {
+                getReactContext().getJSModule(RCTEventEmitter.class).receiveEvent(getId(), "topRenderStats", json);
+            }
+            if (renderStatsIntervalMs > 0) {
+                postDelayed(this, renderStatsIntervalMs);
+            }
+        }
+    };
+
+    /**
+     * 描画のたびにビューの位置と見えている範囲を調べ、フレームレートの制限を更新します。
+     */
+    @NonNull
+    private final ViewTreeObserver.OnPreDrawListener preDrawListener = () -> {
+        updateRenderState();
+        return true;
+    };
+
+    /**
+     * スクロールでは再描画が起きない場合があるため、スクロールのたびにも見えている範囲を調べます。
+     */
+    @NonNull
+    private final ViewTreeObserver.OnScrollChangedListener scrollChangedListener = this::updateRenderState;
+
 
     public WebRTCVideoView(@Nullable final Context context) {
         super(context);
         if (!(context instanceof ThemedReactContext)) {
             throw new IllegalArgumentException("The context to initialize WebRTCVideoView is expected to be an instance of ThemedReactContext.");
         }
-        surfaceViewRenderer = new SurfaceViewRenderer(context);
-        final LayoutParams lp = new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
-        addView(surfaceViewRenderer, lp);
     }
 
 
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        if (!isSurfaceViewRendererInitialized) {
-            final ThemedReactContext reactContext = getReactContext();
+        final ThemedReactContext reactContext = getReactContext();
+        if (surfaceViewRenderer == null) {
             final WebRTCModule module = reactContext.getNativeModule(WebRTCModule.class);
-            surfaceViewRenderer.init(module.getEglContext(), null);
-            isSurfaceViewRendererInitialized = true;
+            surfaceViewRenderer = module.getVideoRendererPool().acquire(reactContext);
+            final LayoutParams lp = new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
+            addView(surfaceViewRenderer, lp);
+            // プールから取得したレンダラーは初期状態なので、このビューの設定を反映し直す
+            surfaceViewRenderer.setScalingType(scalingType, scalingType);
+            surfaceViewRenderer.stats.setEnabled(isRenderStatsEnabled());
+            appliedFps = Float.POSITIVE_INFINITY;
+            updateFpsReduction();
+            surfaceViewRenderer.setRenderScale(renderScale);
         }
-        attachVideoTrackWithRenderer();
+        isAttached = true;
+        reactContext.addLifecycleEventListener(this);
+        isHostResumed = reactContext.getLifecycleState() == LifecycleState.RESUMED;
+        getViewTreeObserver().addOnPreDrawListener(preDrawListener);
+        getViewTreeObserver().addOnScrollChangedListener(scrollChangedListener);
+        updateVideoTrackAttachment();
+        updateRenderStatsTimer();
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
-        // XXX: このタイミングでViewをクリーンアップします
-        //      本来このタイミングではdetachVideoTrackWithRenderer()だけ実施すればいいはずなのですが、
-        //      JSコンテキストリロード時に本来使用したいWebRTCVideoViewManager.onDropViewInstanceが呼び出されません。
-        //      なので仕方なくウィンドウからViewが外されたら二度と再利用されないという前提のもとにここでリセットを掛けます。
-        //      もし万が一Viewを別のWindowやViewGroupの間で移動したりしたときに正しく動作しなくなったらここが原因の可能性が高いです。
-        //      基本的に一度捨てたViewを再利用するケースはほぼ無いので安全だとは思いますし、
-        //      そもそも問題が有るのは適切なタイミングで適切なコールバックを呼び出さないReactNativeですが、他に手がないです。
-        release();
+        isAttached = false;
+        getReactContext().removeLifecycleEventListener(this);
+        getViewTreeObserver().removeOnPreDrawListener(preDrawListener);
+        getViewTreeObserver().removeOnScrollChangedListener(scrollChangedListener);
+        removeCallbacks(animationEndRunnable);
+        removeCallbacks(renderStatsRunnable);
+        // XXX: JSコンテキストリロード時にはWebRTCVideoViewManager.onDropViewInstanceが呼び出されないため、
+        //      ウィンドウから外されたこのタイミングでシンクを外し、レンダラーをプールに返却します。
+        //      トラックは保持したままなので、再びウィンドウに追加されればプールからレンダラーを取得して描画を再開します。
+        detachVideoTrackWithRenderer();
+        recycleRenderer();
     }
 
     @Override
@@ -67,7 +174,9 @@ public class WebRTCVideoView extends ViewGroup {
         // currently the video content mode (fit/fill) is managed by `surfaceViewRenderer.setScalingType()`.
         // We don't have to manually calculate the size of the surfaceViewRenderer here. Just let it MATCH_PARENT/MATCH_PARENT.
         // XXX: そのうち修正しないとダメな可能性が高い、詳細はWebRTCVideoViewManager.objectFitのコメントを参照
-        surfaceViewRenderer.layout(l, t, r, b);
+        if (surfaceViewRenderer != null) {
+            surfaceViewRenderer.layout(0, 0, r - l, b - t);
+        }
     }
 
 
@@ -84,29 +193,235 @@ public class WebRTCVideoView extends ViewGroup {
         }
         detachVideoTrackWithRenderer();
         this.videoTrack = videoTrack;
-        attachVideoTrackWithRenderer();
+        updateVideoTrackAttachment();
+    }
+
+    void setScalingType(@NonNull final RendererCommon.ScalingType scalingType) {
+        this.scalingType = scalingType;
+        if (surfaceViewRenderer != null) {
+            surfaceViewRenderer.setScalingType(scalingType, scalingType);
+        }
+    }
+
+    /**
+     * 描画の最大フレームレートを設定します。 0 の場合は制限しません。
+     */
+    void setMaxFps(final float maxFps) {
+        this.maxFps = Math.max(0, maxFps);
+        updateFpsReduction();
+    }
+
+    /**
+     * 移動中、または一部が隠れている間の最大フレームレートを設定します。 0 の場合は制限しません。
+     */
+    void setObscuredMaxFps(final float obscuredMaxFps) {
+        this.obscuredMaxFps = Math.max(0, obscuredMaxFps);
+        updateFpsReduction();
     }
 
     /**
-     * 内部に保持しているSurfaceViewRendererをリリースして開放します。
-     * 本メソッドを呼び出すと、それ以降本インスタンスは使用不可能になります。新しいインスタンスを作り直してください。
+     * 描画サーフェスの縮小率 (0 より大きく 1 以下) を設定します。
+     * サムネイルなど小さく表示する映像では、描画する画素数を減らして GPU の負荷を下げられます。
+     * サーフェスの大きさはレイアウトや映像の解像度が変わるたびに WebRTCSurfaceViewRenderer が設定し直します。
+     */
+    void setRenderScale(final float renderScale) {
+        this.renderScale = renderScale > 0 ? Math.min(1, renderScale) : 1;
+        if (surfaceViewRenderer != null) {
+            surfaceViewRenderer.setRenderScale(this.renderScale);
+        }
+    }
+
+    /**
+     * 描画の統計の集計を有効にします。
+     */
+    void setRenderStatsEnabled(final boolean isRenderStatsEnabled) {
+        this.isRenderStatsEnabled = isRenderStatsEnabled;
+        if (surfaceViewRenderer != null) {
+            surfaceViewRenderer.stats.setEnabled(isRenderStatsEnabled());
+        }
+    }
+
+    /**
+     * 描画の統計をイベントで通知する間隔 (ミリ秒) を設定します。 0 より大きい場合は集計も有効になります。
+     */
+    void setRenderStatsInterval(final int renderStatsIntervalMs) {
+        this.renderStatsIntervalMs = Math.max(0, renderStatsIntervalMs);
+        if (surfaceViewRenderer != null) {
+            surfaceViewRenderer.stats.setEnabled(isRenderStatsEnabled());
+        }
+        updateRenderStatsTimer();
+    }
+
+    private boolean isRenderStatsEnabled() {
+        return isRenderStatsEnabled || renderStatsIntervalMs > 0;
+    }
+
+    private void updateRenderStatsTimer() {
+        removeCallbacks(renderStatsRunnable);
+        if (isAttached && renderStatsIntervalMs > 0) {
+            postDelayed(renderStatsRunnable, renderStatsIntervalMs);
+        }
+    }
+
+    private void updateRenderState() {
+        getLocationOnScreen(locationOnScreen);
+        if (lastLocationOnScreen[0] != Integer.MIN_VALUE
+                && (locationOnScreen[0] != lastLocationOnScreen[0] || locationOnScreen[1] != lastLocationOnScreen[1])) {
+            isAnimating = true;
+            removeCallbacks(animationEndRunnable);
+            postDelayed(animationEndRunnable, ANIMATION_IDLE_MS);
+        }
+        lastLocationOnScreen[0] = locationOnScreen[0];
+        lastLocationOnScreen[1] = locationOnScreen[1];
+
+        final boolean isVisible = getGlobalVisibleRect(visibleRect);
+        final long visibleArea = isVisible ? (long) visibleRect.width() * visibleRect.height() : 0;
+        isOnScreen = isVisible && visibleArea > 0;
+        isPartlyObscured = visibleArea < (long) getWidth() * getHeight();
+        updateFpsReduction();
+        updateVideoTrackAttachment();
+    }
+
+    private void updateFpsReduction() {
+        float fps = maxFps > 0 ? maxFps : Float.POSITIVE_INFINITY;
+        if (obscuredMaxFps > 0 && (isAnimating || isPartlyObscured)) {
+            fps = Math.min(fps, obscuredMaxFps);
+        }
+        if (surfaceViewRenderer == null || fps == appliedFps) {
+            return;
+        }
+        appliedFps = fps;
+        if (Float.isInfinite(fps)) {
+            surfaceViewRenderer.disableFpsReduction();
+        } else {
+            surfaceViewRenderer.setFpsReduction(fps);
+        }
+    }
+
+    //region Visibility
+
+    @Override
+    protected void onWindowVisibilityChanged(final int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        isWindowVisible = visibility == VISIBLE;
+        updateVideoTrackAttachment();
+    }
+
+    @Override
+    public void onHostResume() {
+        isHostResumed = true;
+        updateVideoTrackAttachment();
+    }
+
+    @Override
+    public void onHostPause() {
+        isHostResumed = false;
+        updateVideoTrackAttachment();
+    }
+
+    @Override
+    public void onHostDestroy() {
+        isHostResumed = false;
+        updateVideoTrackAttachment();
+    }
+
+    /**
+     * ビューが表示されているかどうかに合わせて、トラックにシンクを付け外しします。
+     */
+    private void updateVideoTrackAttachment() {
+        final boolean shouldRender = isAttached
+                && isShown()
+                && isWindowVisible
+                && isHostResumed
+                && isOnScreen;
+        if (shouldRender) {
+            if (!isVideoTrackRendererAdded && videoTrack != null) {
+                Log.d(TAG, "updateVideoTrackAttachment() - attach " + getId());
+            }
+            attachVideoTrackWithRenderer();
+        } else {
+            if (isVideoTrackRendererAdded) {
+                Log.d(TAG, "updateVideoTrackAttachment() - detach " + getId());
+            }
+            detachVideoTrackWithRenderer();
+        }
+    }
+
+    /**
+     * デバッグ用に、描画に関する現在の状態を返します。
+     */
+    @NonNull
+    WritableMap getRenderStateJsonValue() {
+        final WritableMap json = Arguments.createMap();
+        json.putBoolean("hasTrack", videoTrack != null);
+        json.putBoolean("isSinkAttached", isVideoTrackRendererAdded);
+        json.putBoolean("isWindowVisible", isWindowVisible);
+        json.putBoolean("isHostResumed", isHostResumed);
+        json.putBoolean("isOnScreen", isOnScreen);
+        json.putBoolean("isPartlyObscured", isPartlyObscured);
+        json.putBoolean("isAnimating", isAnimating);
+        json.putDouble("maxFps", Float.isInfinite(appliedFps) ? 0 : appliedFps);
+        json.putDouble("renderScale", renderScale);
+        return json;
+    }
+
+    /**
+     * 描画の統計を返します。統計が有効でない場合は null を返します。
+     */
+    @Nullable
+    WritableMap getRenderStatsJsonValue() {
+        if (surfaceViewRenderer == null || !surfaceViewRenderer.stats.isEnabled()) {
+            return null;
+        }
+        return WebRTCConverter.videoRenderStatsJsonValue(surfaceViewRenderer.stats.getSnapshot());
+    }
+
+    //endregion
+
+    /**
+     * トラックを外し、内部に保持しているSurfaceViewRendererをプールに返却します。
      * なお内部に抱えているvideoTrackはdispose()されません。そちらは必要に応じて別途開放してください。
      */
     void release() {
         setVideoTrack(null);
-        surfaceViewRenderer.release();
+        recycleRenderer();
+    }
+
+    private void recycleRenderer() {
+        if (surfaceViewRenderer == null) {
+            return;
+        }
+        final WebRTCSurfaceViewRenderer renderer = surfaceViewRenderer;
+        surfaceViewRenderer = null;
+        final WebRTCModule module = getReactContext().getNativeModule(WebRTCModule.class);
+        if (module != null) {
+            module.getVideoRendererPool().recycle(renderer);
+        } else {
+            removeView(renderer);
+            renderer.release();
+        }
     }
 
     private void attachVideoTrackWithRenderer() {
-        if (videoTrack == null || isVideoTrackRendererAdded) return;
+        if (videoTrack == null || surfaceViewRenderer == null || isVideoTrackRendererAdded) return;
+        // 統計はフレームを受け取り始めてからの値とし、最初のフレームまでの時間をここから計る
+        surfaceViewRenderer.stats.reset();
         videoTrack.addSink(surfaceViewRenderer);
         isVideoTrackRendererAdded = true;
+        final WebRTCModule module = getReactContext().getNativeModule(WebRTCModule.class);
+        if (module != null) {
+            module.onVideoSinkAdded(videoTrack);
+        }
     }
 
     private void detachVideoTrackWithRenderer() {
-        if (videoTrack == null || isVideoTrackRendererAdded) return;
+        if (videoTrack == null || !isVideoTrackRendererAdded) return;
         videoTrack.removeSink(surfaceViewRenderer);
         isVideoTrackRendererAdded = false;
+        final WebRTCModule module = getReactContext().getNativeModule(WebRTCModule.class);
+        if (module != null) {
+            module.onVideoSinkRemoved(videoTrack);
+        }
     }
 
 }
@@ -5,6 +5,7 @@ import androidx.annotation.NonNull;
 import android.util.Log;
 
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.common.MapBuilder;
 import com.facebook.react.uimanager.SimpleViewManager;
 import com.facebook.react.uimanager.ThemedReactContext;
 import com.facebook.react.uimanager.annotations.ReactProp;
@@ -12,6 +13,7 @@ import com.facebook.react.uimanager.annotations.ReactProp;
 import org.webrtc.MediaStreamTrack;
 import org.webrtc.VideoTrack;
 
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import static jp.shiguredo.react.webrtckit.Readables.string;
@@ -49,6 +51,12 @@ public class WebRTCVideoViewManager extends SimpleViewManager<WebRTCVideoView> {
     }
     */
 
+    @Override
+    @Nullable
+    public Map<String, Object> getExportedCustomDirectEventTypeConstants() {
+        return MapBuilder.<String, Object>of("topRenderStats", MapBuilder.of("registrationName", "onRenderStats"));
+    }
+
     //region ReactProp
 
     @ReactProp(name = "objectFit")
@@ -56,7 +64,7 @@ public class WebRTCVideoViewManager extends SimpleViewManager<WebRTCVideoView> {
         Log.d(getName(), "setObjectFit() - objectFit=" + objectFit);
         if (objectFit == null) {
             // Default = "contain" なので "contain" の実装に合わせる
-            view.surfaceViewRenderer.setScalingType(SCALE_ASPECT_FILL, SCALE_ASPECT_FILL);
+            view.setScalingType(SCALE_ASPECT_FILL);
             return;
         }
         // XXX: "cover" と "contain" が怪しい、iOS側の実装が逆なのでは？
@@ -76,12 +84,12 @@ public class WebRTCVideoViewManager extends SimpleViewManager<WebRTCVideoView> {
                 //      `setScalingType` can specify 2 scale types but the `scalingTypeMismatchOrientation` argument is only consider its orientation (horizontal or vertical)
                 //      so it just doesn't matter the aspect ratio when it matches the orientation. Bummer!
                 //      Thus both "fill" and "contain" has to be identical for now. It can be manually implemented later, maybe.
-                view.surfaceViewRenderer.setScalingType(SCALE_ASPECT_FILL, SCALE_ASPECT_FILL);
+                view.setScalingType(SCALE_ASPECT_FILL);
                 break;
             case "cover":
                 // "cover" = UIViewContentModeScaleAspectFit in iOS
                 // アスペクト比を保ちながら表示領域の中に収まるように映像を小さくして収めます。
-                view.surfaceViewRenderer.setScalingType(SCALE_ASPECT_FIT, SCALE_ASPECT_FIT);
+                view.setScalingType(SCALE_ASPECT_FIT);
 
                 break;
             case "contain":
@@ -92,11 +100,41 @@ public class WebRTCVideoViewManager extends SimpleViewManager<WebRTCVideoView> {
                 //      `setScalingType` can specify 2 scale types but the `scalingTypeMismatchOrientation` argument is only consider its orientation (horizontal or vertical)
                 //      so it just doesn't matter the aspect ratio when it matches the orientation. Bummer!
                 //      Thus both "fill" and "contain" has to be identical for now. It can be manually implemented later, maybe.
-                view.surfaceViewRenderer.setScalingType(SCALE_ASPECT_FILL, SCALE_ASPECT_FILL);
+                view.setScalingType(SCALE_ASPECT_FILL);
                 break;
         }
     }
 
+    @ReactProp(name = "maxFps", defaultFloat = 0f)
+    public void setMaxFps(@NonNull final WebRTCVideoView view, final float maxFps) {
+        Log.d(getName(), "setMaxFps() - maxFps=" + maxFps);
+        view.setMaxFps(maxFps);
+    }
+
+    @ReactProp(name = "obscuredMaxFps", defaultFloat = 0f)
+    public void setObscuredMaxFps(@NonNull final WebRTCVideoView view, final float obscuredMaxFps) {
+        Log.d(getName(), "setObscuredMaxFps() - obscuredMaxFps=" + obscuredMaxFps);
+        view.setObscuredMaxFps(obscuredMaxFps);
+    }
+
+    @ReactProp(name = "renderScale", defaultFloat = 1f)
+    public void setRenderScale(@NonNull final WebRTCVideoView view, final float renderScale) {
+        Log.d(getName(), "setRenderScale() - renderScale=" + renderScale);
+        view.setRenderScale(renderScale);
+    }
+
+    @ReactProp(name = "renderStats", defaultBoolean = false)
+    public void setRenderStats(@NonNull final WebRTCVideoView view, final boolean renderStats) {
+        Log.d(getName(), "setRenderStats() - renderStats=" + renderStats);
+        view.setRenderStatsEnabled(renderStats);
+    }
+
+    @ReactProp(name = "renderStatsInterval", defaultInt = 0)
+    public void setRenderStatsInterval(@NonNull final WebRTCVideoView view, final int renderStatsInterval) {
+        Log.d(getName(), "setRenderStatsInterval() - renderStatsInterval=" + renderStatsInterval);
+        view.setRenderStatsInterval(renderStatsInterval);
+    }
+
     @ReactProp(name = "reactStreamId")
     public void setReactStreamId(@NonNull final WebRTCVideoView view, @Nullable final String reactStreamId) {
         throw new NoSuchElementException("'streamValueTag' property is deprecated. use 'track' property");
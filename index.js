@@ -4,6 +4,7 @@ export { default as WebRTC } from './src/WebRTC';
 export { RTCEvent } from './src/Event/RTCEvents';
 export { RTCMediaStreamTrackEvent } from './src/Event/RTCEvents';
 export { RTCIceCandidateEvent } from './src/Event/RTCEvents';
+export { RTCIceCandidatesEvent } from './src/Event/RTCEvents';
 export { default as RTCConfiguration } from './src/PeerConnection/RTCConfiguration';
 export { default as RTCPeerConnection } from './src/PeerConnection/RTCPeerConnection';
 export { default as RTCIceCandidate } from './src/PeerConnection/RTCIceCandidate';
@@ -18,7 +19,12 @@ export { RTCRtpHeaderExtensionParameters } from './src/PeerConnection/RTCRtpPara
 export { RTCRtpEncodingParameters } from './src/PeerConnection/RTCRtpParameters';
 export { RTCRtpCodecParameters } from './src/PeerConnection/RTCRtpParameters';
 export { default as RTCSessionDescription } from './src/PeerConnection/RTCSessionDescription';
+export { default as RTCCommandBatch } from './src/PeerConnection/RTCCommandBatch';
+export { default as RTCPerfectNegotiation } from './src/PeerConnection/RTCPerfectNegotiation';
 export { default as RTCVideoView } from './src/VideoView/RTCVideoView';
+export { getVideoViewRenderState } from './src/VideoView/RTCVideoView';
+export { getVideoViewRenderStats } from './src/VideoView/RTCVideoView';
+export { default as RTCVideoGridView } from './src/VideoView/RTCVideoGridView';
 export { default as RTCMediaStream } from './src/MediaStream/RTCMediaStream';
 export { default as RTCMediaStreamTrack } from './src/MediaStream/RTCMediaStreamTrack';
 export { default as RTCMediaStreamConstraints } from './src/MediaStream/RTCMediaStreamConstraints';
@@ -32,8 +38,10 @@ export type { RTCPeerConnectionState } from './src/PeerConnection/RTCPeerConnect
 export type { RTCSignalingState } from './src/PeerConnection/RTCPeerConnection';
 export type { RTCIceGatheringState } from './src/PeerConnection/RTCPeerConnection';
 export type { RTCIceConnectionState } from './src/PeerConnection/RTCPeerConnection';
+export type { RTCIceCandidateFilterOptions } from './src/PeerConnection/RTCPeerConnection';
 export type { RTCFacingMode } from './src/MediaStream/RTCMediaStreamConstraints';
 export type { RTCSdpType } from './src/PeerConnection/RTCSessionDescription';
+export type { RTCPerfectNegotiationOptions } from './src/PeerConnection/RTCPerfectNegotiation';
 export type { RTCUserMedia } from './src/MediaDevice/getUserMedia';
 export type { RTCAudioPort } from './src/MediaDevice/RTCAudioPort';
 
@@ -96,6 +96,31 @@ export class RTCIceCandidateEvent {
     }
 }
 
+/**
+ * まとめて通知された複数の ICE candidate のイベントを表します。
+ * RTCPeerConnection.setIceCandidateFilter() で `batchInterval` を指定した場合に利用します。
+ */
+export class RTCIceCandidatesEvent {
+
+    /**
+     * イベントの種別
+     */
+    type: string;
+
+    /**
+     * まとめて通知された ICE candidate の配列
+     */
+    candidates: Array<RTCIceCandidate>;
+
+    /**
+     * @package
+     */
+    constructor(type: string, candidates: Array<RTCIceCandidate>) {
+        this.type = type.toString();
+        this.candidates = candidates;
+    }
+}
+
 /**
  * RTCDataChannel に関するイベントを表します。
  * RTCPeerConnection.ondatachannel にて利用します。
@@ -1,5 +1,7 @@
 // @flow
 
+import { Platform } from 'react-native';
+
 /**
  * 使用するカメラの位置を表します。
  * 
@@ -38,6 +40,87 @@ export function aspectRatioValue(ratio: RTCAspectRatio | number | null): number
     }
 }
 
+/**
+ * 数値の制約です。
+ * 数値のみを指定した場合は `ideal` として扱われます。
+ *
+ * - `min` - 最小値 (必須)
+ * - `max` - 最大値 (必須)
+ * - `exact` - 完全に一致する値 (必須)
+ * - `ideal` - 望ましい値。最も近いものが選ばれます。
+ *
+ * 必須の制約を満たすデバイスが存在しない場合、 {@link getUserMedia} は失敗します。
+ *
+ * iOS では範囲の指定に対応していないため、 `exact` 、 `ideal` 、 `max` 、 `min` の順に最初に指定された値を使います。
+ *
+ * @typedef {Object} RTCConstrainNumber
+ * @see https://www.w3.org/TR/mediacapture-streams/#dom-constraindouble
+ */
+export type RTCConstrainNumber = {
+    min?: number,
+    max?: number,
+    exact?: number,
+    ideal?: number
+}
+
+/**
+ * @package
+ */
+export function aspectRatioConstraintValue(ratio: RTCAspectRatio | number | RTCConstrainNumber | null): number | Object | null {
+    if (ratio !== null && typeof ratio === 'object') {
+        var json = {};
+        for (const key of ['min', 'max', 'exact', 'ideal']) {
+            if (ratio[key] != null) {
+                json[key] = aspectRatioValue(ratio[key]);
+            }
+        }
+        return json;
+    }
+    return aspectRatioValue(ratio);
+}
+
+/**
+ * iOS のネイティブレイヤーは数値しか受け付けないため、数値の制約を 1 つの数値にします。
+ * @private
+ */
+function plainNumberValue(value: number | Object | null): number | null {
+    if (value === null || typeof value !== 'object') {
+        return value;
+    }
+    for (const key of ['exact', 'ideal', 'max', 'min']) {
+        if (value[key] != null) {
+            return value[key];
+        }
+    }
+    return null;
+}
+
+/**
+ * @package
+ */
+export function numberConstraintValue(value: number | Object | null): number | Object | null {
+    return Platform.OS === 'ios' ? plainNumberValue(value) : value;
+}
+
+/**
+ * 負荷試験や回帰テストのために、カメラの代わりに使用する映像ソースです。
+ * Android のみサポートしています。
+ *
+ * - `kind: 'synthetic'` - テストパターンを生成します。
+ *   `complexity` (0.0 - 1.0, デフォルトは 0.5) が大きいほどノイズが増え、エンコーダーの負荷が高くなります。
+ * - `kind: 'file'` - `path` で指定された Y4M ファイルを繰り返し再生します。
+ *
+ * 映像の大きさとフレームレートは `width` 、 `height` 、 `frameRate` から決まります。
+ * ファイルの場合、大きさはファイルの内容に従います。
+ *
+ * @typedef {Object} RTCVideoSourceConstraints
+ */
+export type RTCVideoSourceConstraints = {
+    kind: 'synthetic' | 'file',
+    path?: string,
+    complexity?: number
+}
+
 /**
  * 映像に関する制約です。
  */
@@ -51,22 +134,27 @@ export class RTCMediaStreamVideoConstraints {
     /**
      * 映像の幅
      */
-    width: number | null;
+    width: number | RTCConstrainNumber | null;
 
     /**
      * 映像の高さ
      */
-    height: number | null;
+    height: number | RTCConstrainNumber | null;
 
     /**
      * 映像のフレームレート
      */
-    frameRate: number | null;
+    frameRate: number | RTCConstrainNumber | null;
 
     /**
      * アスペクト比
      */
-    aspectRatio: RTCAspectRatio | number | null;
+    aspectRatio: RTCAspectRatio | number | RTCConstrainNumber | null;
+
+    /**
+     * カメラの代わりに使用する映像ソース (Android のみ)
+     */
+    source: RTCVideoSourceConstraints | null;
 
 }
 
@@ -132,10 +220,11 @@ export default class RTCMediaStreamConstraints {
         if (video) {
             json.video = {
                 facingMode: video.facingMode,
-                width: video.width,
-                height: video.height,
-                frameRate: video.frameRate,
-                aspectRatio: aspectRatioValue(video.aspectRatio)
+                width: numberConstraintValue(video.width),
+                height: numberConstraintValue(video.height),
+                frameRate: numberConstraintValue(video.frameRate),
+                aspectRatio: numberConstraintValue(aspectRatioConstraintValue(video.aspectRatio)),
+                source: video.source
             };
         }
         var audio = this.audio;
@@ -1,10 +1,10 @@
 // @flow
 
-import { NativeModules } from 'react-native';
+import { NativeModules, Platform } from 'react-native';
 import RTCMediaStreamTrackEventTarget from './RTCMediaStreamTrackEventTarget';
 import WebRTC from '../WebRTC';
-import { aspectRatioValue } from './RTCMediaStreamConstraints';
-import type { RTCAspectRatio } from './RTCMediaStreamConstraints';
+import { aspectRatioValue, aspectRatioConstraintValue } from './RTCMediaStreamConstraints';
+import type { RTCAspectRatio, RTCMediaStreamVideoConstraints } from './RTCMediaStreamConstraints';
 import type { ValueTag } from '../PeerConnection/RTCPeerConnection';
 
 /** @private */
@@ -38,6 +38,98 @@ export type RTCMediaStreamTrackState =
     | 'live'
     | 'ended';
 
+/**
+ * 制約によって選択された映像トラックの設定です。
+ * Android のみサポートしています。
+ *
+ * @typedef {Object} RTCMediaTrackSettings
+ * @property {string} deviceId カメラデバイス名 (テストパターンは `synthetic` 、ファイルは `file:` に続くパス)
+ * @property {RTCFacingMode|null} facingMode カメラの位置 (カメラ以外のソースの場合は null)
+ * @property {number} width 映像の幅
+ * @property {number} height 映像の高さ
+ * @property {number} frameRate フレームレート
+ * @property {number} aspectRatio アスペクト比
+ */
+export type RTCMediaTrackSettings = {
+    deviceId: string,
+    facingMode: ?string,
+    width: number,
+    height: number,
+    frameRate: number,
+    aspectRatio: number
+}
+
+/**
+ * 映像フレームの加工処理の設定です。
+ * `name` で処理を指定し、その他のキーは処理の設定として渡されます。
+ * Android のみサポートしています。
+ *
+ * 組み込みの処理は以下の通りです。
+ *
+ * - `crop` - `x`, `y`, `width`, `height` で指定された範囲を切り出します。
+ * - `scale` - `width`, `height` に拡大縮小します。
+ * - `rotate` - `degrees` (90 の倍数) だけ回転します。
+ *
+ * アプリケーションが WebRTCVideoFrameProcessorRegistry に登録した独自の処理も、登録名で指定できます。
+ *
+ * @typedef {Object} RTCVideoProcessorStage
+ */
+export type RTCVideoProcessorStage = {
+    name: string,
+    [key: string]: any
+}
+
+/**
+ * {@link RTCMediaStreamTrack#snapshot} の設定です。
+ * Android のみサポートしています。
+ *
+ * @typedef {Object} RTCVideoSnapshotOptions
+ * @property {number} maxWidth 画像の最大の幅。これより大きい映像は縮小されます。デフォルトは縮小しません。
+ * @property {string} format 画像の形式 (`'jpeg'` または `'webp'`) 。デフォルトは `'jpeg'` です。
+ * @property {number} quality 画質 (0 - 100) 。デフォルトは 80 です。
+ * @property {string} result 結果の形式。
+ * `'file'` はキャッシュディレクトリに書き出してパスを返し、 `'base64'` は Base64 の文字列を返します。
+ * デフォルトは `'file'` です。
+ * @property {number} timeout フレームが届くまで待つ時間 (ミリ秒) 。デフォルトは 5000 です。
+ */
+export type RTCVideoSnapshotOptions = {
+    maxWidth?: number,
+    format?: 'jpeg' | 'webp',
+    quality?: number,
+    result?: 'file' | 'base64',
+    timeout?: number
+}
+
+/**
+ * 映像トラックのスナップショットです。
+ *
+ * @typedef {Object} RTCVideoSnapshot
+ * @property {number} width 画像の幅
+ * @property {number} height 画像の高さ
+ * @property {string} format 画像の形式
+ * @property {string} path 画像のファイルのパス (`result` が `'file'` の場合)
+ * @property {string} data Base64 でエンコードされた画像 (`result` が `'base64'` の場合)
+ */
+export type RTCVideoSnapshot = {
+    width: number,
+    height: number,
+    format: 'jpeg' | 'webp',
+    path?: string,
+    data?: string
+}
+
+/**
+ * ネイティブのトラックの現在の状態です。
+ *
+ * @typedef {Object} RTCMediaStreamTrackNativeState
+ * @property {boolean} enabled 現在の出力の可否。自動で一時停止しているトラックは `false`
+ * @property {RTCMediaStreamTrackState} readyState トラックの状態
+ */
+export type RTCMediaStreamTrackNativeState = {
+    enabled: boolean,
+    readyState: RTCMediaStreamTrackState
+}
+
 /**
  * トラックを表します。
  */
@@ -48,6 +140,40 @@ export default class RTCMediaStreamTrack extends RTCMediaStreamTrackEventTarget
         WebRTCModule.trackSetEnabled(enabled, valueTag);
     }
 
+    /** @private */
+    static nativeStop(valueTag: ValueTag) {
+        WebRTCModule.trackStop(valueTag);
+    }
+
+    /** @private */
+    static nativeSwitchCamera(valueTag: ValueTag,
+        facingModeOrDeviceName: string): Promise<RTCMediaTrackSettings> {
+        return WebRTCModule.trackSwitchCamera(facingModeOrDeviceName, valueTag);
+    }
+
+    /** @private */
+    static nativeApplyConstraints(valueTag: ValueTag,
+        constraints: Object): Promise<RTCMediaTrackSettings> {
+        return WebRTCModule.trackApplyConstraints(constraints, valueTag);
+    }
+
+    /** @private */
+    static nativeSetVideoProcessors(valueTag: ValueTag,
+        stages: Array<RTCVideoProcessorStage>): Promise<void> {
+        return WebRTCModule.trackSetVideoProcessors(stages, valueTag);
+    }
+
+    /** @private */
+    static nativeSnapshot(valueTag: ValueTag,
+        options: RTCVideoSnapshotOptions): Promise<RTCVideoSnapshot> {
+        return WebRTCModule.trackSnapshot(options, valueTag);
+    }
+
+    /** @private */
+    static nativeStateSync(valueTag: ValueTag): RTCMediaStreamTrackNativeState | null {
+        return WebRTCModule.trackStateSync(valueTag);
+    }
+
     /** @private */
     static nativeAspectRatio(valueTag: ValueTag,
         aspectRatio: number) {
@@ -82,6 +208,7 @@ export default class RTCMediaStreamTrack extends RTCMediaStreamTrackEventTarget
     _valueTag: ValueTag;
     _enabled: boolean;
     _aspectRatio: number | null;
+    _settings: RTCMediaTrackSettings | null;
 
     /**
      * トラックの出力の可否
@@ -141,6 +268,153 @@ export default class RTCMediaStreamTrack extends RTCMediaStreamTrackEventTarget
         this.remote = info.remote;
         this._valueTag = info.valueTag;
         this._enabled = info.enabled;
+        this._settings = info.settings || null;
+    }
+
+    /**
+     * 制約によって選択された映像の設定を返します。
+     * {@link getUserMedia} で生成した映像トラック以外では `null` を返します。
+     *
+     * @return {RTCMediaTrackSettings|null} 設定
+     */
+    getSettings(): RTCMediaTrackSettings | null {
+        return this._settings;
+    }
+
+    /**
+     * トラックへの入力を停止します。
+     * Android のみサポートしています。
+     *
+     * {@link stopUserMedia} と異なり、このトラックのキャプチャのみを停止します。
+     * 停止したトラックは再開できません。
+     */
+    stop(): void {
+        if (Platform.OS !== 'android') {
+            return;
+        }
+        if (this.readyState === 'ended') {
+            return;
+        }
+        RTCMediaStreamTrack.nativeStop(this._valueTag);
+        this._close();
+    }
+
+    /**
+     * キャプチャを止めずに映像の制約を変更します。
+     * Android のみサポートしています。
+     *
+     * 現在のキャプチャの範囲内であれば、解像度とフレームレートを下げた映像を出力します。
+     * より大きな解像度やフレームレートが必要な場合は、同じカメラのキャプチャフォーマットを変更します。
+     * アスペクト比が指定されている場合は、映像の中央をクロップします。
+     * `facingMode` は無視されます。カメラを切り替えるには {@link switchCamera} を使用してください。
+     *
+     * @example
+     * // 負荷が高いときは 360p/15fps に下げる
+     * track.applyConstraints({ width: 640, height: 360, frameRate: 15 });
+     *
+     * @param {RTCMediaStreamVideoConstraints} constraints 映像の制約
+     * @return {Promise<RTCMediaTrackSettings>} 適用後の設定を表す Promise 。
+     *  制約を満たせない場合は `OverconstrainedError` で失敗します。
+     */
+    applyConstraints(constraints: RTCMediaStreamVideoConstraints): Promise<RTCMediaTrackSettings> {
+        if (Platform.OS !== 'android') {
+            return Promise.reject(new Error("applyConstraints() is available only on Android"));
+        }
+        const json = {
+            width: constraints.width,
+            height: constraints.height,
+            frameRate: constraints.frameRate,
+            aspectRatio: aspectRatioConstraintValue(constraints.aspectRatio == null ? null : constraints.aspectRatio)
+        };
+        return RTCMediaStreamTrack.nativeApplyConstraints(this._valueTag, json)
+            .then(settings => {
+                this._settings = settings;
+                return settings;
+            });
+    }
+
+    /**
+     * キャプチャ中のカメラを切り替えます。
+     * Android のみサポートしています。
+     *
+     * トラックを維持したままカメラを切り替えるため、
+     * `removeTrack()` や `addTrack()` 、再ネゴシエーションは不要です。
+     * 切り替え先では現在の設定に最も近いフォーマットが選ばれます。
+     *
+     * @param {RTCFacingMode|string} facingModeOrDeviceName 切り替え先のカメラの位置、またはデバイス名
+     * @return {Promise<RTCMediaTrackSettings>} 切り替え後の設定を表す Promise
+     */
+    switchCamera(facingModeOrDeviceName: string): Promise<RTCMediaTrackSettings> {
+        if (Platform.OS !== 'android') {
+            return Promise.reject(new Error("switchCamera() is available only on Android"));
+        }
+        return RTCMediaStreamTrack.nativeSwitchCamera(this._valueTag, facingModeOrDeviceName)
+            .then(settings => {
+                this._settings = settings;
+                return settings;
+            });
+    }
+
+    /**
+     * キャプチャされた映像を送信前に加工する処理を設定します。
+     * Android のみサポートしています。
+     *
+     * 処理は配列の順に、キャプチャのスレッドで適用されます。
+     * 空の配列を与えると処理を解除します。
+     * 処理ごとの所要時間は {@link getAndResetMetrics} で取得できます。
+     *
+     * @example
+     * track.setVideoProcessors([
+     *   { name: 'crop', x: 0, y: 0, width: 640, height: 360 },
+     *   { name: 'rotate', degrees: 90 }
+     * ]);
+     *
+     * @param {Array<RTCVideoProcessorStage>} stages 処理の配列
+     * @return {Promise<void>} 登録されていない処理が含まれる場合は `NotFoundError` で失敗します。
+     */
+    setVideoProcessors(stages: Array<RTCVideoProcessorStage>): Promise<void> {
+        if (Platform.OS !== 'android') {
+            return Promise.reject(new Error("setVideoProcessors() is available only on Android"));
+        }
+        return RTCMediaStreamTrack.nativeSetVideoProcessors(this._valueTag, stages);
+    }
+
+    /**
+     * 映像トラックの次のフレームを JPEG または WebP の画像にします。
+     * Android のみサポートしています。
+     *
+     * リモートの参加者のサムネイルなど、ビュー全体のスクリーンショットを撮らずに映像を画像にできます。
+     * 縮小と変換は専用のスレッドで行うため、描画を妨げません。
+     *
+     * @example
+     * const snapshot = await track.snapshot({ maxWidth: 320, format: 'jpeg', quality: 70 });
+     * <Image source={{ uri: 'file://' + snapshot.path }} />
+     *
+     * @param {RTCVideoSnapshotOptions} options スナップショットの設定
+     * @return {Promise<RTCVideoSnapshot>} 時間内にフレームが届かない場合は `TimeoutError` で失敗します。
+     */
+    snapshot(options: RTCVideoSnapshotOptions = {}): Promise<RTCVideoSnapshot> {
+        if (Platform.OS !== 'android') {
+            return Promise.reject(new Error("snapshot() is available only on Android"));
+        }
+        return RTCMediaStreamTrack.nativeSnapshot(this._valueTag, options);
+    }
+
+    /**
+     * ネイティブのトラックの現在の状態を同期的に返します。
+     * Android のみサポートしています。 iOS では `null` を返します。
+     *
+     * `enabled` と `readyState` は JS 側で保持している値ですが、
+     * このメソッドは非同期の往復なしにネイティブの値を読み出します。
+     * リモートデバッグ中は同期的な呼び出しが使えません。
+     *
+     * @return {RTCMediaStreamTrackNativeState|null} トラックが存在しない場合は `null`
+     */
+    getNativeState(): RTCMediaStreamTrackNativeState | null {
+        if (Platform.OS !== 'android') {
+            return null;
+        }
+        return RTCMediaStreamTrack.nativeStateSync(this._valueTag);
     }
 
     _close() {
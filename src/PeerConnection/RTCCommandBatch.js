@@ -0,0 +1,267 @@
+// @flow
+
+import { NativeModules, Platform } from 'react-native';
+
+import RTCMediaStreamTrack from '../MediaStream/RTCMediaStreamTrack';
+import RTCConfiguration from './RTCConfiguration';
+import RTCIceCandidate from './RTCIceCandidate';
+import RTCMediaConstraints from './RTCMediaConstraints';
+import RTCPeerConnection from './RTCPeerConnection';
+import RTCRtpSender from './RTCRtpSender';
+import RTCRtpTransceiver from './RTCRtpTransceiver';
+import RTCSessionDescription from './RTCSessionDescription';
+import type { RTCRtpTransceiverDirection } from './RTCRtpTransceiver';
+import logger from '../Util/RTCLogger';
+
+/** @private */
+const { WebRTCModule } = NativeModules;
+
+/**
+ * ネイティブで実行する操作です。
+ * @private
+ */
+type RTCCommand = {
+  method: string;
+  args: Array<any>;
+}
+
+/**
+ * @private
+ */
+type RTCCommandEntry = {
+  // Android でネイティブにまとめて渡す操作
+  command: RTCCommand;
+  // ネイティブの結果を JS のオブジェクトに変換し、関連するオブジェクトの状態を更新する
+  apply: (result: any) => any;
+  // iOS で個別に実行する
+  fallback: () => Promise<any>;
+}
+
+/**
+ * 複数の操作をまとめて 1 回の呼び出しで実行します。
+ *
+ * 操作は追加した順に 1 つずつ実行され、最初に失敗した操作で止まります。
+ * 再ネゴシエーションのように多くの操作を続けて行う場合に、
+ * 操作ごとのネイティブレイヤーとの往復を 1 回にまとめられます。
+ *
+ * Android 以外では、各操作を個別に順に実行します。
+ *
+ * @example
+ * const batch = new RTCCommandBatch();
+ * batch.addTrack(pc, videoTrack, [streamId]);
+ * batch.addTrack(pc, audioTrack, [streamId]);
+ * batch.setTrackEnabled(audioTrack, false);
+ * batch.offerAndSetLocal(pc, constraints);
+ * const [videoSender, audioSender, , offer] = await batch.execute();
+ */
+export default class RTCCommandBatch {
+
+  /** @private */
+  static nativeExecuteBatch(commands: Array<RTCCommand>): Promise<Array<any>> {
+    return WebRTCModule.executeBatch(commands);
+  }
+
+  _entries: Array<RTCCommandEntry> = [];
+
+  /**
+   * 追加された操作の数
+   *
+   * @type {number}
+   */
+  get size(): number {
+    return this._entries.length;
+  }
+
+  /**
+   * {@link RTCPeerConnection#addTrack} を追加します。結果は {@link RTCRtpSender} です。
+   */
+  addTrack(pc: RTCPeerConnection, track: RTCMediaStreamTrack, streamIds: Array<string>): RTCCommandBatch {
+    return this._add('peerConnectionAddTrack', [track._valueTag, streamIds, pc._valueTag],
+      info => {
+        const sender = new RTCRtpSender(info);
+        pc.senders.push(sender);
+        return sender;
+      },
+      () => pc.addTrack(track, streamIds));
+  }
+
+  /**
+   * {@link RTCPeerConnection#removeTrack} を追加します。
+   */
+  removeTrack(pc: RTCPeerConnection, sender: RTCRtpSender): RTCCommandBatch {
+    return this._add('peerConnectionRemoveTrack', [sender._valueTag, pc._valueTag],
+      () => {
+        pc.senders = pc.senders.filter(e => e.id != sender.id);
+        return null;
+      },
+      () => pc.removeTrack(sender));
+  }
+
+  /**
+   * {@link RTCPeerConnection#setConfiguration} を追加します。
+   */
+  setConfiguration(pc: RTCPeerConnection, configuration: RTCConfiguration): RTCCommandBatch {
+    return this._add('peerConnectionSetConfiguration', [configuration.toJSON(), pc._valueTag],
+      () => null,
+      () => Promise.resolve(pc.setConfiguration(configuration)));
+  }
+
+  /**
+   * {@link RTCRtpTransceiver#setDirection} を追加します。
+   */
+  setDirection(transceiver: RTCRtpTransceiver, direction: RTCRtpTransceiverDirection): RTCCommandBatch {
+    return this._add('transceiverSetDirection', [transceiver._valueTag, direction],
+      () => null,
+      () => Promise.resolve(transceiver.setDirection(direction)));
+  }
+
+  /**
+   * {@link RTCRtpTransceiver#stop} を追加します。
+   */
+  stopTransceiver(transceiver: RTCRtpTransceiver): RTCCommandBatch {
+    return this._add('transceiverStop', [transceiver._valueTag],
+      () => {
+        transceiver.stopped = true;
+        return null;
+      },
+      () => Promise.resolve(transceiver.stop()));
+  }
+
+  /**
+   * トラックの {@link RTCMediaStreamTrack#enabled} の変更を追加します。
+   */
+  setTrackEnabled(track: RTCMediaStreamTrack, enabled: boolean): RTCCommandBatch {
+    return this._add('trackSetEnabled', [enabled, track._valueTag],
+      () => {
+        track._enabled = enabled;
+        return null;
+      },
+      () => {
+        track.enabled = enabled;
+        return Promise.resolve(null);
+      });
+  }
+
+  /**
+   * {@link RTCPeerConnection#createOffer} を追加します。結果は {@link RTCSessionDescription} です。
+   */
+  createOffer(pc: RTCPeerConnection, constraints: RTCMediaConstraints): RTCCommandBatch {
+    return this._add('peerConnectionCreateOffer', [pc._valueTag, constraints.toJSON()],
+      data => new RTCSessionDescription(data.type, data.sdp),
+      () => pc.createOffer(constraints));
+  }
+
+  /**
+   * {@link RTCPeerConnection#createAnswer} を追加します。結果は {@link RTCSessionDescription} です。
+   */
+  createAnswer(pc: RTCPeerConnection, constraints: RTCMediaConstraints): RTCCommandBatch {
+    return this._add('peerConnectionCreateAnswer', [pc._valueTag, constraints.toJSON()],
+      data => new RTCSessionDescription(data.type, data.sdp),
+      () => pc.createAnswer(constraints));
+  }
+
+  /**
+   * {@link RTCPeerConnection#setLocalDescription} を追加します。
+   */
+  setLocalDescription(pc: RTCPeerConnection, sessionDescription: RTCSessionDescription): RTCCommandBatch {
+    return this._add('peerConnectionSetLocalDescription', [sessionDescription.toJSON(), pc._valueTag],
+      () => {
+        pc.localDescription = sessionDescription;
+        return null;
+      },
+      () => pc.setLocalDescription(sessionDescription));
+  }
+
+  /**
+   * {@link RTCPeerConnection#setRemoteDescription} を追加します。
+   */
+  setRemoteDescription(pc: RTCPeerConnection, sessionDescription: RTCSessionDescription): RTCCommandBatch {
+    return this._add('peerConnectionSetRemoteDescription', [sessionDescription.toJSON(), pc._valueTag],
+      () => {
+        pc.remoteDescription = sessionDescription;
+        return null;
+      },
+      () => pc.setRemoteDescription(sessionDescription));
+  }
+
+  /**
+   * {@link RTCPeerConnection#offerAndSetLocal} を追加します。結果は設定したローカルの {@link RTCSessionDescription} です。
+   */
+  offerAndSetLocal(pc: RTCPeerConnection, constraints: RTCMediaConstraints): RTCCommandBatch {
+    return this._add('peerConnectionOfferAndSetLocal', [pc._valueTag, constraints.toJSON()],
+      data => {
+        pc.localDescription = new RTCSessionDescription(data.type, data.sdp);
+        return pc.localDescription;
+      },
+      () => pc.offerAndSetLocal(constraints));
+  }
+
+  /**
+   * {@link RTCPeerConnection#answerRemoteAndSetLocal} を追加します。結果は設定したローカルの {@link RTCSessionDescription} です。
+   */
+  answerRemoteAndSetLocal(pc: RTCPeerConnection,
+    sessionDescription: RTCSessionDescription,
+    constraints: RTCMediaConstraints): RTCCommandBatch {
+    return this._add('peerConnectionAnswerRemoteAndSetLocal',
+      [sessionDescription.toJSON(), constraints.toJSON(), pc._valueTag],
+      data => {
+        pc.remoteDescription = sessionDescription;
+        pc.localDescription = new RTCSessionDescription(data.type, data.sdp);
+        return pc.localDescription;
+      },
+      () => pc.answerRemoteAndSetLocal(sessionDescription, constraints));
+  }
+
+  /**
+   * {@link RTCPeerConnection#addIceCandidate} を追加します。
+   * リモートの SDP が設定されるまで完了しないため、リモートの SDP を設定する操作より後に追加してください。
+   */
+  addIceCandidate(pc: RTCPeerConnection, candidate: RTCIceCandidate): RTCCommandBatch {
+    return this._add('peerConnectionAddICECandidate', [candidate.toJSON(), pc._valueTag],
+      () => null,
+      () => pc.addIceCandidate(candidate));
+  }
+
+  /**
+   * {@link RTCPeerConnection#addIceCandidates} を追加します。
+   * リモートの SDP が設定されるまで完了しないため、リモートの SDP を設定する操作より後に追加してください。
+   */
+  addIceCandidates(pc: RTCPeerConnection, candidates: Array<RTCIceCandidate>): RTCCommandBatch {
+    return this._add('peerConnectionAddICECandidates', [candidates.map(e => e.toJSON()), pc._valueTag],
+      () => null,
+      () => pc.addIceCandidates(candidates));
+  }
+
+  /**
+   * 追加した操作を順に実行します。
+   * 実行後、このオブジェクトは空になります。
+   *
+   * @return {Promise<Array<any>>} 各操作の結果の配列。結果がない操作は `null` です。
+   *  いずれかの操作が失敗した場合は、その操作の番号を含むエラーで失敗します。
+   */
+  execute(): Promise<Array<any>> {
+    const entries = this._entries;
+    this._entries = [];
+    if (entries.length === 0) {
+      return Promise.resolve([]);
+    }
+    logger.log(`# CommandBatch: execute ${entries.length} commands`);
+    if (Platform.OS !== 'android') {
+      return entries.reduce((promise, entry) =>
+        promise.then(results => entry.fallback().then(result => results.concat([result]))),
+        Promise.resolve([]));
+    }
+    return RTCCommandBatch.nativeExecuteBatch(entries.map(entry => entry.command))
+      .then(results => results.map((result, i) => entries[i].apply(result)));
+  }
+
+  /** @private */
+  _add(method: string,
+    args: Array<any>,
+    apply: (result: any) => any,
+    fallback: () => Promise<any>): RTCCommandBatch {
+    this._entries.push({ command: { method, args }, apply, fallback });
+    return this;
+  }
+
+}
@@ -59,6 +59,18 @@ export type RTCDataChannelState =
   | 'closing'
   | 'closed';
 
+/**
+ * ネイティブの DataChannel の現在の状態です。
+ *
+ * @typedef {Object} RTCDataChannelNativeState
+ * @property {RTCDataChannelState} readyState 接続状態
+ * @property {number} bufferedAmount 送信待ちのデータのバイト数
+ */
+export type RTCDataChannelNativeState = {
+  readyState: RTCDataChannelState;
+  bufferedAmount: number;
+}
+
 /**
  * DataChannel 接続を表すオブジェクトです。
  * @member {number} foo
@@ -76,6 +88,11 @@ export default class RTCDataChannel extends RTCDataChannelEventTarget {
     return WebRTCModule.dataChannelClose(valueTag);
   }
 
+  /** @private */
+  static nativeStateSync(valueTag: ValueTag): RTCDataChannelNativeState | null {
+    return WebRTCModule.dataChannelStateSync(valueTag);
+  }
+
   _binaryType: string = 'arraybuffer';
   /**
    * 送信できるデータのbinaryType を表します。
@@ -305,6 +322,23 @@ export default class RTCDataChannel extends RTCDataChannelEventTarget {
     RTCDataChannel.nativeCloseDataChannel(this._valueTag);
   }
 
+  /**
+   * ネイティブの DataChannel の現在の状態を同期的に返します。
+   * Android のみサポートしています。 iOS では `null` を返します。
+   *
+   * `readyState` と `bufferedAmount` はイベントで更新される値ですが、
+   * このメソッドは非同期の往復なしにネイティブの値を読み出すため、送信のフロー制御に使えます。
+   * リモートデバッグ中は同期的な呼び出しが使えません。
+   *
+   * @return {RTCDataChannelNativeState|null} DataChannel が存在しない場合は `null`
+   */
+  getNativeState(): RTCDataChannelNativeState | null {
+    if (Platform.OS !== 'android') {
+      return null;
+    }
+    return RTCDataChannel.nativeStateSync(this._valueTag);
+  }
+
   /**
    * ネイティブレイヤーからのコールバックイベントを登録します。
    * 発火するイベントは以下の通りです。
@@ -1,11 +1,11 @@
 // @flow
 
-import { DeviceEventEmitter } from 'react-native';
+import { DeviceEventEmitter, Platform } from 'react-native';
 import { NativeModules } from 'react-native';
 
 import RTCMediaStream from '../MediaStream/RTCMediaStream';
 import RTCMediaStreamTrack from '../MediaStream/RTCMediaStreamTrack';
-import { RTCEvent, RTCMediaStreamTrackEvent, RTCIceCandidateEvent, RTCDataChannelEvent } from '../Event/RTCEvents';
+import { RTCEvent, RTCMediaStreamTrackEvent, RTCIceCandidateEvent, RTCIceCandidatesEvent, RTCDataChannelEvent } from '../Event/RTCEvents';
 import RTCIceCandidate from './RTCIceCandidate';
 import RTCPeerConnectionEventTarget from './RTCPeerConnectionEventTarget';
 import RTCSessionDescription from './RTCSessionDescription';
@@ -34,6 +34,29 @@ const { WebRTCModule } = NativeModules;
  */
 export type ValueTag = string;
 
+/**
+ * 生成した ICE candidate を通知する前に間引く条件です。
+ *
+ * - `dropTcp`: TCP の candidate を捨てる
+ * - `dropIpv6`: IPv6 の candidate を捨てる
+ * - `dropLinkLocal`: リンクローカルアドレスの candidate を捨てる
+ * - `dropHost`: host candidate を捨てる
+ * - `relayOnly`: relay 以外の candidate を捨てる
+ * - `deduplicate`: 同じアドレス・ポート・種別の candidate を 2 回目以降は捨てる
+ * - `batchInterval`: candidate をまとめてネイティブレイヤーから受け取る間隔 (ミリ秒)
+ *
+ * @typedef {Object} RTCIceCandidateFilterOptions
+ */
+export type RTCIceCandidateFilterOptions = {
+  dropTcp?: boolean;
+  dropIpv6?: boolean;
+  dropLinkLocal?: boolean;
+  dropHost?: boolean;
+  relayOnly?: boolean;
+  deduplicate?: boolean;
+  batchInterval?: number;
+}
+
 /**
  * RTCPeerConnection の接続状態です。
  *
@@ -132,6 +155,12 @@ export default class RTCPeerConnection extends RTCPeerConnectionEventTarget {
     return WebRTCModule.peerConnectionAddICECandidate(candidate.toJSON(), valueTag);
   }
 
+  /** @private */
+  static nativeAddICECandidates(valueTag: ValueTag,
+    candidates: Array<RTCIceCandidate>): Promise<void> {
+    return WebRTCModule.peerConnectionAddICECandidates(candidates.map(e => e.toJSON()), valueTag);
+  }
+
   /** @private */
   static nativeAddTrack(valueTag: ValueTag,
     trackValueTag: ValueTag,
@@ -184,6 +213,24 @@ export default class RTCPeerConnection extends RTCPeerConnectionEventTarget {
     return WebRTCModule.peerConnectionSetRemoteDescription(sdp.toJSON(), valueTag);
   }
 
+  /** @private */
+  static nativeOfferAndSetLocal(valueTag: ValueTag,
+    constraints: RTCMediaConstraints): Promise<Object> {
+    return WebRTCModule.peerConnectionOfferAndSetLocal(valueTag, constraints.toJSON());
+  }
+
+  /** @private */
+  static nativeAnswerRemoteAndSetLocal(valueTag: ValueTag,
+    sdp: RTCSessionDescription,
+    constraints: RTCMediaConstraints): Promise<Object> {
+    return WebRTCModule.peerConnectionAnswerRemoteAndSetLocal(sdp.toJSON(), constraints.toJSON(), valueTag);
+  }
+
+  /** @private */
+  static nativeSetIceCandidateFilter(valueTag: ValueTag, options: RTCIceCandidateFilterOptions | null) {
+    WebRTCModule.peerConnectionSetIceCandidateFilter(options, valueTag);
+  }
+
   /** @private */
   static nativeCreateDataChannel(valueTag: ValueTag, label: string, options: RTCDataChannelInit | null): Promise<Object> {
     return WebRTCModule.peerConnectionCreateDataChannel(label, options, valueTag);
@@ -255,6 +302,8 @@ export default class RTCPeerConnection extends RTCPeerConnectionEventTarget {
   *
    * @listens {connectionstatechange} `RTCEvent`: `connectionState` が変更されると送信されます。
    * @listens {icecandidate} `RTCIceCandidateEvent`: ICE Candidate が生成されると送信されます。
+   * @listens {icecandidates} `RTCIceCandidatesEvent`: {@link setIceCandidateFilter} で `batchInterval` を指定した場合に、
+   *   まとめた ICE Candidate の配列とともに送信されます。続けて candidate ごとに `icecandidate` イベントも送信されます。
    * @listens {iceconnectionstatechange} `RTCEvent`: `iceConnectionState` が変更されると送信されます。
    * @listens {icegatheringstatechange} `RTCIceCandidateEvent` | `RTCIceCandidateEvent`: `iceGatheringState` が変更されると送信されるイベント
    * @listens {negotiationneeded} `RTCEvent`: ネゴシエーションが必要になったときに送信されます。
@@ -323,6 +372,12 @@ export default class RTCPeerConnection extends RTCPeerConnectionEventTarget {
   /**
    * ICE candidate を追加します。
    *
+   * Android では、リモートの SDP が設定される前に追加した candidate は、
+   * 設定が成功するまでネイティブで保持されます。
+   * その場合、 Promise は設定が終わって candidate の追加を試みてから解決されます。
+   * candidate を追加できなかった場合は `OperationError` で、
+   * 追加する前に接続が閉じられた場合は `InvalidStateError` で失敗します。
+   *
    * @param {RTCIceCandidate} candidate ICE candidate
    * @return {Promise<Void>} 結果を示す Promise
    */
@@ -330,6 +385,25 @@ export default class RTCPeerConnection extends RTCPeerConnectionEventTarget {
     return RTCPeerConnection.nativeAddICECandidate(this._valueTag, candidate);
   }
 
+  /**
+   * 複数の ICE candidate を追加します。
+   *
+   * Android では 1 回の呼び出しでネイティブに渡し、すべての candidate を追加できたら解決します。
+   * いずれかの candidate を追加できなかった場合は `OperationError` で失敗します。
+   * Android 以外では {@link addIceCandidate} を順に呼び出します。
+   *
+   * @param {Array<RTCIceCandidate>} candidates ICE candidate の配列
+   * @return {Promise<Void>} 結果を示す Promise
+   */
+  addIceCandidates(candidates: Array<RTCIceCandidate>): Promise<void> {
+    if (Platform.OS !== 'android') {
+      return candidates.reduce((promise, candidate) =>
+        promise.then(() => this.addIceCandidate(candidate)),
+        Promise.resolve());
+    }
+    return RTCPeerConnection.nativeAddICECandidates(this._valueTag, candidates);
+  }
+
   /**
    * @deprecated ストリームの操作は廃止されました。 senders を使用してください。
    *
@@ -407,6 +481,26 @@ export default class RTCPeerConnection extends RTCPeerConnectionEventTarget {
     return RTCPeerConnection.nativeRemoveTrack(this._valueTag, sender._valueTag);
   }
 
+  /**
+   * 生成した ICE candidate を `icecandidate` イベントで通知する前に、条件に従って間引きます。
+   * `batchInterval` を指定すると、その間に生成された candidate をネイティブレイヤーからまとめて受け取り、
+   * まとめた candidate の配列を `icecandidates` イベントで送信してから、 candidate ごとに `icecandidate` イベントを送信します。
+   * シグナリングで candidate をまとめて送る場合は `icecandidates` イベントを使ってください。
+   * ICE の収集が完了したときは、まとめている candidate を先に通知します。
+   *
+   * ICE の収集を始める前 (ローカルの SDP を設定する前) に呼び出してください。
+   * Android 以外では何もしません。
+   *
+   * @param {RTCIceCandidateFilterOptions|null} options 間引く条件。 `null` の場合は解除します
+   */
+  setIceCandidateFilter(options: RTCIceCandidateFilterOptions | null): void {
+    logger.log(`# PeerConnection[${this._valueTag}]: set ICE candidate filter`);
+    if (Platform.OS !== 'android') {
+      return;
+    }
+    RTCPeerConnection.nativeSetIceCandidateFilter(this._valueTag, options);
+  }
+
   /**
    * 設定を反映します。
    *
@@ -448,6 +542,54 @@ export default class RTCPeerConnection extends RTCPeerConnectionEventTarget {
       });
   }
 
+  /**
+   * Offer SDP を生成し、ローカルの SDP に設定します。
+   *
+   * {@link createOffer} と {@link setLocalDescription} を続けて呼び出すのと同じですが、
+   * Android ではネイティブで続けて処理するため、 SDP がネイティブレイヤーとの間を往復しません。
+   *
+   * @param {RTCMediaConstraints} constraints 制約
+   * @return {Promise<RTCSessionDescription>} 設定したローカルの SDP
+   */
+  offerAndSetLocal(constraints: RTCMediaConstraints): Promise<RTCSessionDescription> {
+    logger.log(`# PeerConnection[${this._valueTag}]: offer and set local description`);
+    if (Platform.OS !== 'android') {
+      return this.createOffer(constraints)
+        .then(offer => this.setLocalDescription(offer).then(() => offer));
+    }
+    return RTCPeerConnection.nativeOfferAndSetLocal(this._valueTag, constraints)
+      .then(data => {
+        this.localDescription = new RTCSessionDescription(data.type, data.sdp);
+        return this.localDescription;
+      });
+  }
+
+  /**
+   * リモートの Offer SDP を設定し、 Answer SDP を生成してローカルの SDP に設定します。
+   *
+   * {@link setRemoteDescription} 、 {@link createAnswer} 、 {@link setLocalDescription} を続けて呼び出すのと同じですが、
+   * Android ではネイティブで続けて処理するため、生成した SDP が 1 回しかネイティブレイヤーから渡されません。
+   *
+   * @param {RTCSessionDescription} sessionDescription リモートの Offer SDP
+   * @param {RTCMediaConstraints} constraints 制約
+   * @return {Promise<RTCSessionDescription>} 設定したローカルの SDP
+   */
+  answerRemoteAndSetLocal(sessionDescription: RTCSessionDescription,
+    constraints: RTCMediaConstraints): Promise<RTCSessionDescription> {
+    logger.log(`# PeerConnection[${this._valueTag}]: answer remote and set local description`);
+    if (Platform.OS !== 'android') {
+      return this.setRemoteDescription(sessionDescription)
+        .then(() => this.createAnswer(constraints))
+        .then(answer => this.setLocalDescription(answer).then(() => answer));
+    }
+    return RTCPeerConnection.nativeAnswerRemoteAndSetLocal(this._valueTag, sessionDescription, constraints)
+      .then(data => {
+        this.remoteDescription = sessionDescription;
+        this.localDescription = new RTCSessionDescription(data.type, data.sdp);
+        return this.localDescription;
+      });
+  }
+
   /**
   * DataChannel を作成します。
   *
@@ -572,6 +714,18 @@ export default class RTCPeerConnection extends RTCPeerConnectionEventTarget {
         this.dispatchEvent(new RTCIceCandidateEvent('icecandidate', { candidate }));
       }),
 
+      DeviceEventEmitter.addListener('peerConnectionGotICECandidates', ev => {
+        if (ev.valueTag !== this._valueTag) {
+          return;
+        }
+        logger.log(`# PeerConnection[${this._valueTag}]: event: peerConnectionGotICECandidates => ${ev.candidates.length}`);
+        const candidates = ev.candidates.map(info => new RTCIceCandidate(info));
+        this.dispatchEvent(new RTCIceCandidatesEvent('icecandidates', candidates));
+        candidates.forEach(candidate => {
+          this.dispatchEvent(new RTCIceCandidateEvent('icecandidate', { candidate }));
+        });
+      }),
+
       DeviceEventEmitter.addListener('peerConnectionIceGatheringChanged', ev => {
         if (ev.valueTag !== this._valueTag) {
           return;
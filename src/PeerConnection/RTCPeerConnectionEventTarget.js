@@ -8,6 +8,7 @@ import EventTarget from 'event-target-shim';
 export const PEER_CONNECTION_EVENTS = [
   'connectionstatechange',
   'icecandidate',
+  'icecandidates',
   'iceconnectionstatechange',
   'icegatheringstatechange',
   'identityresult',
@@ -0,0 +1,260 @@
+// @flow
+
+import { DeviceEventEmitter, NativeModules, Platform } from 'react-native';
+
+import RTCIceCandidate from './RTCIceCandidate';
+import RTCMediaConstraints from './RTCMediaConstraints';
+import RTCPeerConnection from './RTCPeerConnection';
+import RTCSessionDescription from './RTCSessionDescription';
+import type { ValueTag } from './RTCPeerConnection';
+import logger from '../Util/RTCLogger';
+
+/** @private */
+const { WebRTCModule } = NativeModules;
+
+/**
+ * RTCPerfectNegotiation のオプションです。
+ *
+ * - `polite`: Offer が衝突したときに、自分の Offer を取り消して相手の Offer を受け入れる場合は `true`
+ *
+ * @typedef {Object} RTCPerfectNegotiationOptions
+ */
+export type RTCPerfectNegotiationOptions = {
+  polite: boolean;
+}
+
+/**
+ * Perfect Negotiation の手順で RTCPeerConnection のネゴシエーションを行います。
+ * https://w3c.github.io/webrtc-pc/#perfect-negotiation-example
+ *
+ * 再ネゴシエーションが必要になると Offer を生成してローカルの SDP に設定し、
+ * {@link RTCPerfectNegotiation#onsenddescription} で相手に送信する SDP を渡します。
+ * 相手から受け取った SDP と ICE candidate は {@link RTCPerfectNegotiation#receiveDescription} と
+ * {@link RTCPerfectNegotiation#receiveCandidate} に渡してください。
+ * 自分の ICE candidate は、これまでどおり RTCPeerConnection の `icecandidate` イベントで受け取れます。
+ *
+ * Android ではネゴシエーションをネイティブで行うため、 `negotiationneeded` イベントは送信されません。
+ * Offer と Answer の生成と設定、 Offer の衝突時の取り消しが JS を経由せずに行われます。
+ * Android 以外では、同じ手順を JS で行います。
+ *
+ * トラックを追加する前に有効にしてください。
+ *
+ * @example
+ * const negotiation = new RTCPerfectNegotiation(pc, { polite: true });
+ * negotiation.onsenddescription = description => signaling.send({ description });
+ * pc.onicecandidate = ev => ev.candidate && signaling.send({ candidate: ev.candidate });
+ * signaling.onmessage = ({ description, candidate }) => {
+ *   if (description) negotiation.receiveDescription(description);
+ *   if (candidate) negotiation.receiveCandidate(candidate);
+ * };
+ */
+export default class RTCPerfectNegotiation {
+
+  /** @private */
+  static nativeSetPerfectNegotiation(valueTag: ValueTag, enabled: boolean, polite: boolean) {
+    WebRTCModule.peerConnectionSetPerfectNegotiation(enabled, polite, valueTag);
+  }
+
+  /** @private */
+  static nativeReceiveDescription(valueTag: ValueTag, sdp: RTCSessionDescription): Promise<boolean> {
+    return WebRTCModule.peerConnectionNegotiationReceiveDescription(sdp.toJSON(), valueTag);
+  }
+
+  /** @private */
+  static nativeReceiveCandidate(valueTag: ValueTag, candidate: RTCIceCandidate): Promise<boolean> {
+    return WebRTCModule.peerConnectionNegotiationReceiveCandidate(candidate.toJSON(), valueTag);
+  }
+
+  /**
+   * Offer が衝突したときに相手の Offer を受け入れるかどうか
+   *
+   * @type {boolean}
+   */
+  polite: boolean;
+
+  /**
+   * 相手に送信する SDP を受け取ります。
+   */
+  onsenddescription: ((description: RTCSessionDescription) => void) | null = null;
+
+  /**
+   * 再ネゴシエーション中に発生したエラーを受け取ります。
+   */
+  onerror: ((error: Error) => void) | null = null;
+
+  _pc: RTCPeerConnection;
+  _nativeEventListeners: Array<any> = [];
+  _closed: boolean = false;
+
+  // Android 以外で使う
+  _makingOffer: boolean = false;
+  _ignoreOffer: boolean = false;
+  _isSettingRemoteAnswerPending: boolean = false;
+  _negotiationNeededListener: (() => void) | null = null;
+
+  /**
+   * Perfect Negotiation を有効にします。
+   *
+   * @param {RTCPeerConnection} pc ネゴシエーションを行う RTCPeerConnection
+   * @param {RTCPerfectNegotiationOptions} options オプション
+   */
+  constructor(pc: RTCPeerConnection, options: RTCPerfectNegotiationOptions) {
+    this._pc = pc;
+    this.polite = options.polite;
+    logger.log(`# PerfectNegotiation[${pc._valueTag}]: enable, polite => ${this.polite.toString()}`);
+    if (Platform.OS === 'android') {
+      RTCPerfectNegotiation.nativeSetPerfectNegotiation(pc._valueTag, true, this.polite);
+      this._registerEventsFromNative();
+    } else {
+      this._negotiationNeededListener = () => this._negotiate();
+      pc.addEventListener('negotiationneeded', this._negotiationNeededListener);
+    }
+  }
+
+  /**
+   * 相手から受け取った SDP を適用します。
+   * Offer の場合は Answer を生成し、 {@link RTCPerfectNegotiation#onsenddescription} で渡します。
+   *
+   * @param {RTCSessionDescription} description 相手から受け取った SDP
+   * @return {Promise<boolean>} 適用した場合は `true` 、 Offer の衝突により無視した場合は `false`
+   */
+  receiveDescription(description: RTCSessionDescription): Promise<boolean> {
+    const sessionDescription = new RTCSessionDescription(description.type, description.sdp);
+    logger.log(`# PerfectNegotiation[${this._pc._valueTag}]: receive description => ${sessionDescription.type}`);
+    if (Platform.OS === 'android') {
+      return RTCPerfectNegotiation.nativeReceiveDescription(this._pc._valueTag, sessionDescription)
+        .then(isApplied => {
+          if (isApplied) {
+            this._pc.remoteDescription = sessionDescription;
+          }
+          return isApplied;
+        });
+    }
+    return this._receiveDescription(sessionDescription);
+  }
+
+  /**
+   * 相手から受け取った ICE candidate を追加します。
+   * 無視した Offer に対応する ICE candidate の追加に失敗した場合はエラーになりません。
+   *
+   * @param {RTCIceCandidate} candidate 相手から受け取った ICE candidate
+   * @return {Promise<boolean>} 追加した場合は `true` 、無視した場合は `false`
+   */
+  receiveCandidate(candidate: RTCIceCandidate): Promise<boolean> {
+    const iceCandidate = new RTCIceCandidate(candidate);
+    if (Platform.OS === 'android') {
+      return RTCPerfectNegotiation.nativeReceiveCandidate(this._pc._valueTag, iceCandidate);
+    }
+    return this._pc.addIceCandidate(iceCandidate)
+      .then(() => true)
+      .catch(error => {
+        if (this._ignoreOffer) {
+          return false;
+        }
+        throw error;
+      });
+  }
+
+  /**
+   * Perfect Negotiation を無効にします。
+   * 以降、ネゴシエーションは RTCPeerConnection の `negotiationneeded` イベントで行ってください。
+   */
+  close(): void {
+    if (this._closed) {
+      return;
+    }
+    logger.log(`# PerfectNegotiation[${this._pc._valueTag}]: close`);
+    this._closed = true;
+    if (Platform.OS === 'android') {
+      RTCPerfectNegotiation.nativeSetPerfectNegotiation(this._pc._valueTag, false, this.polite);
+      this._nativeEventListeners.forEach(e => e.remove());
+      this._nativeEventListeners = [];
+    } else if (this._negotiationNeededListener) {
+      this._pc.removeEventListener('negotiationneeded', this._negotiationNeededListener);
+      this._negotiationNeededListener = null;
+    }
+  }
+
+  _sendDescription(description: RTCSessionDescription): void {
+    if (this._closed || !this.onsenddescription) {
+      return;
+    }
+    this.onsenddescription(description);
+  }
+
+  _handleError(error: Error): void {
+    logger.log(`# PerfectNegotiation[${this._pc._valueTag}]: error => `, error);
+    if (this.onerror) {
+      this.onerror(error);
+    }
+  }
+
+  _registerEventsFromNative(): void {
+    this._nativeEventListeners = [
+      DeviceEventEmitter.addListener('peerConnectionNegotiationSendDescription', ev => {
+        if (ev.valueTag !== this._pc._valueTag) {
+          return;
+        }
+        const description = new RTCSessionDescription(ev.description.type, ev.description.sdp);
+        this._pc.localDescription = description;
+        this._sendDescription(description);
+      }),
+
+      DeviceEventEmitter.addListener('peerConnectionNegotiationError', ev => {
+        if (ev.valueTag !== this._pc._valueTag) {
+          return;
+        }
+        const error = new Error(ev.message);
+        (error: any).code = ev.code;
+        this._handleError(error);
+      }),
+    ];
+  }
+
+  _negotiate(): void {
+    if (this._closed) {
+      return;
+    }
+    this._makingOffer = true;
+    this._pc.offerAndSetLocal(new RTCMediaConstraints())
+      .then(offer => this._sendDescription(offer))
+      .catch(error => this._handleError(error))
+      .then(() => {
+        this._makingOffer = false;
+      });
+  }
+
+  _receiveDescription(description: RTCSessionDescription): Promise<boolean> {
+    const pc = this._pc;
+    const isReadyForOffer = !this._makingOffer &&
+      (pc.signalingState === 'stable' || this._isSettingRemoteAnswerPending);
+    const isOfferCollision = description.type === 'offer' && !isReadyForOffer;
+    this._ignoreOffer = !this.polite && isOfferCollision;
+    if (this._ignoreOffer) {
+      logger.log(`# PerfectNegotiation[${pc._valueTag}]: ignore the colliding offer`);
+      return Promise.resolve(false);
+    }
+    this._isSettingRemoteAnswerPending = description.type === 'answer';
+    // offer の作成中で、まだローカルの offer を設定していない場合は巻き戻すものがないため、そのまま適用する
+    const rollback = isOfferCollision && pc.signalingState === 'have-local-offer'
+      ? pc.setLocalDescription(new RTCSessionDescription('rollback', ''))
+      : Promise.resolve();
+    return rollback
+      .then(() => {
+        if (description.type !== 'offer') {
+          return pc.setRemoteDescription(description);
+        }
+        return pc.answerRemoteAndSetLocal(description, new RTCMediaConstraints())
+          .then(answer => this._sendDescription(answer));
+      })
+      .then(() => true, error => {
+        this._isSettingRemoteAnswerPending = false;
+        throw error;
+      })
+      .then(isApplied => {
+        this._isSettingRemoteAnswerPending = false;
+        return isApplied;
+      });
+  }
+
+}
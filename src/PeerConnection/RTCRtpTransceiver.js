@@ -1,6 +1,6 @@
 // @flow
 
-import { NativeModules } from 'react-native';
+import { NativeModules, Platform } from 'react-native';
 import RTCRtpSender from './RTCRtpSender';
 import RTCRtpReceiver from './RTCRtpReceiver';
 import { nativeBoolean } from '../Util/RTCUtil';
@@ -50,6 +50,16 @@ export default class RTCRtpTransceiver {
     return WebRTCModule.transceiverCurrentDirection(valueTag)
   }
 
+  /** @private */
+  static nativeDirectionSync(valueTag: ValueTag): RTCRtpTransceiverDirection | null {
+    return WebRTCModule.transceiverDirectionSync(valueTag);
+  }
+
+  /** @private */
+  static nativeCurrentDirectionSync(valueTag: ValueTag): RTCRtpTransceiverDirection | null {
+    return WebRTCModule.transceiverCurrentDirectionSync(valueTag);
+  }
+
   /** @private */
   static nativeStop(valueTag: ValueTag) {
     WebRTCModule.transceiverStop(valueTag);
@@ -121,4 +131,33 @@ export default class RTCRtpTransceiver {
     return RTCRtpTransceiver.nativeCurrentDirection(this._valueTag);
   }
 
+  /**
+   * {@link direction} と同じ値を同期的に返します。
+   * Android のみサポートしています。 iOS では `null` を返します。
+   *
+   * ネイティブの値を JS のスレッドから直接読み出すため、非同期の往復が発生しません。
+   * リモートデバッグ中は同期的な呼び出しが使えないため、 {@link direction} を使用してください。
+   *
+   * @return {RTCRtpTransceiverDirection|null} 送受信の方向。トランシーバーが存在しない場合は `null`
+   */
+  directionSync(): RTCRtpTransceiverDirection | null {
+    if (Platform.OS !== 'android') {
+      return null;
+    }
+    return RTCRtpTransceiver.nativeDirectionSync(this._valueTag);
+  }
+
+  /**
+   * {@link currentDirection} と同じ値を同期的に返します。
+   * Android のみサポートしています。 iOS では `null` を返します。
+   *
+   * @return {RTCRtpTransceiverDirection|null} 使用されている送受信の方向。ネゴシエーションが済んでいない場合は `null`
+   */
+  currentDirectionSync(): RTCRtpTransceiverDirection | null {
+    if (Platform.OS !== 'android') {
+      return null;
+    }
+    return RTCRtpTransceiver.nativeCurrentDirectionSync(this._valueTag);
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+// @flow
+
+import {
+  requireNativeComponent,
+  ViewPropTypes
+} from 'react-native';
+import PropTypes from 'prop-types';
+import React from 'react';
+import RTCMediaStreamTrack from '../MediaStream/RTCMediaStreamTrack';
+
+import type { RTCObjectFit } from './RTCVideoView';
+
+type Props = {
+
+  objectFit: RTCObjectFit,
+  tracks: Array<RTCMediaStreamTrack>,
+  columns: number,
+  spacing: number
+
+};
+
+/** @private */
+const NativeProps = {
+  name: 'WebRTCVideoGridView',
+  propTypes: {
+    objectFit: PropTypes.oneOf(['fill', 'contain', 'cover']),
+    tracks: PropTypes.arrayOf(PropTypes.instanceOf(RTCMediaStreamTrack)),
+    columns: PropTypes.number,
+    spacing: PropTypes.number,
+    ...ViewPropTypes
+  }
+};
+
+/**
+ * @package
+ */
+const WebRTCVideoGridView = requireNativeComponent('WebRTCVideoGridView', NativeProps);
+export default WebRTCVideoGridView;
+
+/**
+ * 複数の映像トラックをタイル状に並べて描画します。
+ * Android のみサポートしています。
+ *
+ * {@link RTCVideoView} を並べる場合と異なり、すべての映像を 1 つの描画スレッドと 1 つのサーフェスで描画するため、
+ * 多人数のギャラリー表示でも描画の負荷を抑えられます。
+ *
+ * NOTE: このクラス定義は ESDoc で RTCVideoGridView の説明を記述するために用意してあります。
+ * RTCVideoGridView は React ネイティブコンポーネントとして実装されており、
+ * このクラスのインスタンスは本ライブラリ中では使われません。
+ */
+export class RTCVideoGridView extends React.Component<Props> {
+
+  /**
+   * 各タイルにおける映像のサイズ調整方法
+   */
+  objectFit: RTCObjectFit = 'cover';
+
+  /**
+   * 描画する映像トラック。左上から順に並べます。
+   */
+  tracks: Array<RTCMediaStreamTrack> = [];
+
+  /**
+   * 列数。 0 の場合はトラック数から正方形に近くなるように決めます。
+   */
+  columns: number = 0;
+
+  /**
+   * タイル間の間隔
+   */
+  spacing: number = 0;
+
+}
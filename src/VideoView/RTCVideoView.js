@@ -1,6 +1,9 @@
 // @flow
 
 import {
+  findNodeHandle,
+  NativeModules,
+  Platform,
   requireNativeComponent,
   ViewPropTypes
 } from 'react-native';
@@ -36,7 +39,13 @@ export type RTCObjectFit =
 type Props = {
 
   objectFit: RTCObjectFit,
-  track: RTCMediaStreamTrack
+  track: RTCMediaStreamTrack,
+  maxFps: number,
+  obscuredMaxFps: number,
+  renderScale: number,
+  renderStats: boolean,
+  renderStatsInterval: number,
+  onRenderStats: (event: { nativeEvent: RTCVideoViewRenderStats }) => void
 
 };
 
@@ -46,6 +55,12 @@ const NativeProps = {
   propTypes: {
     objectFit: PropTypes.oneOf(['fill', 'contain', 'cover']),
     track: PropTypes.instanceOf(RTCMediaStreamTrack),
+    maxFps: PropTypes.number,
+    obscuredMaxFps: PropTypes.number,
+    renderScale: PropTypes.number,
+    renderStats: PropTypes.bool,
+    renderStatsInterval: PropTypes.number,
+    onRenderStats: PropTypes.func,
     ...ViewPropTypes
   }
 };
@@ -56,6 +71,94 @@ const NativeProps = {
 const WebRTCVideoView = requireNativeComponent('WebRTCVideoView', NativeProps);
 export default WebRTCVideoView;
 
+/** @private */
+const { WebRTCModule } = NativeModules;
+
+/**
+ * RTCVideoView の描画に関する状態です。デバッグ用です。
+ *
+ * @typedef {Object} RTCVideoViewRenderState
+ * @property {boolean} hasTrack トラックが設定されていれば `true`
+ * @property {boolean} isSinkAttached トラックからフレームを受け取っていれば `true`
+ * @property {boolean} isWindowVisible ウィンドウが表示されていれば `true`
+ * @property {boolean} isHostResumed アプリがフォアグラウンドにあれば `true`
+ * @property {boolean} isOnScreen ビューの一部でも画面内に表示されていれば `true`
+ * @property {boolean} isPartlyObscured ビューの一部が隠れていれば `true`
+ * @property {boolean} isAnimating ビューが移動中であれば `true`
+ * @property {number} maxFps 現在適用している最大フレームレート (0 は制限なし)
+ * @property {number} renderScale 描画サーフェスの縮小率
+ */
+export type RTCVideoViewRenderState = {
+  hasTrack: boolean,
+  isSinkAttached: boolean,
+  isWindowVisible: boolean,
+  isHostResumed: boolean,
+  isOnScreen: boolean,
+  isPartlyObscured: boolean,
+  isAnimating: boolean,
+  maxFps: number,
+  renderScale: number
+}
+
+/**
+ * RTCVideoView の描画に関する現在の状態を取得します。デバッグ用です。
+ * Android のみサポートしています。
+ *
+ * RTCVideoView は表示されていない間 (画面外にスクロールされた、アプリがバックグラウンドにあるなど) は
+ * トラックからフレームを受け取らず、再び表示されたときに受け取りを再開します。
+ *
+ * @param {Object} view RTCVideoView の ref
+ * @return {Promise<RTCVideoViewRenderState>}
+ */
+export function getVideoViewRenderState(view: any): Promise<RTCVideoViewRenderState> {
+  if (Platform.OS !== 'android') {
+    return Promise.reject(new Error("getVideoViewRenderState() is available only on Android"));
+  }
+  return WebRTCModule.videoViewGetRenderState(findNodeHandle(view));
+}
+
+/**
+ * RTCVideoView の描画の統計です。
+ * 値はトラックからフレームを受け取り始めてから (ビューが表示されてから) の集計です。
+ *
+ * @typedef {Object} RTCVideoViewRenderStats
+ * @property {number} framesReceived 受け取ったフレームの数
+ * @property {number} framesRendered 描画したフレームの数
+ * @property {number} framesDropped 受け取ったが描画しなかったフレームの数 (描画の遅れ、フレームレートの制限による間引きを含む)
+ * @property {number} averageRenderTime 直近の描画時間の平均 (ミリ秒)
+ * @property {number} p95RenderTime 直近の描画時間の 95 パーセンタイル (ミリ秒)
+ * @property {number|null} timeToFirstFrame フレームを受け取り始めてから最初のフレームを描画するまでの時間 (ミリ秒)
+ * @property {number} frameWidth 最後に受け取ったフレームの幅
+ * @property {number} frameHeight 最後に受け取ったフレームの高さ
+ */
+export type RTCVideoViewRenderStats = {
+  framesReceived: number,
+  framesRendered: number,
+  framesDropped: number,
+  averageRenderTime: number,
+  p95RenderTime: number,
+  timeToFirstFrame: number | null,
+  frameWidth: number,
+  frameHeight: number
+}
+
+/**
+ * RTCVideoView の描画の統計を取得します。
+ * Android のみサポートしています。
+ *
+ * ビューの `renderStats` または `renderStatsInterval` で統計を有効にしてください。
+ * 統計が有効でない場合は `null` を返します。
+ *
+ * @param {Object} view RTCVideoView の ref
+ * @return {Promise<RTCVideoViewRenderStats|null>}
+ */
+export function getVideoViewRenderStats(view: any): Promise<RTCVideoViewRenderStats | null> {
+  if (Platform.OS !== 'android') {
+    return Promise.reject(new Error("getVideoViewRenderStats() is available only on Android"));
+  }
+  return WebRTCModule.videoViewGetRenderStats(findNodeHandle(view));
+}
+
 /**
  * ストリームから出力される映像を描画します (音声も同時に再生されます) 。
  *
@@ -84,4 +187,44 @@ export class RTCVideoView extends React.Component<Props> {
    */
   track: RTCMediaStreamTrack | null;
 
+  /**
+   * 描画の最大フレームレート。 0 の場合は制限しません。
+   * サムネイルなど、最大のフレームレートで描画する必要のない映像で GPU の負荷と電力消費を抑えます。
+   * Android のみサポートしています。
+   */
+  maxFps: number = 0;
+
+  /**
+   * ビューの移動中 (アニメーション中) 、または一部が画面外や親ビューの外に隠れている間の最大フレームレート。
+   * 0 の場合は制限しません。 `maxFps` より大きい場合は `maxFps` が優先されます。
+   * Android のみサポートしています。
+   */
+  obscuredMaxFps: number = 0;
+
+  /**
+   * ビューの大きさに対する描画サーフェスの大きさの比率 (0 より大きく 1 以下) 。
+   * 1 未満の場合は縮小したサーフェスに描画し、拡大して表示します。
+   * Android のみサポートしています。
+   */
+  renderScale: number = 1;
+
+  /**
+   * `true` の場合は描画の統計を集計します。統計は {@link getVideoViewRenderStats} で取得できます。
+   * Android のみサポートしています。
+   */
+  renderStats: boolean = false;
+
+  /**
+   * 描画の統計を `onRenderStats` で通知する間隔 (ミリ秒) 。 0 の場合は通知しません。
+   * 0 より大きい場合は `renderStats` の指定に関わらず統計を集計します。
+   * Android のみサポートしています。
+   */
+  renderStatsInterval: number = 0;
+
+  /**
+   * 描画の統計を受け取るコールバック。 `event.nativeEvent` が {@link RTCVideoViewRenderStats} です。
+   * Android のみサポートしています。
+   */
+  onRenderStats: (event: { nativeEvent: RTCVideoViewRenderStats }) => void;
+
 }
\ No newline at end of file
@@ -1,10 +1,61 @@
 // @flow
 
-import { NativeModules } from 'react-native';
+import { DeviceEventEmitter, NativeModules, Platform } from 'react-native';
+import logger from './Util/RTCLogger';
 
 /** @private */
 const { WebRTCModule } = NativeModules;
 
+/**
+ * 音声デバイスの設定と、端末内の推定の遅延です。
+ *
+ * @typedef {Object} RTCAudioDeviceInfo
+ * @property {number} inputSampleRate 入力のサンプリングレート (Hz)
+ * @property {number} outputSampleRate 出力のサンプリングレート (Hz)
+ * @property {boolean} stereoInput 入力がステレオであれば `true`
+ * @property {boolean} stereoOutput 出力がステレオであれば `true`
+ * @property {boolean} hardwareEchoCancellation ハードウェアのエコーキャンセラーを使っていれば `true`
+ * @property {boolean} hardwareNoiseSuppression ハードウェアのノイズ抑制を使っていれば `true`
+ * @property {boolean} lowLatency 低遅延の経路を優先していれば `true`
+ * @property {boolean} lowLatencySupported 端末が低遅延の音声をサポートしていれば `true`
+ * @property {number} nativeOutputSampleRate 端末のネイティブの出力サンプリングレート (Hz) 。不明な場合は 0
+ * @property {number} nativeFramesPerBuffer 端末のネイティブの出力バッファのフレーム数。不明な場合は 0
+ * @property {number} estimatedInputLatency 推定の入力の遅延 (ミリ秒)
+ * @property {number} estimatedOutputLatency 推定の出力の遅延 (ミリ秒)
+ */
+export type RTCAudioDeviceInfo = {
+  inputSampleRate: number,
+  outputSampleRate: number,
+  stereoInput: boolean,
+  stereoOutput: boolean,
+  hardwareEchoCancellation: boolean,
+  hardwareNoiseSuppression: boolean,
+  lowLatency: boolean,
+  lowLatencySupported: boolean,
+  nativeOutputSampleRate: number,
+  nativeFramesPerBuffer: number,
+  estimatedInputLatency: number,
+  estimatedOutputLatency: number
+}
+
+/**
+ * 音声トラックの音量です。
+ *
+ * @typedef {Object} RTCAudioLevel
+ * @property {string} valueTag トラックの ValueTag
+ * @property {string} trackId トラック ID
+ * @property {boolean} remote リモートのトラックであれば `true`
+ * @property {number} level 平滑化した音量 (0 - 1)
+ * @property {number} peak 平滑化したピーク (0 - 1) 。リモートのトラックでは `level` と同じ値です。
+ */
+export type RTCAudioLevel = {
+  valueTag: string,
+  trackId: string,
+  remote: boolean,
+  level: number,
+  peak: number
+}
+
 /**
  * ライブラリ全体の設定をするクラスです。
  */
@@ -23,4 +74,148 @@ export default class WebRTC {
       logger.warn("# setMicrophoneEnabled() is available only on iOS");
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * カメラデバイスの列挙結果のキャッシュを破棄します。
+   * Android のみサポートしています。
+   * カメラデバイスの構成が変化した場合 (外付けカメラの抜き差しなど) に実行してください。
+   * キャッシュはバックグラウンドで再構築されます。
+   */
+  static invalidateCameraDeviceCache() {
+    if (Platform.OS === 'android') {
+      WebRTCModule.invalidateCameraDeviceCache();
+    } else {
+      logger.log("# invalidateCameraDeviceCache() is available only on Android");
+    }
+  }
+
+  /**
+   * 同時に実行できるカメラのキャプチャ数の上限を設定します。
+   * Android のみサポートしています。
+   *
+   * 上限に達している間に {@link getUserMedia} でカメラを使おうとすると、 `NotReadableError` で失敗します。
+   * 実行中のキャプチャは止まりません。
+   * デフォルトは、複数のカメラの同時使用をサポートする端末では 2 、それ以外の端末では 1 です。
+   * 端末がサポートする数を超えて設定すると、キャプチャの開始に失敗する場合があります。
+   *
+   * @param {number} value キャプチャ数の上限
+   */
+  static setMaxCaptureSessions(value: number) {
+    if (Platform.OS === 'android') {
+      WebRTCModule.setMaxCaptureSessions(value);
+    } else {
+      logger.log("# setMaxCaptureSessions() is available only on Android");
+    }
+  }
+
+  /**
+   * 同時に実行できるカメラのキャプチャ数の上限を返します。
+   * Android のみサポートしています。 iOS では常に 1 を返します。
+   *
+   * @return {Promise<number>} キャプチャ数の上限
+   */
+  static getMaxCaptureSessions(): Promise<number> {
+    if (Platform.OS === 'android') {
+      return WebRTCModule.getMaxCaptureSessions();
+    }
+    return Promise.resolve(1);
+  }
+
+  /**
+   * すべての音声トラックの音量の計測を開始します。
+   * Android のみサポートしています。
+   *
+   * 音量は `intervalMs` ごとに、すべてのトラックの分をまとめて 1 回だけ {@link addAudioLevelsListener} のリスナーに通知されます。
+   * ローカルのトラックの音量はマイクの入力から、リモートのトラックの音量は統計情報の `audioLevel` から計算します。
+   * 音量は上がるときはすぐに追従し、下がるときは `smoothing` に従ってゆっくり下がります。
+   *
+   * @param {number} intervalMs 通知の間隔 (ミリ秒) 。 0 の場合は計測を止めます。
+   * @param {number} smoothing 平滑化の係数 (0 以上 1 未満) 。大きいほどゆっくり下がります。デフォルトは 0.5 です。
+   */
+  static setAudioLevelMonitoring(intervalMs: number, smoothing: number = 0.5) {
+    if (Platform.OS === 'android') {
+      WebRTCModule.setAudioLevelMonitoring(intervalMs, smoothing);
+    } else {
+      logger.log("# setAudioLevelMonitoring() is available only on Android");
+    }
+  }
+
+  /**
+   * 音声トラックの音量を受け取るリスナーを登録します。
+   * Android のみサポートしています。
+   *
+   * @example
+   * const subscription = WebRTC.addAudioLevelsListener(levels => {
+   *   const speaking = levels.filter(level => level.level > 0.05);
+   * });
+   * subscription.remove();
+   *
+   * @param {function(levels: Array<RTCAudioLevel>)} listener リスナー
+   * @return {Object} `remove()` で登録を解除するオブジェクト
+   */
+  static addAudioLevelsListener(listener: (levels: Array<RTCAudioLevel>) => void): { remove: () => void } {
+    return DeviceEventEmitter.addListener('audioLevels', ev => listener(ev.levels));
+  }
+
+  /**
+   * 音声デバイスの設定と、端末内の推定の遅延を返します。
+   * Android のみサポートしています。
+   *
+   * 音声デバイスの設定はホストアプリケーションが `WebRTCModulePackage` の生成時に
+   * `WebRTCAudioDeviceModuleOptions` で指定します。
+   * 推定の遅延は入力と出力のバッファの長さから計算した値です。
+   * 口から耳までの遅延は、これにネットワークの遅延と受信側のジッタバッファの遅延を加えたものになります。
+   *
+   * @return {Promise<RTCAudioDeviceInfo>} 音声デバイスの情報
+   */
+  static getAudioDeviceInfo(): Promise<RTCAudioDeviceInfo> {
+    if (Platform.OS === 'android') {
+      return WebRTCModule.getAudioDeviceInfo();
+    }
+    return Promise.reject(new Error("getAudioDeviceInfo() is available only on Android"));
+  }
+
+  /**
+   * どのビューにも描画されていないリモートの映像トラックを自動的に一時停止します。
+   * Android のみサポートしています。
+   *
+   * トラックを描画する {@link RTCVideoView} (画面外のビューを除く) がなくなってから
+   * `intervalMs` が経過すると一時停止し、再びビューに描画されると再開します。
+   * 一時停止の方法は以下のいずれかです。
+   *
+   * - `'disable'` - トラックを無効にします。再ネゴシエーションは不要ですが、受信とデコードは継続します。
+   *   描画の負荷は下がりますが、デコードの負荷と受信の帯域は減りません。
+   * - `'direction'` - トランシーバーの方向から受信を外します。
+   *   再ネゴシエーションが必要ですが、完了すると受信とデコードが止まります。
+   *
+   * デコードの負荷を下げたい場合は `'direction'` を指定し、
+   * `negotiationneeded` イベント (または {@link RTCPerfectNegotiation}) で再ネゴシエーションを行ってください。
+   *
+   * @param {number} intervalMs 一時停止するまでの時間 (ミリ秒) 。 0 の場合は一時停止しません。
+   * @param {string} mode 一時停止の方法。デフォルトは `'disable'` です。
+   */
+  static setRemoteVideoAutoPause(intervalMs: number, mode: 'disable' | 'direction' = 'disable') {
+    if (Platform.OS === 'android') {
+      WebRTCModule.setRemoteVideoAutoPause(intervalMs, mode);
+    } else {
+      logger.log("# setRemoteVideoAutoPause() is available only on Android");
+    }
+  }
+
+  /**
+   * {@link RTCVideoView} で再利用するために保持しておくレンダラーの上限を設定します。
+   * Android のみサポートしています。
+   *
+   * リストのスクロールなどでビューが頻繁に生成・破棄される場合に、レンダラーの初期化を省略できます。
+   * 0 の場合は再利用しません。デフォルトは 4 です。
+   *
+   * @param {number} size プールするレンダラーの上限
+   */
+  static setVideoRendererPoolSize(size: number) {
+    if (Platform.OS === 'android') {
+      WebRTCModule.setVideoRendererPoolSize(size);
+    } else {
+      logger.log("# setVideoRendererPoolSize() is available only on Android");
+    }
+  }
+}